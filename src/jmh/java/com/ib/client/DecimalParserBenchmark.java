@@ -0,0 +1,99 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** EDecimalParser against the former String + Double.parseDouble path, over the numeric fields
+ *  (prices, WAPs, volumes, indicators) of the bundled FX bar captures, laid out as NUL
+ *  terminated wire fields. Each invocation parses every field once. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimalParserBenchmark {
+    @Param({ "EUR_train.csv", "JPY_train.csv" })
+    public String capture;
+
+    private byte[] m_fields;
+    private int[] m_starts;
+    private int[] m_ends;
+
+    @Setup
+    public void load() throws IOException {
+        ByteArrayOutputStream fields = new ByteArrayOutputStream();
+        int[] starts = new int[1024];
+        int[] ends = new int[1024];
+        int count = 0;
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                DecimalParserBenchmark.class.getResourceAsStream("/" + capture), StandardCharsets.UTF_8))) {
+            in.readLine(); // header
+
+            for (String line; (line = in.readLine()) != null; ) {
+                for (String field : line.split(",")) {
+                    if (field.isEmpty() || !Character.isDigit(field.charAt(field.length() - 1))) {
+                        continue;
+                    }
+
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        ends = Arrays.copyOf(ends, count * 2);
+                    }
+
+                    byte[] bytes = field.getBytes(StandardCharsets.ISO_8859_1);
+
+                    starts[count] = fields.size();
+                    fields.write(bytes);
+                    ends[count++] = fields.size();
+                    fields.write(0);
+                }
+            }
+        }
+
+        m_fields = fields.toByteArray();
+        m_starts = Arrays.copyOf(starts, count);
+        m_ends = Arrays.copyOf(ends, count);
+    }
+
+    @Benchmark
+    public double decimalParser() {
+        double sum = 0;
+
+        for (int i = 0; i < m_starts.length; i++) {
+            sum += EDecimalParser.parse(m_fields, m_starts[i], m_ends[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double doubleParseDouble() {
+        double sum = 0;
+
+        for (int i = 0; i < m_starts.length; i++) {
+            sum += Double.parseDouble(new String(m_fields, m_starts[i], m_ends[i] - m_starts[i], StandardCharsets.ISO_8859_1));
+        }
+        return sum;
+    }
+}
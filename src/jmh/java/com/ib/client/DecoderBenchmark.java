@@ -0,0 +1,250 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** EDecoder.processMsg on pre-built frames of the message types the trading loop receives, at
+ *  EClient.MAX_VERSION. Decoded objects are handed to a Blackhole so they cannot be optimised
+ *  away; run with -prof gc (the profile's default) to see the allocation per message. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+    private static final int SERVER_VERSION = EClient.MAX_VERSION;
+
+    @Param({ "TICK_PRICE", "TICK_BY_TICK", "HISTORICAL_DATA", "OPEN_ORDER", "PORTFOLIO_VALUE", "POSITION" })
+    public String msgType;
+
+    private EDecoder m_decoder;
+    private EMessage m_frame;
+
+    @Setup
+    public void setUp(Blackhole bh) throws IOException {
+        m_decoder = new EDecoder(SERVER_VERSION, new SinkWrapper(bh));
+        m_frame = frame(msgType);
+    }
+
+    @Benchmark
+    public int processMsg() throws IOException {
+        return m_decoder.processMsg(m_frame);
+    }
+
+    static EMessage frame(String msgType) throws IOException {
+        Builder b = new Builder(1024);
+
+        switch (msgType) {
+            case "TICK_PRICE":
+                b.send(IncomingMessage.TICK_PRICE);
+                b.send(6);       // version
+                b.send(1001);    // tickerId
+                b.send(1);       // BID
+                b.send(0.71235);
+                b.send(17L);
+                b.send(1);       // attribute mask
+                break;
+
+            case "TICK_BY_TICK":
+                b.send(IncomingMessage.TICK_BY_TICK);
+                b.send(1002);
+                b.send(1);       // Last
+                b.send(1668090000L);
+                b.send(0.71240);
+                b.send(3L);
+                b.send(0);
+                b.send("CME");
+                b.send("");
+                break;
+
+            case "HISTORICAL_DATA":
+                b.send(IncomingMessage.HISTORICAL_DATA);
+                b.send(1003);
+                b.send("20221110  09:00:00");
+                b.send("20221110  10:00:00");
+                b.send(12);
+                for (int i = 0; i < 12; i++) {
+                    b.send(String.format("20221110  09:%02d:00", i * 5));
+                    b.send(0.7120 + i * 0.00005);
+                    b.send(0.7126 + i * 0.00005);
+                    b.send(0.7117 + i * 0.00005);
+                    b.send(0.7123 + i * 0.00005);
+                    b.send(120L + i);
+                    b.send(0.712175 + i * 0.00005);
+                    b.send(40 + i);
+                }
+                break;
+
+            case "OPEN_ORDER":
+                return openOrderFrame();
+
+            case "PORTFOLIO_VALUE":
+                b.send(IncomingMessage.PORTFOLIO_VALUE);
+                b.send(8);
+                sendPortfolioContract(b);
+                b.send(2.0);       // position
+                b.send(0.71235);   // market price
+                b.send(142470.0);  // market value
+                b.send(71180.5);   // average cost
+                b.send(109.0);     // unrealized PnL
+                b.send(0.0);       // realized PnL
+                b.send("DU9999999");
+                break;
+
+            case "POSITION":
+                b.send(IncomingMessage.POSITION);
+                b.send(3);
+                b.send("DU9999999");
+                b.send(299701779);
+                b.send("AUD");
+                b.send("FUT");
+                b.send("20221219");
+                b.send(0.0);
+                b.send("");
+                b.send("100000");
+                b.send("CME");
+                b.send("USD");
+                b.send("6AZ2");
+                b.send("6A");
+                b.send(2.0);
+                b.send(71180.5);
+                break;
+
+            default:
+                throw new IllegalArgumentException(msgType);
+        }
+
+        byte[] bytes = b.toByteArray();
+        return EMessage.wrap(bytes, 0, bytes.length);
+    }
+
+    /** Contract fields in PORTFOLIO_VALUE order, which has primaryExch where POSITION has the exchange. */
+    private static void sendPortfolioContract(Builder b) throws IOException {
+        b.send(299701779);
+        b.send("AUD");
+        b.send("FUT");
+        b.send("20221219");
+        b.send(0.0);
+        b.send("");
+        b.send("100000");
+        b.send("");
+        b.send("USD");
+        b.send("6AZ2");
+        b.send("6A");
+    }
+
+    /** A limit order on an FX future: the identifying and main order fields are filled in, the
+     *  long tail of optional order attributes is left at its defaults (empty fields), as for a
+     *  plain order from the trading loop. The tail length is found by decoding the frame once. */
+    private static EMessage openOrderFrame() throws IOException {
+        Builder b = new Builder(1024);
+
+        b.send(IncomingMessage.OPEN_ORDER);
+        b.send(17);          // orderId
+        b.send(299701779);
+        b.send("AUD");
+        b.send("FUT");
+        b.send("20221219");
+        b.send(0.0);
+        b.send("");
+        b.send("100000");
+        b.send("CME");
+        b.send("USD");
+        b.send("6AZ2");
+        b.send("6A");
+        b.send("BUY");
+        b.send(2.0);
+        b.send("LMT");
+        b.send(0.71235);
+        b.send("");          // auxPrice
+        b.send("DAY");
+        b.send("");          // ocaGroup
+        b.send("DU9999999");
+        b.send("O");         // openClose
+        b.send(0);           // origin
+        b.send("strategy");  // orderRef
+        b.send(0);           // clientId
+        b.send(1234567);     // permId
+        b.send(0);           // outsideRth
+        b.send(0);           // hidden
+        b.send(0.0);         // discretionaryAmt
+
+        for (int i = 0; i < 300; i++) {
+            b.send("");
+        }
+
+        byte[] padded = b.toByteArray();
+        int length = new EDecoder(SERVER_VERSION, new DefaultEWrapper()).processMsg(EMessage.wrap(padded, 0, padded.length));
+
+        return EMessage.wrap(padded, 0, length);
+    }
+
+    /** Hands every decoded object to the Blackhole. */
+    private static final class SinkWrapper extends DefaultEWrapper {
+        private final Blackhole m_bh;
+
+        SinkWrapper(Blackhole bh) {
+            m_bh = bh;
+        }
+
+        @Override public void tickPrice(int tickerId, int field, double price, TickAttrib attrib) {
+            m_bh.consume(price);
+            m_bh.consume(attrib);
+        }
+
+        @Override public void tickSize(int tickerId, int field, long size) {
+            m_bh.consume(size);
+        }
+
+        @Override public void tickByTickAllLast(int reqId, int tickType, long time, double price, long size,
+                TickAttribLast tickAttribLast, String exchange, String specialConditions) {
+            m_bh.consume(price);
+            m_bh.consume(tickAttribLast);
+            m_bh.consume(exchange);
+            m_bh.consume(specialConditions);
+        }
+
+        @Override public void historicalData(int reqId, Bar bar) {
+            m_bh.consume(bar);
+        }
+
+        @Override public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
+            m_bh.consume(startDateStr);
+            m_bh.consume(endDateStr);
+        }
+
+        @Override public void openOrder(int orderId, Contract contract, Order order, OrderState orderState) {
+            m_bh.consume(contract);
+            m_bh.consume(order);
+            m_bh.consume(orderState);
+        }
+
+        @Override public void updatePortfolio(Contract contract, double position, double marketPrice, double marketValue,
+                double averageCost, double unrealizedPNL, double realizedPNL, String accountName) {
+            m_bh.consume(contract);
+            m_bh.consume(accountName);
+        }
+
+        @Override public void position(String account, Contract contract, double pos, double avgCost) {
+            m_bh.consume(account);
+            m_bh.consume(contract);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Cost of encoding requests in EClient and Builder, up to the hand-off to the transport, at
+ *  EClient.MAX_VERSION. The client is marked connected and its transport only consumes the
+ *  framed message, so no socket is involved. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncoderBenchmark {
+    private EClientSocket m_client;
+    private Contract m_contract;
+    private Order m_order;
+
+    /** A client that is always connected and sends into a Blackhole. */
+    private static final class OfflineClient extends EClientSocket {
+        OfflineClient(Blackhole bh) {
+            super(new DefaultEWrapper(), new EJavaSignal());
+            m_serverVersion = EClient.MAX_VERSION;
+            m_socketTransport = new ETransport() {
+                @Override public void send(EMessage msg) { bh.consume(msg); }
+                @Override public void close() { }
+            };
+        }
+
+        @Override
+        public synchronized boolean isConnected() {
+            return true;
+        }
+    }
+
+    @Setup
+    public void setUp(Blackhole bh) {
+        m_client = new OfflineClient(bh);
+
+        m_contract = new Contract();
+        m_contract.symbol("AUD");
+        m_contract.secType("FUT");
+        m_contract.currency("USD");
+        m_contract.exchange("CME");
+        m_contract.lastTradeDateOrContractMonth("20221219");
+        m_contract.conid(299701779);
+
+        m_order = new Order();
+        m_order.action("BUY");
+        m_order.totalQuantity(2);
+        m_order.orderType("LMT");
+        m_order.lmtPrice(0.71235);
+        m_order.tif("DAY");
+        m_order.orderRef("strategy");
+    }
+
+    @Benchmark
+    public void placeOrder() {
+        m_client.placeOrder(17, m_contract, m_order);
+    }
+
+    @Benchmark
+    public void reqMktData() {
+        m_client.reqMktData(1001, m_contract, "", false, false, null);
+    }
+
+    @Benchmark
+    public void reqHistoricalData() {
+        m_client.reqHistoricalData(1003, m_contract, "", "3600 S", "5 mins", "TRADES", 0, 1, false, null);
+    }
+
+    /** Builder alone: a TICK_PRICE sized message of mixed field types. */
+    @Benchmark
+    public int builderFields() throws IOException {
+        Builder b = new Builder(64);
+
+        b.send(1);
+        b.send(6);
+        b.send(1001);
+        b.send(0.71235);
+        b.send(17L);
+        b.send("CME");
+        return b.size();
+    }
+}
@@ -0,0 +1,77 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** An OPEN_ORDER frame, as in DecoderBenchmark, handled the way an order snapshot typically is:
+ *  only the order id, perm id, symbol and account are read. eager decodes the whole message,
+ *  lazy goes through ELazyOrderWrapper. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyOrderBenchmark {
+    private EDecoder m_eager;
+    private EDecoder m_lazy;
+    private EMessage m_frame;
+
+    @Setup
+    public void setUp(Blackhole bh) throws IOException {
+        m_eager = new EDecoder(EClient.MAX_VERSION, new DefaultEWrapper() {
+            @Override public void openOrder(int orderId, Contract contract, Order order, OrderState orderState) {
+                bh.consume(orderId);
+                bh.consume(order.permId());
+                bh.consume(contract.symbol());
+                bh.consume(order.account());
+            }
+        });
+        m_lazy = new EDecoder(EClient.MAX_VERSION, new LazyWrapper(bh));
+        m_frame = DecoderBenchmark.frame("OPEN_ORDER");
+    }
+
+    @Benchmark
+    public int eager() throws IOException {
+        return m_eager.processMsg(m_frame);
+    }
+
+    @Benchmark
+    public int lazy() throws IOException {
+        return m_lazy.processMsg(m_frame);
+    }
+
+    private static final class LazyWrapper extends DefaultEWrapper implements ELazyOrderWrapper {
+        private final Blackhole m_bh;
+
+        LazyWrapper(Blackhole bh) {
+            m_bh = bh;
+        }
+
+        @Override public void openOrder(ELazyOrder order) {
+            m_bh.consume(order.orderId());
+            m_bh.consume(order.permId());
+            m_bh.consume(order.symbol());
+            m_bh.consume(order.account());
+        }
+
+        @Override public void completedOrder(ELazyOrder order) {
+            m_bh.consume(order);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** reqCurrentTime round trips against the local ETwsSimulator over a number of connections, each
+ *  with its own reader, processing loop and writer, run as platform threads or as virtual threads
+ *  (see EThreads; on a JDK without virtual threads both modes use platform threads). The number
+ *  of live platform threads with all connections open is printed at the end of each trial. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadingModelBenchmark {
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "1", "64" })
+    public int connections;
+
+    private ETwsSimulator m_simulator;
+    private Connection[] m_connections;
+    private int m_next;
+    private int m_baselineThreads;
+
+    /** One client with its reader and processing loop. */
+    private static final class Connection extends DefaultEWrapper {
+        final EReaderSignal m_signal;
+        final EClientSocket m_client;
+        final CompletableFuture<Integer> m_ready = new CompletableFuture<>();
+        volatile CompletableFuture<Long> m_pending;
+
+        Connection(boolean virtual) {
+            m_signal = virtual ? new ELockSignal() : new EJavaSignal();
+            m_client = new EClientSocket(this, m_signal);
+            m_client.setUseVirtualThreads(virtual);
+        }
+
+        void connect(int port, int clientId, boolean virtual) throws Exception {
+            m_client.eConnect("127.0.0.1", port, clientId);
+
+            EReader reader = new EReader(m_client, m_signal);
+            reader.start(virtual);
+            EThreads.startThread("processMsgs " + clientId, virtual, () -> {
+                while (m_client.isConnected()) {
+                    m_signal.waitForSignal();
+                    try {
+                        reader.processMsgs();
+                    }
+                    catch (Exception e) {
+                        error(e);
+                    }
+                }
+            });
+            m_ready.get(10, TimeUnit.SECONDS);
+        }
+
+        long currentTime() throws Exception {
+            CompletableFuture<Long> pending = new CompletableFuture<>();
+            m_pending = pending;
+            m_client.reqCurrentTime();
+            return pending.get(10, TimeUnit.SECONDS);
+        }
+
+        @Override public void nextValidId(int orderId) {
+            m_ready.complete(orderId);
+        }
+
+        @Override public void currentTime(long time) {
+            CompletableFuture<Long> pending = m_pending;
+            if (pending != null) {
+                pending.complete(time);
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean virtual = "virtual".equals(threads);
+
+        m_baselineThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        m_simulator = new ETwsSimulator(0).start();
+        m_connections = new Connection[connections];
+
+        for (int i = 0; i < connections; i++) {
+            m_connections[i] = new Connection(virtual);
+            m_connections[i].connect(m_simulator.port(), i, virtual);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        int live = ManagementFactory.getThreadMXBean().getThreadCount();
+        System.out.printf("%n%d connections on %s threads (virtual threads %s): %d platform threads, %d more than before connecting%n",
+                connections, threads, EThreads.isVirtualAvailable() ? "available" : "not available", live, live - m_baselineThreads);
+
+        for (Connection connection : m_connections) {
+            connection.m_client.eDisconnect();
+        }
+        m_simulator.close();
+    }
+
+    /** Round trip on the connections in turn; the simulator's own session threads are included in the count. */
+    @Benchmark
+    public long roundTrip() throws Exception {
+        Connection connection = m_connections[m_next];
+        m_next = (m_next + 1) % m_connections.length;
+        return connection.currentTime();
+    }
+}
@@ -30,7 +30,7 @@ public class Main_open {
         m_client.eConnect("127.0.0.1", 7497, 0);
         //! [connect]
         //! [ereader]
-        final EReader reader = new EReader(m_client, m_signal);
+        final EReader reader = new EReader(m_client, m_signal, new ERingBufferMessageQueue(4096));
 
 //  Ports
 //  7497  paper-trading account - TWS
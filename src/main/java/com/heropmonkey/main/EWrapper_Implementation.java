@@ -7,8 +7,14 @@ package com.heropmonkey.main;
 
 import com.ib.client.*;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 //! [ewrapperimpl]
 public class EWrapper_Implementation implements EWrapper {
@@ -22,10 +28,30 @@ public class EWrapper_Implementation implements EWrapper {
     private EClientSocket clientSocket;
     protected int currentOrderId = -1;
     //! [socket_declare]
+
+    // Tick lines are formatted into logLine and written to stdout through logChars, without a String per line.
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+    private final StringBuilder logLine = new StringBuilder(256);
+    private final Writer stdout = new OutputStreamWriter(System.out);
+    private char[] logChars = new char[256];
+
+    // Requests made through this class are released by the scheduler, which keeps them within TWS pacing.
+    private final ERequestScheduler scheduler = new ERequestScheduler();
+
+    // Pending positions(), portfolio() and historicalBars() calls, completed by the matching *End callback.
+    private long requestTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+    private CompletableFuture<HashMap<String, Double>> positionsDone;                              // guarded by this
+    private final Map<String, CompletableFuture<Map<String, List<Double>>>> portfolioDone = new HashMap<>(); // guarded by this
+    private final Map<Integer, CompletableFuture<ArrayList<Bar>>> barsDone = new ConcurrentHashMap<>();
+    private final Map<Integer, ArrayList<Bar>> barsByReqId = new ConcurrentHashMap<>();
     
     //! [socket_init]
     public EWrapper_Implementation() {
-        readerSignal = new EJavaSignal();
+        this(new EJavaSignal());
+    }
+
+    public EWrapper_Implementation(EReaderSignal signal) {
+        readerSignal = signal;
         clientSocket = new EClientSocket(this, readerSignal);
     }
     //! [socket_init]
@@ -42,6 +68,85 @@ public class EWrapper_Implementation implements EWrapper {
         return currentOrderId;
     }
 
+    /** The scheduler requests of this wrapper go through; other requests to the same connection should use it too. */
+    public ERequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /** How long positions(), portfolio() and historicalBars() wait for TWS before failing with a TimeoutException. */
+    public void setRequestTimeout(long timeout, TimeUnit unit) {
+        requestTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /** Requests positions; completes with getPositions() at positionEnd, after which the subscription is
+     *  cancelled. A call while a request is pending shares its future. */
+    public synchronized CompletableFuture<HashMap<String, Double>> positions() {
+        if (positionsDone == null) {
+            CompletableFuture<HashMap<String, Double>> done = new CompletableFuture<>();
+            positionsDone = done;
+            done.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((p, e) -> {
+                synchronized (this) {
+                    positionsDone = null;
+                }
+                scheduler.submit(ERequestScheduler.Priority.ORDER, clientSocket::cancelPositions);
+            });
+            scheduler.submit(ERequestScheduler.Priority.MARKET_DATA, clientSocket::reqPositions);
+        }
+        return positionsDone;
+    }
+
+    /** Subscribes to account updates for account; completes with getHashMap_UpdatePortfolio() at its
+     *  accountDownloadEnd, after which the subscription is cancelled. A call while a request for the
+     *  same account is pending shares its future. */
+    public synchronized CompletableFuture<Map<String, List<Double>>> portfolio(String account) {
+        CompletableFuture<Map<String, List<Double>>> pending = portfolioDone.get(account);
+        if (pending != null) {
+            return pending;
+        }
+
+        CompletableFuture<Map<String, List<Double>>> done = new CompletableFuture<>();
+        portfolioDone.put(account, done);
+        done.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((p, e) -> {
+            synchronized (this) {
+                portfolioDone.remove(account);
+            }
+            scheduler.submit(ERequestScheduler.Priority.ORDER, () -> clientSocket.reqAccountUpdates(false, account));
+        });
+        scheduler.submit(ERequestScheduler.Priority.MARKET_DATA, () -> clientSocket.reqAccountUpdates(true, account));
+        return done;
+    }
+
+    /** Requests historical bars, with formatDate 1 and without keepUpToDate; completes with the bars at
+     *  historicalDataEnd, or fails with an IOException on an error for reqId. The request waits in the
+     *  scheduler while the pacing rules hold it back, and the timeout starts when it is sent. These bars
+     *  are not added to getBarsHistDataArrayList(). */
+    public CompletableFuture<ArrayList<Bar>> historicalBars(int reqId, Contract contract, String endDateTime, String durationStr,
+            String barSizeSetting, String whatToShow, int useRTH) {
+        CompletableFuture<ArrayList<Bar>> done = new CompletableFuture<>();
+        if (barsDone.putIfAbsent(reqId, done) != null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("historical request " + reqId + " is pending"));
+        }
+
+        barsByReqId.put(reqId, new ArrayList<>());
+        CompletableFuture<Void> sent = scheduler.reqHistoricalData(clientSocket, reqId, contract, endDateTime, durationStr,
+                barSizeSetting, whatToShow, useRTH, 1, false, new ArrayList<>());
+        sent.whenComplete((v, e) -> {
+            if (e != null) {
+                done.completeExceptionally(e);
+            } else {
+                done.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        done.whenComplete((bars, e) -> {
+            barsByReqId.remove(reqId);
+            barsDone.remove(reqId);
+            if (e != null && sent.isDone() && !sent.isCompletedExceptionally()) {
+                scheduler.submit(ERequestScheduler.Priority.ORDER, () -> clientSocket.cancelHistoricalData(reqId));
+            }
+        });
+        return done;
+    }
+
     //! [tickprice]
     @Override
     public void tickPrice(int tickerId, int field, double price, TickAttrib attribs) {
@@ -165,6 +270,13 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void accountDownloadEnd(String accountName) {
         System.out.println("Account download finished: " + accountName + "\n");
+        CompletableFuture<Map<String, List<Double>>> done;
+        synchronized (this) {
+            done = portfolioDone.get(accountName);
+        }
+        if (done != null) {
+            done.complete(HashMap_UpdatePortfolio);
+        }
     }
     //! [accountdownloadend]
 
@@ -254,7 +366,12 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void historicalData(int reqId, Bar bar) {
         System.out.println("HistoricalData. " + reqId + " - Date: " + bar.time() + ", Open: " + bar.open() + ", High: " + bar.high() + ", Low: " + bar.low() + ", Close: " + bar.close() + ", Volume: " + bar.volume() + ", Count: " + bar.count() + ", WAP: " + bar.wap());
-        barsHistDataArrayList.add(bar);
+        ArrayList<Bar> requested = barsByReqId.get(reqId);
+        if (requested != null) {
+            requested.add(bar);
+        } else {
+            barsHistDataArrayList.add(bar);
+        }
     }
     //! [historicaldata]
 
@@ -271,7 +388,11 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
         System.out.println("HistoricalDataEnd. " + reqId + " - Start Date: " + startDateStr + ", End Date: " + endDateStr);
-        
+        CompletableFuture<ArrayList<Bar>> done = barsDone.get(reqId);
+        ArrayList<Bar> bars = barsByReqId.get(reqId);
+        if (done != null && bars != null) {
+            done.complete(bars);
+        }
     }
     //! [historicaldataend]
 
@@ -403,6 +524,13 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void positionEnd() {
         System.out.println("PositionEnd \n");
+        CompletableFuture<HashMap<String, Double>> done;
+        synchronized (this) {
+            done = positionsDone;
+        }
+        if (done != null) {
+            done.complete(positions);
+        }
     }
     //! [positionend]
 
@@ -468,12 +596,26 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void error(int id, int errorCode, String errorMsg) {
         System.out.println("Error. Id: " + id + ", Code: " + errorCode + ", Msg: " + errorMsg + "\n");
+        CompletableFuture<ArrayList<Bar>> done = barsDone.get(id);
+        if (done != null && (errorCode < 2100 || errorCode >= 2200)) { // 21xx are warnings
+            done.completeExceptionally(new IOException(errorCode + " " + errorMsg));
+        }
     }
     //! [error]
 
     @Override
     public void connectionClosed() {
         System.out.println("Connection closed");
+        IOException closed = new IOException("connection closed");
+        barsDone.values().forEach(done -> done.completeExceptionally(closed));
+        List<CompletableFuture<?>> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(portfolioDone.values());
+            if (positionsDone != null) {
+                pending.add(positionsDone);
+            }
+        }
+        pending.forEach(done -> done.completeExceptionally(closed));
     }
 
     //! [connectack]
@@ -724,7 +866,10 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void historicalTicks(int reqId, List<HistoricalTick> ticks, boolean done) {
         for (HistoricalTick tick : ticks) {
-            System.out.println(EWrapperMsgGenerator.historicalTick(reqId, tick.time(), tick.price(), tick.size()));
+            synchronized (logLine) {
+                EWrapperMsgGenerator.historicalTick(newLogLine(), reqId, tick.time(), tick.price(), tick.size());
+                printLogLine();
+            }
         }
     }
     //! [historicalticks]
@@ -733,8 +878,11 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void historicalTicksBidAsk(int reqId, List<HistoricalTickBidAsk> ticks, boolean done) {
         for (HistoricalTickBidAsk tick : ticks) {
-            System.out.println(EWrapperMsgGenerator.historicalTickBidAsk(reqId, tick.time(), tick.tickAttribBidAsk(), tick.priceBid(), tick.priceAsk(), tick.sizeBid(),
-                    tick.sizeAsk()));
+            synchronized (logLine) {
+                EWrapperMsgGenerator.historicalTickBidAsk(newLogLine(), reqId, tick.time(), tick.tickAttribBidAsk(), tick.priceBid(), tick.priceAsk(), tick.sizeBid(),
+                        tick.sizeAsk());
+                printLogLine();
+            }
         }
     }
     //! [historicalticksbidask]
@@ -743,8 +891,11 @@ public class EWrapper_Implementation implements EWrapper {
     //! [historicaltickslast]
     public void historicalTicksLast(int reqId, List<HistoricalTickLast> ticks, boolean done) {
         for (HistoricalTickLast tick : ticks) {
-            System.out.println(EWrapperMsgGenerator.historicalTickLast(reqId, tick.time(), tick.tickAttribLast(), tick.price(), tick.size(), tick.exchange(),
-                    tick.specialConditions()));
+            synchronized (logLine) {
+                EWrapperMsgGenerator.historicalTickLast(newLogLine(), reqId, tick.time(), tick.tickAttribLast(), tick.price(), tick.size(), tick.exchange(),
+                        tick.specialConditions());
+                printLogLine();
+            }
         }
     }
     //! [historicaltickslast]
@@ -753,7 +904,10 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void tickByTickAllLast(int reqId, int tickType, long time, double price, long size, TickAttribLast tickAttribLast,
             String exchange, String specialConditions) {
-        System.out.println(EWrapperMsgGenerator.tickByTickAllLast(reqId, tickType, time, price, size, tickAttribLast, exchange, specialConditions));
+        synchronized (logLine) {
+            EWrapperMsgGenerator.tickByTickAllLast(newLogLine(), reqId, tickType, time, price, size, tickAttribLast, exchange, specialConditions);
+            printLogLine();
+        }
         
         this.lastTick = price;
         
@@ -772,7 +926,10 @@ public class EWrapper_Implementation implements EWrapper {
     @Override
     public void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize,
             TickAttribBidAsk tickAttribBidAsk) {
-        System.out.println(EWrapperMsgGenerator.tickByTickBidAsk(reqId, time, bidPrice, askPrice, bidSize, askSize, tickAttribBidAsk));
+        synchronized (logLine) {
+            EWrapperMsgGenerator.tickByTickBidAsk(newLogLine(), reqId, time, bidPrice, askPrice, bidSize, askSize, tickAttribBidAsk);
+            printLogLine();
+        }
         
              
         
@@ -782,10 +939,35 @@ public class EWrapper_Implementation implements EWrapper {
     //! [tickbytickmidpoint]
     @Override
     public void tickByTickMidPoint(int reqId, long time, double midPoint) {
-        System.out.println(EWrapperMsgGenerator.tickByTickMidPoint(reqId, time, midPoint));
+        synchronized (logLine) {
+            EWrapperMsgGenerator.tickByTickMidPoint(newLogLine(), reqId, time, midPoint);
+            printLogLine();
+        }
     }
     //! [tickbytickmidpoint]
 
+    /** The emptied line buffer; callers hold its lock until printLogLine(). */
+    private StringBuilder newLogLine() {
+        logLine.setLength(0);
+        return logLine;
+    }
+
+    private void printLogLine() {
+        int length = logLine.length() + LINE_SEPARATOR.length;
+        if (logChars.length < length) {
+            logChars = new char[Math.max(length, 2 * logChars.length)];
+        }
+        logLine.getChars(0, logLine.length(), logChars, 0);
+        System.arraycopy(LINE_SEPARATOR, 0, logChars, logLine.length(), LINE_SEPARATOR.length);
+
+        try {
+            stdout.write(logChars, 0, length);
+            stdout.flush();
+        } catch (IOException e) {
+            error(e);
+        }
+    }
+
     //! [orderbound]
     @Override
     public void orderBound(long orderId, int apiClientId, int apiOrderId) {
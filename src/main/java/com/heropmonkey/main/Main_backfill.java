@@ -0,0 +1,86 @@
+package com.heropmonkey.main;
+
+import com.heropmonkey.contracts.Contracts_202212_DEC;
+import com.heropmonkey.contracts.Contracts_202303_MAR;
+import com.heropmonkey.service.HistoricalBackfill;
+import com.ib.client.Contract;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backfills 5 minute bars for every contract in Contracts_202212_DEC and Contracts_202303_MAR into
+ * CSV files that CsvReader reads, named like the bundled training files: {dir}/{symbol}_{month}_backfill.csv.
+ *
+ * Each contract is backfilled for the given number of days up to its last trade date, or up to now
+ * if it has not expired yet.
+ *
+ * Arguments (all optional): days back (90), output directory (backfill), port (7497), client id (9),
+ * open requests (20).
+ */
+public class Main_backfill {
+
+    public static void main(String[] args) throws Exception {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 90;
+        Path dir = Paths.get(args.length > 1 ? args[1] : "backfill");
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 7497;
+        int clientId = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+        int openRequests = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+
+        try (HistoricalBackfill backfill = new HistoricalBackfill(openRequests).connect("127.0.0.1", port, clientId)) {
+            List<CompletableFuture<Path>> files = new ArrayList<>();
+
+            for (Contract contract : contracts(Contracts_202212_DEC.class, Contracts_202303_MAR.class)) {
+                String name = contract.symbol() + "_" + contract.lastTradeDateOrContractMonth().substring(0, 6) + "_backfill.csv";
+                Instant lastTrade = lastTrade(contract);
+                Instant to = lastTrade.isBefore(now) ? lastTrade : now;
+                Instant from = to.minus(days, ChronoUnit.DAYS);
+
+                files.add(backfill.backfill(contract, from, to, dir.resolve(name))
+                        .whenComplete((csv, e) -> {
+                            if (e != null) {
+                                System.out.println("Backfill failed: " + e.getMessage());
+                            }
+                        }));
+            }
+
+            CompletableFuture.allOf(files.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        }
+    }
+
+    /** End of the contract's last trade day, in UTC; a yyyyMM contract month counts to the end of the month. */
+    static Instant lastTrade(Contract contract) {
+        String date = contract.lastTradeDateOrContractMonth();
+        LocalDate day = date.length() == 6
+                ? LocalDate.parse(date + "01", DateTimeFormatter.BASIC_ISO_DATE).plusMonths(1)
+                : LocalDate.parse(date.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE).plusDays(1);
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /** The contracts returned by the public static no-argument factory methods of the given classes. */
+    static List<Contract> contracts(Class<?>... classes) throws Exception {
+        List<Contract> contracts = new ArrayList<>();
+
+        for (Class<?> c : classes) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (Modifier.isPublic(method.getModifiers()) && Modifier.isStatic(method.getModifiers())
+                        && method.getParameterCount() == 0 && method.getReturnType() == Contract.class) {
+                    contracts.add((Contract) method.invoke(null));
+                }
+            }
+        }
+        return contracts;
+    }
+}
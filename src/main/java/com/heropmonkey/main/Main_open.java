@@ -11,35 +11,55 @@ import com.heropmonkey.helpers.Position_Processor;
 import com.heropmonkey.strategy.NewStrategy;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 public class Main_open {
 
+    private static final String ACCOUNT = "DU9999999";
+
     public static void main(String[] args) throws InterruptedException {
+        // -Dib.virtualThreads=true runs the reader, processing and writer threads as virtual threads (JDK 21+),
+        // and this loop too, so its waits for TWS park a virtual thread rather than hold a platform one
+        boolean virtualThreads = Boolean.getBoolean("ib.virtualThreads");
+        Thread strategy = EThreads.startThread("Main_open", virtualThreads, () -> {
+            try {
+                open(virtualThreads);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        strategy.join();
+    }
+
+    private static void open(boolean virtualThreads) throws InterruptedException {
 
         //TimeUnit.SECONDS.sleep(60);  // 60 second pause when incorporating Windows Task Scheduler to activate IbcAlpha https://github.com/IbcAlpha/IBC
         //TimeUnit.SECONDS.sleep(30);  // 30 second pause when incorporating Windows Task Scheduler to activate IbcAlpha https://github.com/IbcAlpha/IBC
-        EWrapper_Implementation wrapper = new EWrapper_Implementation();
+        EWrapper_Implementation wrapper = new EWrapper_Implementation(virtualThreads ? new ELockSignal() : new EJavaSignal());
         NewStrategy newStrategy = new NewStrategy();
         Portfolio_Assessment portfolioAssessment = new Portfolio_Assessment();
         Position_Processor positions = new Position_Processor();       //  methods marginQtyEnforcer, ZeroPositionDiscloser, PositionDiscloser, posArrayProcessor, TotalAbsPositions_Discloser
 
         final EClientSocket m_client = wrapper.getClient();
         final EReaderSignal m_signal = wrapper.getSignal();
+        m_client.setUseVirtualThreads(virtualThreads);
         //! [connect]
         m_client.eConnect("127.0.0.1", 7497, 0);
         //! [connect]
         //! [ereader]
-        final EReader reader = new EReader(m_client, m_signal);
+        final EReader reader = new EReader(m_client, m_signal, new ERingBufferMessageQueue(4096));
 
 //  Ports
 //  7497  paper-trading account - TWS
 //  7496  live account - TWS
 //  4002  paper-trading account - IB Gateway
 //  4000  live account  - IB Gateway
-        reader.start();
+        reader.start(virtualThreads);
         //An additional thread is created in this program design to empty the messaging queue
-        new Thread(() -> {
+        EThreads.startThread("processMsgs", virtualThreads, () -> {
             while (m_client.isConnected()) {
                 m_signal.waitForSignal();
                 try {
@@ -48,7 +68,7 @@ public class Main_open {
                     System.out.println("Exception: " + e.getMessage());
                 }
             }
-        }).start();
+        });
         //! [ereader]
         // A pause to give the application time to establish the connection
         // In a production application, it would be best to wait for callbacks to confirm the connection is complete
@@ -77,12 +97,12 @@ public class Main_open {
         activeContracts.add(portfolioVault.put("GBP", liveContract_03));
         activeContracts.add(portfolioVault.put("JPY", liveContract_04));
 
-        OrderPlacer OOP = new OrderPlacer(wrapper.getClient(), wrapper.getCurrentOrderId());
+        OrderPlacer OOP = new OrderPlacer(wrapper.getClient(), wrapper.getScheduler(), wrapper.getCurrentOrderId());
 
         int x = 1;
         do {
 
-            marketDataType(wrapper.getClient());
+            wrapper.getScheduler().submit(ERequestScheduler.Priority.MARKET_DATA, () -> marketDataType(wrapper.getClient()));
 
             //tickByTickOperations(wrapper.getClient());
             //tickDataOperations(wrapper.getClient());
@@ -100,13 +120,12 @@ public class Main_open {
             //historicalDataRequests(wrapper.getClient());
 ////////********************************************************************************************************   
 ////// /*We always want to start with this because whenever coming from a weekend or an extended period of no activity, the position and portfolio callback method will return empty */
-            System.out.println("Initial start | Pristine start | ");
-            positionStatusOperations(wrapper.getClient());
-            wrapper.getPositions();
-            updatePortfolioOperations(wrapper.getClient());
-            wrapper.getHashMap_UpdatePortfolio();
+            // bars fetched this cycle, by symbol; TWS rejects an identical historical request within 15 seconds
+            Map<String, ArrayList<Bar>> cycleBars = new HashMap<>();
 
-            TimeUnit.SECONDS.sleep(3);
+            System.out.println("Initial start | Pristine start | ");
+            // positions and portfolio are requested together; this returns when TWS has sent both
+            await(CompletableFuture.allOf(wrapper.positions(), wrapper.portfolio(ACCOUNT)), "positions and portfolio");
 
             if (wrapper.getHashMap_UpdatePortfolio().size() != 0 || wrapper.getPositions().isEmpty()) {
 
@@ -116,19 +135,20 @@ public class Main_open {
                 System.out.println("BOTH Portfolio and Positions are empty or null ==>Portfolio size:  " + wrapper.getHashMap_UpdatePortfolio().size());
                 System.out.println("BOTH Portfolio and Positions are empty or null");
       
+                // the bars of all contracts are requested at once and each contract is handled as its bars arrive
+                List<CompletableFuture<ArrayList<Bar>>> barRequests = new ArrayList<>();
+                for (LiveContract activeContract : activeContracts) {
+                    barRequests.add(historicalDataMainOPERATIONS(activeContract.getHistData_ReqID(), wrapper, activeContract.getContract()));
+                }
+
                 for (int cr = 0; cr < activeContracts.size(); cr++) {
                     Contract currentContract = activeContracts.get(cr).getContract();
-                    String currentSymbolFUT = activeContracts.get(cr).getSymbol();
-                    int reqID_HistoricalData = activeContracts.get(cr).getHistData_ReqID();
-                    TimeUnit.SECONDS.sleep(3);
-                    historicalDataMainOPERATIONS(reqID_HistoricalData, wrapper.getClient(), currentContract);
-                    wrapper.getBarsHistDataArrayList();
+                    ArrayList<Bar> bars = awaitBars(barRequests.get(cr), currentContract);
+                    if (!bars.isEmpty()) {
+                        cycleBars.put(activeContracts.get(cr).getSymbol(), bars);
+                    }
 
-                    newStrategy.executionDeterminer(wrapper.getBarsHistDataArrayList());
-                    String commandBs = newStrategy.executionDeterminer(wrapper.getBarsHistDataArrayList());
-
-                    Thread.sleep(10000);
-                    TimeUnit.SECONDS.sleep(5);
+                    String commandBs = newStrategy.executionDeterminer(bars);
 
                     if ("SELL".equals(commandBs)) {
                         OOP.placeOrder(currentContract, OrderTypes.MarketOrder("SELL", 1));
@@ -146,8 +166,7 @@ public class Main_open {
 
             System.out.println("'Full' Capacity if eligible | Portfolio Assessment | unRealizedPNL actualization");
 
-            updatePortfolioOperations(wrapper.getClient());
-            wrapper.getHashMap_UpdatePortfolio();
+            await(wrapper.portfolio(ACCOUNT), "portfolio");
             portfolioAssessment.portfolioAssessMethod(wrapper.getHashMap_UpdatePortfolio());
             Map<String, Double> PositionsToActualize = portfolioAssessment.portfolioAssessMethod(wrapper.getHashMap_UpdatePortfolio());
             System.out.println("Here's answer_Box:===>  " + PositionsToActualize);
@@ -181,8 +200,7 @@ public class Main_open {
 //------- This portion of code opens positions if zero positions exist.
             System.out.println("Above/BelowCapacity - Zero positions checker/OPENER  ");
 
-            positionStatusOperations(wrapper.getClient());
-            wrapper.getPositions();
+            await(wrapper.positions(), "positions");
             ArrayList<String> toOpen = new ArrayList<>();
             toOpen = positions.zeroPostionDiscloser(wrapper.getPositions());
             System.out.println("Number of postions to open= " + toOpen.size() + " Positions needed to open: " + toOpen);
@@ -192,18 +210,15 @@ public class Main_open {
                 // for (HashMap.Entry<String, LiveContract> currentEntry : entrySet) {
                 Contract currentContract = portfolioVault.get(strContract).getContract();
                 int reqID_HistoricalData = portfolioVault.get(strContract).getHistData_ReqID();
-                TimeUnit.SECONDS.sleep(3);
-                historicalDataMainOPERATIONS(reqID_HistoricalData, wrapper.getClient(), currentContract);
-                TimeUnit.SECONDS.sleep(5);
-                if (wrapper.getBarsHistDataArrayList().size() != 0) {
-                    TimeUnit.SECONDS.sleep(5);
-                    ArrayList<Bar> incomingBarInput = wrapper.getBarsHistDataArrayList();
+                ArrayList<Bar> incomingBarInput = cycleBars.get(strContract);
+                if (incomingBarInput == null) {
+                    incomingBarInput = awaitBars(historicalDataMainOPERATIONS(reqID_HistoricalData, wrapper, currentContract), currentContract);
+                }
+                if (incomingBarInput.size() != 0) {
                     String determinedDecision = newStrategy.executionDeterminer(incomingBarInput);
-                    TimeUnit.SECONDS.sleep(4);
                     if ("BUY".equals(determinedDecision) || "SELL".equals(determinedDecision)) {
                         OOP.placeOrder(currentContract, OrderTypes.MarketOrder(determinedDecision, 1));
                     }
-                    incomingBarInput.clear();
                 }
                 // }
             }
@@ -213,8 +228,7 @@ public class Main_open {
 //////Here at this point, code to enforce limit on number of open positions due to margin requirement  - begin
 /////////////code to enforce margin quantity  - begin
             System.out.println("Above/BelowCapacity | Margin considerations | Margin qty enforcer ");
-            positionStatusOperations(wrapper.getClient());
-            wrapper.getPositions();
+            await(wrapper.positions(), "positions");
             HashMap<String, Double> currPostionsHashMap = new HashMap<>();
             currPostionsHashMap = wrapper.getPositions();
             System.out.println(currPostionsHashMap);
@@ -286,31 +300,26 @@ public class Main_open {
 
     }
 
-    private static void updatePortfolioOperations(EClientSocket client) throws InterruptedException {
-        client.reqAccountUpdates(true, "DU9999999");
-        //! [reqaaccountupdates]
-        Thread.sleep(5000);  //5 seconds
-        //! [cancelaaccountupdates]
-        client.reqAccountUpdates(false, "DU9999999");
-        //! [cancelaaccountupdates]
-        Thread.sleep(1000);
+    /** Waits for a request made through the wrapper; after a timeout or an error the cycle goes on with what the wrapper has. */
+    private static <T> T await(CompletableFuture<T> request, String what) {
+        try {
+            return request.join();
+        } catch (CompletionException | CancellationException e) {
+            System.out.println("No answer for " + what + ": " + (e.getCause() != null ? e.getCause() : e));
+            return null;
+        }
     }
 
-    private static void positionStatusOperations(EClientSocket client) throws InterruptedException {
-        client.reqPositions();
-        TimeUnit.SECONDS.sleep(5);
-        client.cancelPositions();
+    private static ArrayList<Bar> awaitBars(CompletableFuture<ArrayList<Bar>> request, Contract contract) {
+        ArrayList<Bar> bars = await(request, "historical data of " + contract.symbol());
+        return bars != null ? bars : new ArrayList<>();
     }
 
-    public static void historicalDataMainOPERATIONS(int reqID_HistData, EClientSocket client, Contract FXFuture00000) throws InterruptedException {
+    public static CompletableFuture<ArrayList<Bar>> historicalDataMainOPERATIONS(int reqID_HistData, EWrapper_Implementation wrapper, Contract FXFuture00000) {
         System.out.println();
         System.out.println("Futures Historical Data Main-- OPERATION    --->  historicalDataMainOPERATIONS    ***   ---    " + FXFuture00000.description() + "  ");
 //      This portion of code below is needed--TagValue a custom class. Although the broker IBKR has not matured the development, yet still needed.
-        List<TagValue> chartOptions = new ArrayList<TagValue>();
-        for (TagValue chartOption : chartOptions) {
-            System.out.println("Car name is: " + chartOption.m_tag);
-        }
-        client.reqHistoricalData(reqID_HistData, FXFuture00000, "", "3600 s", "5 mins", "TRADES", 0, 1, false, chartOptions);
+        CompletableFuture<ArrayList<Bar>> bars = wrapper.historicalBars(reqID_HistData, FXFuture00000, "", "3600 s", "5 mins", "TRADES", 0);
 
 //1.5hrs=90min =5400seconds
 //2hrs=120min =7200seconds
@@ -353,11 +362,9 @@ client.reqHistoricalData(tickerId, contract, endDateTime, durationStr, barSizeSe
  /* Error. Id: 4001, Code: 321, Msg: Error validating request:-'bI' : cause - Historical data bar size setting is invalid. 
         Legal ones are: 1 secs, 5 secs, 10 secs, 15 secs, 30 secs, 1 min, 2 mins, 3 mins, 5 mins, 10 mins, 15 mins, 20 mins, 30 mins, 1 hour, 2 hours, 3 hours, 4 hours, 8 hours, 1 day, 1W, 1M
          */
-        Thread.sleep(4000);
-        client.cancelHistoricalData(reqID_HistData);
-
         System.out.println("");
         System.out.println("");
+        return bars;
     }
 
     private static void marketDataType(EClientSocket client) {
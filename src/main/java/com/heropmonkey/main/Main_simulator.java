@@ -0,0 +1,65 @@
+package com.heropmonkey.main;
+
+import com.heropmonkey.service.CsvReader;
+import com.ib.client.Bar;
+import com.ib.client.ETwsSimulator;
+import smile.data.DataFrame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the local TWS simulator in place of TWS so Main_open can be exercised offline.
+ * Historical bars are served from the bundled *_train.csv files, keyed by contract symbol.
+ *
+ * Arguments (all optional): port (7497), ticks per second per tick-by-tick subscription (10),
+ * latency in microseconds (0), jitter in microseconds (0), fill delay in milliseconds (0).
+ */
+public class Main_simulator {
+
+    private static final String[] SYMBOLS = {"AUD", "CHF", "EUR", "GBP", "JPY"};
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7497;
+        double ticksPerSecond = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        long latencyMicros = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        long jitterMicros = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        long fillDelayMillis = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        Map<String, List<Bar>> bars = new HashMap<>();
+        for (String symbol : SYMBOLS) {
+            bars.put(symbol, readBars(String.format("src/main/resources/%s_train.csv", symbol)));
+        }
+
+        ETwsSimulator simulator = new ETwsSimulator(port)
+                .setHistoricalBars(contract -> bars.getOrDefault(contract.symbol(), Collections.emptyList()))
+                .setTickRate(ticksPerSecond)
+                .setLatency(latencyMicros, jitterMicros)
+                .setFillDelay(fillDelayMillis)
+                .setAccount("DU9999999")
+                .start();
+
+        System.out.println("TWS simulator listening on port " + simulator.port());
+        Thread.currentThread().join();
+    }
+
+    static List<Bar> readBars(String path) throws Exception {
+        DataFrame frame = CsvReader.read(path);
+        double[] open = frame.column("Open").toDoubleArray();
+        double[] high = frame.column("High").toDoubleArray();
+        double[] low = frame.column("Low").toDoubleArray();
+        double[] close = frame.column("Close").toDoubleArray();
+        double[] volume = frame.column("Volume").toDoubleArray();
+        double[] wap = frame.column("WAP").toDoubleArray();
+        double[] count = frame.column("Count").toDoubleArray();
+
+        List<Bar> bars = new ArrayList<>(frame.nrows());
+        for (int i = 0; i < frame.nrows(); i++) {
+            bars.add(new Bar(null, open[i], high[i], low[i], close[i], (long) volume[i], (int) count[i], wap[i]));
+        }
+        return bars;
+    }
+}
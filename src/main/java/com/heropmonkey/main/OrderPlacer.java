@@ -2,28 +2,40 @@ package com.heropmonkey.main;
 
 import com.ib.client.Contract;
 import com.ib.client.EClient;
+import com.ib.client.ERequestScheduler;
 import com.ib.client.Order;
 
 // https://groups.io/g/twsapi/message/40324
 // instantiate this class in the nextValidId() callback. Then just call its
 // placeOrder() method each time you want to place an order (from
 // any thread). The orderId is returned by placeOrder().
+// With a scheduler, orders are sent through it ahead of queued data requests.
 
 public class OrderPlacer {
 
     private int orderId;
     private EClient client;
+    private ERequestScheduler scheduler;
     
     
      
     public OrderPlacer(EClient client, int initialValue) {
+        this(client, null, initialValue);
+    }
+
+    public OrderPlacer(EClient client, ERequestScheduler scheduler, int initialValue) {
         this.client = client;
+        this.scheduler = scheduler;
         orderId = initialValue;
     }
 
     public synchronized int placeOrder(Contract contract, Order order) {
         int id = orderId++;
-        client.placeOrder(id, contract, order);
+        if (scheduler != null) {
+            scheduler.submit(ERequestScheduler.Priority.ORDER, () -> client.placeOrder(id, contract, order));
+        } else {
+            client.placeOrder(id, contract, order);
+        }
         return id;
     }
 
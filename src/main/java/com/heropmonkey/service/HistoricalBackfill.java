@@ -0,0 +1,449 @@
+package com.heropmonkey.service;
+
+import com.heropmonkey.utils.LoggingUtils;
+import com.ib.client.Bar;
+import com.ib.client.Contract;
+import com.ib.client.DefaultEWrapper;
+import com.ib.client.EClientSocket;
+import com.ib.client.EJavaSignal;
+import com.ib.client.EReader;
+import com.ib.client.EReaderSignal;
+import com.ib.client.ERequestScheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads long ranges of historical bars for many contracts over one connection of its own and
+ * writes them as CSV files in the schema of {@link CsvReader}.
+ *
+ * For each contract the earliest available bar is looked up with reqHeadTimestamp, the range is
+ * cut into chunks of the longest duration TWS allows for the bar size, and the chunks of all
+ * contracts are requested concurrently, up to a limit of open requests. Requests go out through
+ * an {@link ERequestScheduler}, which keeps them within the historical data pacing rules; a chunk
+ * that still meets a pacing violation is retried with a growing delay.
+ *
+ * Minute is the minute of the hour (UTC) of the bar, Tesla3/6/9 and Decision are computed from the
+ * 12 bars ending at each bar the way NewStrategy computes them live, so the first 11 bars of a range
+ * have no row. EXECUTE is written as NO, the data is unlabelled.
+ */
+public class HistoricalBackfill extends DefaultEWrapper implements AutoCloseable {
+
+    public static final String HEADER = "Open,High,Low,Close,Volume,WAP,Count,Minute,Tesla3,Tesla6,Tesla9,Decision,EXECUTE";
+
+    private static final DateTimeFormatter END_TIME = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss 'GMT'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int PACING_VIOLATION = 162;
+    private static final int NO_DATA = 366;
+    private static final int BARS_PER_ROW = 12;
+
+    private final EReaderSignal signal = new EJavaSignal();
+    private final EClientSocket client = new EClientSocket(this, signal);
+    private final ERequestScheduler scheduler = new ERequestScheduler();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "backfill retries");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CompletableFuture<Integer> ready = new CompletableFuture<>();
+    private final AtomicInteger nextReqId = new AtomicInteger(1);
+    private final Map<Integer, CompletableFuture<Long>> heads = new ConcurrentHashMap<>();
+    private final Map<Integer, Chunk> chunks = new ConcurrentHashMap<>();
+    private final ArrayDeque<Chunk> waiting = new ArrayDeque<>();
+    private final int maxOpenRequests;
+    private int openRequests;
+
+    private String barSize = "5 mins";
+    private String whatToShow = "TRADES";
+    private int useRTH = 0;
+    private int maxRetries = 5;
+    private long retryDelaySeconds = 15;
+
+    /** One contract's download. */
+    private class Job {
+        final Contract contract;
+        final Path csv;
+        final ConcurrentSkipListMap<Long, Bar> bars = new ConcurrentSkipListMap<>();
+        final CompletableFuture<Path> done = new CompletableFuture<>();
+        int outstanding;
+
+        Job(Contract contract, Path csv) {
+            this.contract = contract;
+            this.csv = csv;
+        }
+    }
+
+    /** One reqHistoricalData of a job. */
+    private class Chunk {
+        final Job job;
+        final long end;  // epoch seconds
+        final long seconds;
+        int attempts;
+
+        Chunk(Job job, long end, long seconds) {
+            this.job = job;
+            this.end = end;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * @param maxOpenRequests historical requests outstanding at once; TWS allows at most 50
+     */
+    public HistoricalBackfill(int maxOpenRequests) {
+        if (maxOpenRequests <= 0 || maxOpenRequests > 50) {
+            throw new IllegalArgumentException("open requests must be between 1 and 50: " + maxOpenRequests);
+        }
+        this.maxOpenRequests = maxOpenRequests;
+    }
+
+    /** Bar size setting as reqHistoricalData takes it, "5 mins" by default. */
+    public HistoricalBackfill setBarSize(String barSize) {
+        chunkSeconds(barSize); // validates
+        this.barSize = barSize;
+        return this;
+    }
+
+    public HistoricalBackfill setWhatToShow(String whatToShow) {
+        this.whatToShow = whatToShow;
+        return this;
+    }
+
+    public HistoricalBackfill setUseRTH(boolean useRTH) {
+        this.useRTH = useRTH ? 1 : 0;
+        return this;
+    }
+
+    /** Attempts per chunk after a pacing violation or timeout, and the delay before the first; it doubles with each attempt. */
+    public HistoricalBackfill setRetries(int maxRetries, long retryDelaySeconds) {
+        this.maxRetries = maxRetries;
+        this.retryDelaySeconds = retryDelaySeconds;
+        return this;
+    }
+
+    /** Connects and waits for the connection to be ready. */
+    public HistoricalBackfill connect(String host, int port, int clientId) throws Exception {
+        client.eConnect(host, port, clientId);
+        if (!client.isConnected()) {
+            throw new IOException("could not connect to " + host + ":" + port);
+        }
+
+        EReader reader = new EReader(client, signal);
+        reader.start();
+        new Thread(() -> {
+            while (client.isConnected()) {
+                signal.waitForSignal();
+                try {
+                    reader.processMsgs();
+                } catch (Exception e) {
+                    error(e);
+                }
+            }
+        }, "backfill processMsgs").start();
+
+        ready.get(30, TimeUnit.SECONDS);
+        return this;
+    }
+
+    /**
+     * Downloads the bars of contract between from and to, or from its first bar if that is later, into csv.
+     * @return completes with csv once it is written
+     */
+    public CompletableFuture<Path> backfill(Contract contract, Instant from, Instant to, Path csv) {
+        Job job = new Job(contract, csv);
+
+        contract.includeExpired(true); // ranges reach back past expiry
+        headTimestamp(contract).whenComplete((head, e) -> {
+            long start = from.getEpochSecond();
+
+            if (e == null && head > start) {
+                start = head;
+            }
+            else if (e != null) {
+                LoggingUtils.format("{0}: no head timestamp ({1}), starting at {2}", contract.symbol(), e.getMessage(), from);
+            }
+
+            split(job, start, to.getEpochSecond());
+        });
+        return job.done;
+    }
+
+    private CompletableFuture<Long> headTimestamp(Contract contract) {
+        int reqId = nextReqId.getAndIncrement();
+        CompletableFuture<Long> head = new CompletableFuture<>();
+
+        heads.put(reqId, head);
+        CompletableFuture<Void> sent = scheduler.submitHistorical(contract, whatToShow, "head:" + useRTH,
+                () -> client.reqHeadTimestamp(reqId, contract, whatToShow, useRTH, 2));
+        // the timeout starts when the request goes out, not while pacing holds it back
+        return sent.thenCompose(v -> head.orTimeout(60, TimeUnit.SECONDS)).whenComplete((time, e) -> {
+            heads.remove(reqId);
+            if (e != null && sent.isDone() && !sent.isCompletedExceptionally()) {
+                client.cancelHeadTimestamp(reqId);
+            }
+        });
+    }
+
+    private void split(Job job, long start, long end) {
+        long chunk = chunkSeconds(barSize);
+        List<Chunk> split = new ArrayList<>();
+
+        for (long e = end; e > start; e -= chunk) {
+            split.add(new Chunk(job, e, Math.min(chunk, e - start)));
+        }
+
+        if (split.isEmpty()) {
+            write(job);
+            return;
+        }
+
+        LoggingUtils.format("{0}: {1} requests from {2} to {3}", job.contract.symbol(), split.size(),
+                Instant.ofEpochSecond(start), Instant.ofEpochSecond(end));
+
+        synchronized (this) {
+            job.outstanding = split.size();
+            waiting.addAll(split);
+        }
+        pump();
+    }
+
+    /** Starts waiting chunks while fewer than maxOpenRequests are outstanding. */
+    private void pump() {
+        List<Chunk> start = new ArrayList<>();
+
+        synchronized (this) {
+            while (openRequests < maxOpenRequests && !waiting.isEmpty()) {
+                openRequests++;
+                start.add(waiting.poll());
+            }
+        }
+
+        for (Chunk chunk : start) {
+            request(chunk);
+        }
+    }
+
+    private void request(Chunk chunk) {
+        int reqId = nextReqId.getAndIncrement();
+        // TWS takes durations in seconds only up to a day, so the oldest, partial chunk is rounded up to
+        // whole days; bars are keyed by time, so the extra range costs nothing but a few older bars
+        String duration = chunk.seconds <= 86400 && chunk.seconds % 86400 != 0
+                ? chunk.seconds + " S" : (chunk.seconds + 86399) / 86400 + " D";
+
+        chunks.put(reqId, chunk);
+        scheduler.reqHistoricalData(client, reqId, chunk.job.contract, END_TIME.format(Instant.ofEpochSecond(chunk.end)),
+                duration, barSize, whatToShow, useRTH, 2, false, Collections.emptyList());
+        retries.schedule(() -> {
+            if (chunks.remove(reqId, chunk)) {
+                client.cancelHistoricalData(reqId);
+                retry(chunk, "no answer within 10 minutes");
+            }
+        }, 10, TimeUnit.MINUTES);
+    }
+
+    private void retry(Chunk chunk, String reason) {
+        if (++chunk.attempts > maxRetries) {
+            finish(chunk, new IOException(chunk.job.contract.symbol() + ": giving up after " + maxRetries + " retries: " + reason));
+            return;
+        }
+
+        long delay = retryDelaySeconds << (chunk.attempts - 1);
+        LoggingUtils.format("{0}: retrying chunk ending {1} in {2}s: {3}", chunk.job.contract.symbol(),
+                Instant.ofEpochSecond(chunk.end), delay, reason);
+        retries.schedule(() -> request(chunk), delay, TimeUnit.SECONDS);
+    }
+
+    private void finish(Chunk chunk, Exception failure) {
+        Job job = chunk.job;
+        boolean last;
+
+        synchronized (this) {
+            openRequests--;
+            last = --job.outstanding == 0;
+        }
+
+        if (failure != null) {
+            job.done.completeExceptionally(failure);
+        }
+        else if (last) {
+            write(job);
+        }
+        pump();
+    }
+
+    private void write(Job job) {
+        if (job.done.isDone()) {
+            return; // an earlier chunk failed
+        }
+
+        try {
+            writeCsv(new ArrayList<>(job.bars.values()), job.csv);
+            LoggingUtils.format("{0}: {1} bars written to {2}", job.contract.symbol(), job.bars.size(), job.csv);
+            job.done.complete(job.csv);
+        } catch (IOException e) {
+            job.done.completeExceptionally(e);
+        }
+    }
+
+    /** Writes bars, oldest first, in the schema of CsvReader. */
+    public static void writeCsv(List<Bar> bars, Path csv) throws IOException {
+        if (csv.getParent() != null) {
+            Files.createDirectories(csv.getParent());
+        }
+
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            out.write(HEADER);
+            out.newLine();
+
+            for (int last = BARS_PER_ROW - 1; last < bars.size(); last++) {
+                Bar bar = bars.get(last);
+                double[] tesla = teslas(bars, last);
+                String decision = tesla[0] < tesla[1] && tesla[1] < tesla[2] ? "BUY"
+                        : tesla[0] > tesla[1] && tesla[1] > tesla[2] ? "SELL" : "NO";
+
+                out.write(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%s,%d,%d,%s,%s,%s,%s,NO",
+                        bar.open(), bar.high(), bar.low(), bar.close(), bar.volume(), bar.wap(), bar.count(),
+                        Instant.ofEpochSecond(epochSeconds(bar.time())).atZone(ZoneOffset.UTC).getMinute(),
+                        tesla[0], tesla[1], tesla[2], decision));
+                out.newLine();
+            }
+        }
+    }
+
+    /** tesla3, tesla6 and tesla9 of the 12 bars ending at last, as NewStrategy.executionDeterminer computes them. */
+    static double[] teslas(List<Bar> bars, int last) {
+        double avgCurOpnPrvWAP = bars.get(last).wap() * bars.get(last).close();
+        double[] tesla = new double[3];
+        double[] weight = {0.3, 0.6, 0.9};
+
+        for (int group = 0; group < 3; group++) {
+            double sum = 0;
+            for (int i = 0; i < 4; i++) {
+                sum += avgCurOpnPrvWAP - bars.get(last - BARS_PER_ROW + 1 + group * 4 + i).wap();
+            }
+            tesla[group] = weight[group] * sum;
+        }
+        return tesla;
+    }
+
+    /** Longest duration TWS serves in one request for the bar size, in seconds. */
+    static long chunkSeconds(String barSize) {
+        switch (barSize) {
+            case "1 secs":   return 1800;
+            case "5 secs":   return 3600;
+            case "10 secs":
+            case "15 secs":  return 14400;
+            case "30 secs":  return 28800;
+            case "1 min":    return 86400;
+            case "2 mins":   return 2 * 86400;
+            case "3 mins":
+            case "5 mins":   return 7 * 86400;
+            case "10 mins":
+            case "15 mins":  return 14 * 86400;
+            case "20 mins":
+            case "30 mins":  return 28 * 86400;
+            case "1 hour":
+            case "2 hours":
+            case "3 hours":
+            case "4 hours":
+            case "8 hours":  return 30 * 86400;
+            case "1 day":    return 365 * 86400;
+            default:         throw new IllegalArgumentException("unsupported bar size: " + barSize);
+        }
+    }
+
+    /** Bar time as sent with formatDate 2: epoch seconds for intraday bars, yyyyMMdd for daily ones. */
+    private static long epochSeconds(String time) {
+        return time.length() == 8 ? LocalDate.parse(time, DAY).atStartOfDay(ZoneOffset.UTC).toEpochSecond() : Long.parseLong(time);
+    }
+
+    @Override
+    public void close() {
+        scheduler.close();
+        retries.shutdownNow();
+        client.eDisconnect();
+    }
+
+    // ---------------------------------------- EWrapper ----------------------------------------
+
+    @Override
+    public void nextValidId(int orderId) {
+        ready.complete(orderId);
+    }
+
+    @Override
+    public void headTimestamp(int reqId, String headTimestamp) {
+        CompletableFuture<Long> head = heads.get(reqId);
+        if (head != null) {
+            head.complete(epochSeconds(headTimestamp));
+        }
+    }
+
+    @Override
+    public void historicalData(int reqId, Bar bar) {
+        Chunk chunk = chunks.get(reqId);
+        if (chunk != null) {
+            chunk.job.bars.put(epochSeconds(bar.time()), bar);
+        }
+    }
+
+    @Override
+    public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
+        Chunk chunk = chunks.remove(reqId);
+        if (chunk != null) {
+            finish(chunk, null);
+        }
+    }
+
+    @Override
+    public void error(int id, int errorCode, String errorMsg) {
+        CompletableFuture<Long> head = heads.get(id);
+        if (head != null) {
+            head.completeExceptionally(new IOException(errorCode + " " + errorMsg));
+            return;
+        }
+
+        Chunk chunk = chunks.remove(id);
+        if (chunk == null) {
+            if (id == -1 && errorCode >= 2100 && errorCode < 2200) {
+                return; // data farm status
+            }
+            LoggingUtils.format("Error. Id: {0}, Code: {1}, Msg: {2}", id, errorCode, errorMsg);
+            return;
+        }
+
+        if (errorCode == PACING_VIOLATION && errorMsg.toLowerCase(Locale.ROOT).contains("pacing")) {
+            retry(chunk, errorMsg);
+        }
+        else if (errorCode == PACING_VIOLATION || errorCode == NO_DATA) {
+            finish(chunk, null); // no data in this chunk
+        }
+        else {
+            finish(chunk, new IOException(chunk.job.contract.symbol() + ": " + errorCode + " " + errorMsg));
+        }
+    }
+
+    @Override
+    public void error(Exception e) {
+        LoggingUtils.print("Exception: " + e.getMessage());
+    }
+}
@@ -3,41 +3,81 @@
 
 package com.ib.client;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutput;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 /** This class is used to build messages so the entire message can be
- *  sent to the socket in a single write. */
+ *  sent to the socket in a single write. Numbers and strings are encoded
+ *  straight into a growable byte array, and the same instance can be
+ *  reset and reused for the next message. */
 class Builder implements ObjectOutput {
-	private static final char SEP = 0;
+	private static final byte SEP = 0;
 	private static final byte[] EMPTY_LENGTH_HEADER = new byte[ 4 ];
+	private static final byte[] NULL_STRING = { 'n', 'u', 'l', 'l' };
+	private static final byte[] DIGIT_PAIRS = new byte[ 200 ];
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9 };
+	private static final double MAX_PLAIN_DOUBLE = 1e15; // larger values go through String.valueOf
+	private static final long MAX_EXACT_SCALED = 1L << 53; // scaled digits below this are exact as a double
 
-	private final ByteBuffer m_sb;
+	static {
+	    for (int i = 0; i < 100; i++) {
+	        DIGIT_PAIRS[2 * i] = (byte)('0' + i / 10);
+	        DIGIT_PAIRS[2 * i + 1] = (byte)('0' + i % 10);
+	    }
+	}
+
+	private byte[] m_buf;
+	private int m_count;
 
 	public Builder( int size ) {
-	    m_sb = new ByteBuffer( size );
+	    m_buf = new byte[ size ];
+	}
+
+	/** Discards the content so the buffer can be reused for the next message. */
+	public void reset() {
+	    m_count = 0;
+	}
+
+	public int size() {
+	    return m_count;
 	}
 
 	public void send(int a) throws EClientException {
-        send( String.valueOf(a) );
+	    appendLong( (long)a );
+	}
+
+	public void send(long a) throws EClientException {
+	    appendLong( a );
 	}
 
 	public void sendMax(int a) throws EClientException {
-		send( a == Integer.MAX_VALUE ? "" : String.valueOf( a) );
+		if (a == Integer.MAX_VALUE) {
+		    append( SEP );
+		}
+		else {
+		    send( a );
+		}
 	}
 
 	public void send(double a) throws EClientException {
-        send( String.valueOf( a) );
+	    if (!appendPlainDouble( a )) {
+	        send( String.valueOf( a ) );
+	        return;
+	    }
+	    append( SEP );
 	}
 
 	public void sendMax(double a) throws EClientException {
-		send( a == Double.MAX_VALUE ? "" : String.valueOf( a) );
+		if (a == Double.MAX_VALUE) {
+		    append( SEP );
+		}
+		else {
+		    send( a );
+		}
 	}
 
 	public void send(Boolean a) throws EClientException {
@@ -49,28 +89,32 @@ class Builder implements ObjectOutput {
 	}
 
 	public void send( String a) throws EClientException {
-		if (a != null && !isAsciiPrintable(a)) {
+		if (a != null && !appendAscii( a )) {
 			throw new EClientException(EClientErrors.INVALID_SYMBOL, a);
 		}
-		
-		if (a != null) {
-		    byte[] buffer = a.getBytes(StandardCharsets.UTF_8);
-		    m_sb.write( buffer, 0, buffer.length );
-		}
-		m_sb.write( SEP);
+		append( SEP );
 	}
 
 	public void send( byte[] bytes ) {
         if ( bytes != null ) {
-            m_sb.write(  bytes, 0, bytes.length );
+            append(  bytes, 0, bytes.length );
         }
     }
 	
+	/** Sends the options as one "tag=value;tag=value;" field. */
 	public void send(List<TagValue> miscOptions) throws EClientException {
-        String miscOptionsString = Optional.ofNullable(miscOptions).orElse(new ArrayList<TagValue>()).stream().
-                map(option -> option.m_tag + "=" + option.m_value + ";").reduce("", (sum, option) -> sum + option);
+	    if (miscOptions != null) {
+	        int fieldStart = m_count;
 
-        send(miscOptionsString);
+	        for (TagValue option : miscOptions) {
+	            if (!appendAsciiOrNull( option.m_tag ) || !appendAscii( "=" )
+	                    || !appendAsciiOrNull( option.m_value ) || !appendAscii( ";" )) {
+	                m_count = fieldStart;
+	                send( concat( miscOptions ) ); // throws with the full text
+	            }
+	        }
+	    }
+	    append( SEP );
 	}
 	
 	public void send(Contract contract) throws EClientException {
@@ -90,17 +134,22 @@ class Builder implements ObjectOutput {
 	}
 
     public int allocateLengthHeader() {
-        int lengthHeaderPosition = m_sb.size();
-        m_sb.write( EMPTY_LENGTH_HEADER, 0, EMPTY_LENGTH_HEADER.length );
+        int lengthHeaderPosition = m_count;
+        append( EMPTY_LENGTH_HEADER, 0, EMPTY_LENGTH_HEADER.length );
         return lengthHeaderPosition;
     }
 
     public void updateLength( int lengthHeaderPosition ) {
-        m_sb.updateLength( lengthHeaderPosition );
+        int len = m_count - EMPTY_LENGTH_HEADER.length - lengthHeaderPosition;
+        intToBytes(len, m_buf, lengthHeaderPosition);
     }
 
     public void writeTo( DataOutputStream dos ) throws IOException {
-       m_sb.writeTo( dos );
+       dos.write( m_buf, 0, m_count );
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf( m_buf, m_count );
     }
 
     // b[] must be at least b[position+4]
@@ -110,46 +159,145 @@ class Builder implements ObjectOutput {
         b[position+2] = (byte)(0xff & (val >> 8));
         b[position+3] = (byte)(0xff & val);
     }
-    
-    private static boolean isAsciiPrintable(String str) {
-        if (str == null) {
+
+    private void appendLong(long a) {
+        if (a < 0) {
+            if (a == Long.MIN_VALUE) {
+                send( Long.toString( a ).getBytes( StandardCharsets.US_ASCII ) );
+                append( SEP );
+                return;
+            }
+            append( (byte)'-' );
+            a = -a;
+        }
+        appendDigits( a, 0 );
+        append( SEP );
+    }
+
+    /** Writes the non-negative value in decimal, with a '.' before the last fractionDigits digits. */
+    private void appendDigits(long value, int fractionDigits) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        if (digits <= fractionDigits) {
+            digits = fractionDigits + 1; // leading "0."
+        }
+
+        int length = digits + (fractionDigits > 0 ? 1 : 0);
+        ensureCapacity( length );
+
+        int pos = m_count + length;
+        int written = 0;
+        while (pos > m_count) {
+            if (fractionDigits > 0 && written == fractionDigits) {
+                m_buf[--pos] = '.';
+                fractionDigits = 0;
+                continue;
+            }
+            if (value >= 10 && (fractionDigits == 0 || fractionDigits - written >= 2)) {
+                int pair = (int)(value % 100) * 2;
+                value /= 100;
+                m_buf[--pos] = DIGIT_PAIRS[pair + 1];
+                m_buf[--pos] = DIGIT_PAIRS[pair];
+                written += 2;
+            }
+            else {
+                m_buf[--pos] = (byte)('0' + value % 10);
+                value /= 10;
+                written++;
+            }
+        }
+        m_count += length;
+    }
+
+    /** Writes doubles with up to nine fraction digits as a plain decimal that parses back to the same value;
+     *  returns false for anything else (large, tiny or non-finite values), which then goes through String.valueOf. */
+    private boolean appendPlainDouble(double a) {
+        double abs = Math.abs( a );
+
+        if (!(abs < MAX_PLAIN_DOUBLE)) {
             return false;
         }
-        for (int i = 0; i < str.length(); i++) {
-            if (isAsciiPrintable(str.charAt(i)) == false) {
+
+        if (abs == (long)abs) {
+            if (Double.doubleToRawLongBits( a ) < 0) {
+                append( (byte)'-' );
+            }
+            appendDigits( (long)abs, 0 );
+            append( (byte)'.' );
+            append( (byte)'0' );
+            return true;
+        }
+
+        for (int fractionDigits = 1; fractionDigits < POW10.length; fractionDigits++) {
+            long scaled = Math.round( abs * POW10[fractionDigits] );
+
+            // while scaled is exact, scaled / 10^k is what parsing its digits gives; beyond, it may be an ulp off
+            if (scaled >= MAX_EXACT_SCALED) {
+                return false;
+            }
+            if (scaled / POW10[fractionDigits] == abs) {
+                if (Double.doubleToRawLongBits( a ) < 0) {
+                    append( (byte)'-' );
+                }
+                appendDigits( scaled, fractionDigits );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Appends the string as ASCII in the same pass that checks it is printable; returns false, with nothing appended, if it is not. */
+    private boolean appendAscii(String str) {
+        int length = str.length();
+        ensureCapacity( length );
+
+        for (int i = 0; i < length; i++) {
+            char ch = str.charAt(i);
+            if (!isAsciiPrintable(ch)) {
                 return false;
             }
+            m_buf[m_count + i] = (byte)ch;
         }
+        m_count += length;
         return true;
     }
 
+    private boolean appendAsciiOrNull(String str) {
+        if (str == null) {
+            append( NULL_STRING, 0, NULL_STRING.length );
+            return true;
+        }
+        return appendAscii( str );
+    }
+
+    private static String concat(List<TagValue> options) {
+        StringBuilder sb = new StringBuilder();
+        for (TagValue option : options) {
+            sb.append( option.m_tag ).append( '=' ).append( option.m_value ).append( ';' );
+        }
+        return sb.toString();
+    }
+
     private static boolean isAsciiPrintable(char ch) {
         return ch >= 32 && ch < 127;
     }
 
-    /** inner class: ByteBuffer - storage for bytes and direct access to buffer. */
-    private static class ByteBuffer extends ByteArrayOutputStream {
-        private final int paddingSize; // 1 disables padding, 4 is normal if padding is used
-
-        ByteBuffer(int capacity) {
-            super( capacity );
-            paddingSize = 1;
-        }
+    private void append(byte b) {
+        ensureCapacity( 1 );
+        m_buf[m_count++] = b;
+    }
 
-        void updateLength(int lengthHeaderPosition) {
-            int len = this.count - EMPTY_LENGTH_HEADER.length - lengthHeaderPosition;
-            if ( paddingSize > 1 ) {
-                int padding = paddingSize - len%paddingSize;
-                if ( padding < paddingSize ) {
-                    this.write( EMPTY_LENGTH_HEADER, 0, paddingSize ); // extra padding at the end
-                    len = this.count - EMPTY_LENGTH_HEADER.length - lengthHeaderPosition;
-                }
-            }
-            intToBytes(len, this.buf, lengthHeaderPosition);
-        }
+    private void append(byte[] bytes, int off, int len) {
+        ensureCapacity( len );
+        System.arraycopy( bytes, off, m_buf, m_count, len );
+        m_count += len;
+    }
 
-        void writeTo(DataOutputStream out) throws IOException {
-            out.write( this.buf, 0, this.count );
+    private void ensureCapacity(int extra) {
+        if (m_count + extra > m_buf.length) {
+            m_buf = Arrays.copyOf( m_buf, Math.max( m_buf.length * 2, m_count + extra ) );
         }
     }
 
@@ -176,9 +324,7 @@ class Builder implements ObjectOutput {
 	@Override
 	public void writeUTF(String arg0) throws IOException { send(arg0); }
 	@Override
-	public void close() throws IOException {
-        m_sb.close();
-	}
+	public void close() throws IOException { }
 	@Override
 	public void flush() throws IOException { }
 	@Override
@@ -0,0 +1,176 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/** Asynchronous send pipeline. Callers only enqueue the already encoded message; a dedicated
+ *  writer thread drains the queue and hands everything that has accumulated to the underlying
+ *  transport as one batch, so bursts of requests are coalesced into a single write. The writer
+ *  flushes whenever it is idle: it never holds a message back waiting for more to arrive.
+ *  close() writes what is queued before closing the underlying transport, so a cancel followed
+ *  by eDisconnect still reaches TWS. */
+public class EAsyncTransport implements ETransport {
+    private static final int MAX_BATCH = 256;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final PendingMsg STOP = new PendingMsg(null);    // queued last by close()
+
+    private final ETransport m_transport;
+    private final Consumer<IOException> m_onFailure;
+    private final BlockingQueue<PendingMsg> m_queue = new LinkedBlockingQueue<>();
+    private final ThreadLocal<CompletableFuture<Void>> m_lastSend = new ThreadLocal<>();
+    private final Thread m_writer;
+    private final Object m_lock = new Object();     // orders sendAsync against close, so nothing is queued behind STOP
+    private volatile boolean m_closed = false;      // set under m_lock
+
+    private static class PendingMsg {
+        final EMessage m_msg;
+        final CompletableFuture<Void> m_future = new CompletableFuture<>();
+
+        PendingMsg(EMessage msg) {
+            m_msg = msg;
+        }
+    }
+
+    /**
+     * @param transport the transport that performs the writes
+     * @param onFailure called once, on the writer thread, when a write fails before close(); the pipeline is closed by then
+     */
+    public EAsyncTransport(ETransport transport, Consumer<IOException> onFailure) {
+        this(transport, onFailure, false);
+    }
+
+    /**
+     * @param virtualWriter run the writer on a virtual thread where the JDK has them, see EThreads
+     */
+    public EAsyncTransport(ETransport transport, Consumer<IOException> onFailure, boolean virtualWriter) {
+        m_transport = transport;
+        m_onFailure = onFailure;
+        m_writer = EThreads.newThread("EClient writer", virtualWriter, this::writeLoop);
+        if (!m_writer.isDaemon()) {
+            m_writer.setDaemon(true);
+        }
+        m_writer.start();
+    }
+
+    @Override
+    public void send(EMessage msg) throws IOException {
+        m_lastSend.set(sendAsync(msg));
+    }
+
+    /** Queues msg and returns a future that completes once it has been written, or exceptionally if the write fails. */
+    public CompletableFuture<Void> sendAsync(EMessage msg) throws IOException {
+        PendingMsg pending = new PendingMsg(msg);
+
+        synchronized (m_lock) {
+            if (m_closed) {
+                throw new IOException("transport is closed");
+            }
+            m_queue.add(pending);
+        }
+        return pending.m_future;
+    }
+
+    /** Completion of the last message sent by the calling thread, e.g. right after an EClient request method returns. */
+    public CompletableFuture<Void> lastSend() {
+        CompletableFuture<Void> future = m_lastSend.get();
+        return future != null ? future : CompletableFuture.completedFuture(null);
+    }
+
+    /** Messages queued but not yet written. */
+    public int pending() {
+        return m_queue.size();
+    }
+
+    private void writeLoop() {
+        List<PendingMsg> batch = new ArrayList<>();
+        List<EMessage> msgs = new ArrayList<>();
+
+        try {
+            boolean stopped = false;
+
+            while (!stopped) {
+                batch.add(m_queue.take());
+                m_queue.drainTo(batch, MAX_BATCH - 1);
+
+                int stop = batch.indexOf(STOP);
+                if (stop >= 0) {
+                    batch.subList(stop, batch.size()).clear();  // STOP is the last message ever queued
+                    stopped = true;
+                }
+
+                for (PendingMsg pending : batch) {
+                    msgs.add(pending.m_msg);
+                }
+
+                if (!msgs.isEmpty()) {
+                    m_transport.send(msgs);
+                }
+
+                for (PendingMsg pending : batch) {
+                    pending.m_future.complete(null);
+                }
+                batch.clear();
+                msgs.clear();
+            }
+        }
+        catch (InterruptedException e) {
+            // close() gave up waiting
+        }
+        catch (IOException e) {
+            boolean closing;
+
+            synchronized (m_lock) {
+                closing = m_closed;
+                m_closed = true;
+            }
+            fail(batch, e);
+            if (!closing) {
+                m_onFailure.accept(e);  // not while close() waits for this thread, whose caller may hold the client's lock
+            }
+        }
+
+        // m_closed is set by now, so this drain sees everything that will ever be queued
+        fail(batch, new IOException("transport is closed"));
+    }
+
+    private void fail(List<PendingMsg> batch, IOException e) {
+        m_queue.drainTo(batch);
+
+        for (PendingMsg pending : batch) {
+            pending.m_future.completeExceptionally(e);
+        }
+        batch.clear();
+    }
+
+    /** Writes the queued messages, waiting up to five seconds for them, then closes the transport;
+     *  messages not written by then fail. */
+    @Override
+    public void close() throws IOException {
+        synchronized (m_lock) {
+            if (!m_closed) {
+                m_closed = true;
+                m_queue.add(STOP);
+            }
+        }
+
+        if (Thread.currentThread() != m_writer) {
+            try {
+                m_writer.join(CLOSE_TIMEOUT_MILLIS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            m_writer.interrupt();
+        }
+
+        m_transport.close();
+    }
+}
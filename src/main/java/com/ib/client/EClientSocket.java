@@ -6,7 +6,10 @@ package com.ib.client;
 import java.io.DataInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
 
 public class EClientSocket extends EClient implements EClientMsgSink  {
 
@@ -15,8 +18,12 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
     private boolean m_allowRedirect;
     protected DataInputStream m_dis;
 	private boolean m_asyncEConnect = false;
+	private boolean m_useNioTransport = false;
+	private boolean m_asyncSend = false;
+	private boolean m_useVirtualThreads = false;
 	private boolean m_connected = false;
 	private Socket m_socket;
+	private ENioSocket m_nioSocket;
 		
 	public void setAsyncEConnect(boolean asyncEConnect) {
 		this.m_asyncEConnect = asyncEConnect;
@@ -26,13 +33,63 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
 		return m_asyncEConnect;
 	}
 
+	/** When set before eConnect, the connection uses a SocketChannel with a chunked frame reader (see ENioSocket). */
+	public void setUseNioTransport(boolean useNioTransport) {
+		this.m_useNioTransport = useNioTransport;
+	}
+
+	public boolean isUseNioTransport() {
+		return m_useNioTransport;
+	}
+
+	/** When set before eConnect, request methods only encode and queue their message; see EAsyncTransport. */
+	public void setAsyncSend(boolean asyncSend) {
+		this.m_asyncSend = asyncSend;
+	}
+
+	public boolean isAsyncSend() {
+		return m_asyncSend;
+	}
+
+	/** When set before eConnect, requests are written by the async send pipeline from a virtual thread
+	 *  (see EThreads), so callers on virtual threads never block in a socket write while holding the
+	 *  client's monitor and pinning their carrier thread. Implies setAsyncSend(true). */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.m_useVirtualThreads = useVirtualThreads;
+	}
+
+	public boolean isUseVirtualThreads() {
+		return m_useVirtualThreads;
+	}
+
+	/** In async send mode, completes when the last request made by the calling thread has been written
+	 *  and fails if writing it failed; otherwise the request was written synchronously and this is already done. */
+	public CompletableFuture<Void> lastSend() {
+		ETransport transport = m_socketTransport;
+		return transport instanceof EAsyncTransport ? ((EAsyncTransport)transport).lastSend() : CompletableFuture.completedFuture(null);
+	}
+
+	private ETransport wrapTransport(ETransport transport) {
+		return m_asyncSend || m_useVirtualThreads ? new EAsyncTransport(transport, this::asyncSendFailed, m_useVirtualThreads) : transport;
+	}
+
+	private void asyncSendFailed(IOException e) {
+		error(EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND, e.toString());
+		close();
+	}
+
 	public EClientSocket(EWrapper eWrapper, EReaderSignal signal) {
 		super(eWrapper, signal);
 	}
 
+	// Each request is encoded completely by its calling thread before closeAndSend copies it out,
+	// so one buffer per thread can be reset and reused instead of allocating one per request.
+	private static final ThreadLocal<Builder> BUFFERS = ThreadLocal.withInitial(() -> new Builder( 1024 ));
+
 	@Override
 	protected Builder prepareBuffer() {
-        Builder buf = new Builder( 1024 );
+        Builder buf = BUFFERS.get();
+        buf.reset();
         if( m_useV100Plus ) {
             buf.allocateLengthHeader();
         }
@@ -52,11 +109,25 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
 
 	protected synchronized void eConnect(Socket socket) throws IOException {
 	    // create io streams
-	    m_socketTransport = new ESocket(socket);
+	    m_socketTransport = wrapTransport(new ESocket(socket));
+	    m_nioSocket = null;
 	    m_dis = new DataInputStream(socket.getInputStream());
 	    m_defaultPort = socket.getPort();
 	    m_socket = socket;
 	
+	    startConnect();
+	}
+
+	protected synchronized void eConnect(SocketChannel channel) throws IOException {
+	    m_nioSocket = new ENioSocket(channel);
+	    m_socketTransport = wrapTransport(m_nioSocket);
+	    m_defaultPort = channel.socket().getPort();
+	    m_socket = channel.socket();
+
+	    startConnect();
+	}
+
+	private void startConnect() throws IOException {
 	    sendConnectRequest();
 	
 	    // start reader thread
@@ -95,8 +166,7 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
 	        return;
 	    }
 	    try{
-	        Socket socket = new Socket( m_host, port);
-	        eConnect(socket);
+	        openConnection(m_host, port);
 	    }
 	    catch( Exception e) {
 	    	eDisconnect();
@@ -185,7 +255,16 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
 	        System.out.println( "Warning: redirect port is invalid, using default port");
 	        newPort = defaultPort;
 	    }
-	    eConnect( new Socket( m_host, newPort ) );
+	    openConnection( m_host, newPort );
+	}
+
+	private void openConnection( String host, int port ) throws IOException {
+	    if (m_useNioTransport) {
+	        eConnect( SocketChannel.open( new InetSocketAddress( host, port ) ) );
+	    }
+	    else {
+	        eConnect( new Socket( host, port ) );
+	    }
 	}
 
 	@Override
@@ -210,6 +289,7 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
 	
 	    FilterInputStream dis = m_dis;
 	    m_dis = null;
+	    m_nioSocket = null;
 	    if (m_socketTransport != null) {
 			try {
 				m_socketTransport.close();
@@ -227,11 +307,24 @@ public class EClientSocket extends EClient implements EClientMsgSink  {
 	}
 
 	public int read(byte[] buf, int off, int len) throws IOException {
-		return m_dis.read(buf, off, len);
+		ENioSocket nioSocket = m_nioSocket;
+		return nioSocket != null ? nioSocket.read(buf, off, len) : m_dis.read(buf, off, len);
 	}
 
 	public int readInt() throws IOException {
-		return m_dis.readInt();
+		ENioSocket nioSocket = m_nioSocket;
+		return nioSocket != null ? nioSocket.readInt() : m_dis.readInt();
+	}
+
+	/** Whether the current connection was made over a SocketChannel, whatever isUseNioTransport() says now. */
+	boolean isNioConnection() {
+		return m_nioSocket != null;
+	}
+
+	/** Next V100 frame from the NIO transport, or null when the connection uses the stream transport. */
+	protected EMessage readFrame() throws IOException {
+		ENioSocket nioSocket = m_nioSocket;
+		return nioSocket != null ? nioSocket.readFrame() : null;
 	}
 
 	@Override
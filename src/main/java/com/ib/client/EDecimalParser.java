@@ -0,0 +1,156 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.nio.charset.StandardCharsets;
+
+/** Parses the decimal text TWS sends for prices and sizes straight from the message bytes:
+ *  an optional sign, integer digits, an optional fraction and an optional exponent. Results are
+ *  correctly rounded. Values whose significant digits fit in 53 bits and whose decimal exponent
+ *  is within 22 of zero are computed with one exact multiplication or division; anything else
+ *  (long mantissas, large exponents, "Infinity", malformed text) goes to Double.parseDouble. */
+final class EDecimalParser {
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /** TWS's text for Double.MAX_VALUE, the "unset" value of many fields. */
+    private static final byte[] MAX_VALUE_TEXT = String.valueOf(Double.MAX_VALUE).getBytes(StandardCharsets.ISO_8859_1);
+
+    private EDecimalParser() {
+    }
+
+    /** Parses buf[from, to); an empty field is 0. */
+    static double parse(byte[] buf, int from, int to) {
+        return from == to ? 0 : parseNonEmpty(buf, from, to);
+    }
+
+    /** Parses buf[from, to); an empty field is Double.MAX_VALUE, the wire's "not set". */
+    static double parseMax(byte[] buf, int from, int to) {
+        return from == to ? Double.MAX_VALUE : parseNonEmpty(buf, from, to);
+    }
+
+    private static double parseNonEmpty(byte[] buf, int from, int to) {
+        int i = from;
+        boolean negative = false;
+
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;          // significant digits, leading zeros excluded
+        int anyDigits = 0;
+        int fractionDigits = -1; // -1 until the decimal point
+
+        for (; i < to; i++) {
+            byte b = buf[i];
+
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+
+            int d = b - '0';
+
+            if (d < 0 || d > 9) {
+                break;
+            }
+
+            anyDigits++;
+
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+
+            if (mantissa == 0 && d == 0) {
+                continue;
+            }
+
+            if (++digits > 18) {
+                return fallback(buf, from, to);
+            }
+            mantissa = mantissa * 10 + d;
+        }
+
+        if (anyDigits == 0) {
+            return fallback(buf, from, to);
+        }
+
+        int exponent = 0;
+
+        if (i < to) {
+            if (buf[i] != 'e' && buf[i] != 'E') {
+                return fallback(buf, from, to);
+            }
+
+            if (isMaxValue(buf, from, to)) {
+                return Double.MAX_VALUE;
+            }
+
+            i++;
+            boolean negativeExponent = false;
+
+            if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+                negativeExponent = buf[i] == '-';
+                i++;
+            }
+
+            if (i == to || to - i > 3) {
+                return fallback(buf, from, to);
+            }
+
+            for (; i < to; i++) {
+                int d = buf[i] - '0';
+
+                if (d < 0 || d > 9) {
+                    return fallback(buf, from, to);
+                }
+                exponent = exponent * 10 + d;
+            }
+
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+
+        if (fractionDigits > 0) {
+            exponent -= fractionDigits;
+        }
+
+        double value;
+
+        if (mantissa == 0) {
+            value = 0;
+        }
+        else if (mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return fallback(buf, from, to);
+        }
+        else {
+            // both operands are exact doubles, so the single rounding of * or / is the correct one
+            value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isMaxValue(byte[] buf, int from, int to) {
+        if (to - from != MAX_VALUE_TEXT.length) {
+            return false;
+        }
+
+        for (int i = 0; i < MAX_VALUE_TEXT.length; i++) {
+            if (buf[from + i] != MAX_VALUE_TEXT[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The JDK parser, which also produces the NumberFormatException for malformed text. */
+    private static double fallback(byte[] buf, int from, int to) {
+        return Double.parseDouble(new String(buf, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+}
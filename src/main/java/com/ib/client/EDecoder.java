@@ -4,99 +4,113 @@
 package com.ib.client;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
 import java.util.Map.Entry;
 
-class EDecoder implements ObjectInput {
-    // incoming msg id's
-    private static final int END_CONN           = -1;
-    private static final int TICK_PRICE		= 1;
-    private static final int TICK_SIZE		= 2;
-    private static final int ORDER_STATUS	= 3;
-    private static final int ERR_MSG		= 4;
-    private static final int OPEN_ORDER         = 5;
-    private static final int ACCT_VALUE         = 6;
-    private static final int PORTFOLIO_VALUE    = 7;
-    private static final int ACCT_UPDATE_TIME   = 8;
-    private static final int NEXT_VALID_ID      = 9;
-    private static final int CONTRACT_DATA      = 10;
-    private static final int EXECUTION_DATA     = 11;
-    private static final int MARKET_DEPTH     	= 12;
-    private static final int MARKET_DEPTH_L2    = 13;
-    private static final int NEWS_BULLETINS    	= 14;
-    private static final int MANAGED_ACCTS    	= 15;
-    private static final int RECEIVE_FA    	    = 16;
-    private static final int HISTORICAL_DATA    = 17;
-    private static final int BOND_CONTRACT_DATA = 18;
-    private static final int SCANNER_PARAMETERS = 19;
-    private static final int SCANNER_DATA       = 20;
-    private static final int TICK_OPTION_COMPUTATION = 21;
-    private static final int TICK_GENERIC = 45;
-    private static final int TICK_STRING = 46;
-    private static final int TICK_EFP = 47;
-    private static final int CURRENT_TIME = 49;
-    private static final int REAL_TIME_BARS = 50;
-    private static final int FUNDAMENTAL_DATA = 51;
-    private static final int CONTRACT_DATA_END = 52;
-    private static final int OPEN_ORDER_END = 53;
-    private static final int ACCT_DOWNLOAD_END = 54;
-    private static final int EXECUTION_DATA_END = 55;
-    private static final int DELTA_NEUTRAL_VALIDATION = 56;
-    private static final int TICK_SNAPSHOT_END = 57;
-    private static final int MARKET_DATA_TYPE = 58;
-    private static final int COMMISSION_REPORT = 59;
-    private static final int POSITION = 61;
-    private static final int POSITION_END = 62;
-    private static final int ACCOUNT_SUMMARY = 63;
-    private static final int ACCOUNT_SUMMARY_END = 64;
-    private static final int VERIFY_MESSAGE_API = 65;
-    private static final int VERIFY_COMPLETED = 66;
-    private static final int DISPLAY_GROUP_LIST = 67;
-    private static final int DISPLAY_GROUP_UPDATED = 68;
-    private static final int VERIFY_AND_AUTH_MESSAGE_API = 69;
-    private static final int VERIFY_AND_AUTH_COMPLETED = 70;
-    private static final int POSITION_MULTI = 71;
-    private static final int POSITION_MULTI_END = 72;
-    private static final int ACCOUNT_UPDATE_MULTI = 73;
-    private static final int ACCOUNT_UPDATE_MULTI_END = 74;
-    private static final int SECURITY_DEFINITION_OPTION_PARAMETER = 75;
-    private static final int SECURITY_DEFINITION_OPTION_PARAMETER_END = 76;
-    private static final int SOFT_DOLLAR_TIERS = 77;
-    private static final int FAMILY_CODES = 78;
-    private static final int SYMBOL_SAMPLES = 79;
-    private static final int MKT_DEPTH_EXCHANGES = 80;
-    private static final int TICK_REQ_PARAMS = 81;
-    private static final int SMART_COMPONENTS = 82;
-    private static final int NEWS_ARTICLE = 83;
-    private static final int TICK_NEWS = 84;
-    private static final int NEWS_PROVIDERS = 85;
-    private static final int HISTORICAL_NEWS = 86;
-    private static final int HISTORICAL_NEWS_END = 87;
-    private static final int HEAD_TIMESTAMP = 88;
-    private static final int HISTOGRAM_DATA = 89;
-    private static final int HISTORICAL_DATA_UPDATE = 90;
-    private static final int REROUTE_MKT_DATA_REQ = 91;
-    private static final int REROUTE_MKT_DEPTH_REQ = 92;
-    private static final int MARKET_RULE = 93;
-    private static final int PNL = 94;
-    private static final int PNL_SINGLE = 95;
-    private static final int HISTORICAL_TICKS = 96;
-    private static final int HISTORICAL_TICKS_BID_ASK = 97;
-    private static final int HISTORICAL_TICKS_LAST = 98;
-    private static final int TICK_BY_TICK = 99;
-    private static final int ORDER_BOUND = 100;
-    private static final int COMPLETED_ORDER = 101;
-    private static final int COMPLETED_ORDERS_END = 102;
-    private static final int REPLACE_FA_END = 103;
+import static com.ib.client.IncomingMessage.*;
 
+class EDecoder implements ObjectInput {
     static final int MAX_MSG_LENGTH = 0xffffff;
     private static final int REDIRECT_MSG_ID = -1;
 
+    /** Built-in decoder of one message type, called once the message id has been read. */
+    @FunctionalInterface
+    private interface MsgProcessor {
+    	void process(EDecoder decoder) throws IOException;
+    }
+
+    private static final MsgProcessor[] PROCESSORS = new MsgProcessor[MSG_ID_LIMIT];
+
+    static {
+    	PROCESSORS[TICK_PRICE] = EDecoder::processTickPriceMsg;
+    	PROCESSORS[TICK_SIZE] = EDecoder::processTickSizeMsg;
+    	PROCESSORS[POSITION] = EDecoder::processPositionMsg;
+    	PROCESSORS[POSITION_END] = EDecoder::processPositionEndMsg;
+    	PROCESSORS[ACCOUNT_SUMMARY] = EDecoder::processAccountSummaryMsg;
+    	PROCESSORS[ACCOUNT_SUMMARY_END] = EDecoder::processAccountSummaryEndMsg;
+    	PROCESSORS[TICK_OPTION_COMPUTATION] = EDecoder::processTickOptionComputationMsg;
+    	PROCESSORS[TICK_GENERIC] = EDecoder::processTickGenericMsg;
+    	PROCESSORS[TICK_STRING] = EDecoder::processTickStringMsg;
+    	PROCESSORS[TICK_EFP] = EDecoder::processTickEFPMsg;
+    	PROCESSORS[ORDER_STATUS] = EDecoder::processOrderStatusMsg;
+    	PROCESSORS[ACCT_VALUE] = EDecoder::processAcctValueMsg;
+    	PROCESSORS[PORTFOLIO_VALUE] = EDecoder::processPortfolioValueMsg;
+    	PROCESSORS[ACCT_UPDATE_TIME] = EDecoder::processAcctUpdateTimeMsg;
+    	PROCESSORS[ERR_MSG] = EDecoder::processErrMsgMsg;
+    	PROCESSORS[OPEN_ORDER] = EDecoder::processOpenOrderMsg;
+    	PROCESSORS[NEXT_VALID_ID] = EDecoder::processNextValidIdMsg;
+    	PROCESSORS[SCANNER_DATA] = EDecoder::processScannerDataMsg;
+    	PROCESSORS[CONTRACT_DATA] = EDecoder::processContractDataMsg;
+    	PROCESSORS[BOND_CONTRACT_DATA] = EDecoder::processBondContractDataMsg;
+    	PROCESSORS[EXECUTION_DATA] = EDecoder::processExecutionDataMsg;
+    	PROCESSORS[MARKET_DEPTH] = EDecoder::processMarketDepthMsg;
+    	PROCESSORS[MARKET_DEPTH_L2] = EDecoder::processMarketDepthL2Msg;
+    	PROCESSORS[NEWS_BULLETINS] = EDecoder::processNewsBulletinsMsg;
+    	PROCESSORS[MANAGED_ACCTS] = EDecoder::processManagedAcctsMsg;
+    	PROCESSORS[RECEIVE_FA] = EDecoder::processReceiveFaMsg;
+    	PROCESSORS[HISTORICAL_DATA] = EDecoder::processHistoricalDataMsg;
+    	PROCESSORS[SCANNER_PARAMETERS] = EDecoder::processScannerParametersMsg;
+    	PROCESSORS[CURRENT_TIME] = EDecoder::processCurrentTimeMsg;
+    	PROCESSORS[REAL_TIME_BARS] = EDecoder::processRealTimeBarsMsg;
+    	PROCESSORS[FUNDAMENTAL_DATA] = EDecoder::processFundamentalDataMsg;
+    	PROCESSORS[CONTRACT_DATA_END] = EDecoder::processContractDataEndMsg;
+    	PROCESSORS[OPEN_ORDER_END] = EDecoder::processOpenOrderEndMsg;
+    	PROCESSORS[ACCT_DOWNLOAD_END] = EDecoder::processAcctDownloadEndMsg;
+    	PROCESSORS[EXECUTION_DATA_END] = EDecoder::processExecutionDataEndMsg;
+    	PROCESSORS[DELTA_NEUTRAL_VALIDATION] = EDecoder::processDeltaNeutralValidationMsg;
+    	PROCESSORS[TICK_SNAPSHOT_END] = EDecoder::processTickSnapshotEndMsg;
+    	PROCESSORS[MARKET_DATA_TYPE] = EDecoder::processMarketDataTypeMsg;
+    	PROCESSORS[COMMISSION_REPORT] = EDecoder::processCommissionReportMsg;
+    	PROCESSORS[VERIFY_MESSAGE_API] = EDecoder::processVerifyMessageApiMsg;
+    	PROCESSORS[VERIFY_COMPLETED] = EDecoder::processVerifyCompletedMsg;
+    	PROCESSORS[DISPLAY_GROUP_LIST] = EDecoder::processDisplayGroupListMsg;
+    	PROCESSORS[DISPLAY_GROUP_UPDATED] = EDecoder::processDisplayGroupUpdatedMsg;
+    	PROCESSORS[VERIFY_AND_AUTH_MESSAGE_API] = EDecoder::processVerifyAndAuthMessageMsg;
+    	PROCESSORS[VERIFY_AND_AUTH_COMPLETED] = EDecoder::processVerifyAndAuthCompletedMsg;
+    	PROCESSORS[POSITION_MULTI] = EDecoder::processPositionMultiMsg;
+    	PROCESSORS[POSITION_MULTI_END] = EDecoder::processPositionMultiEndMsg;
+    	PROCESSORS[ACCOUNT_UPDATE_MULTI] = EDecoder::processAccountUpdateMultiMsg;
+    	PROCESSORS[ACCOUNT_UPDATE_MULTI_END] = EDecoder::processAccountUpdateMultiEndMsg;
+    	PROCESSORS[SECURITY_DEFINITION_OPTION_PARAMETER] = EDecoder::processSecurityDefinitionOptionalParameterMsg;
+    	PROCESSORS[SECURITY_DEFINITION_OPTION_PARAMETER_END] = EDecoder::processSecurityDefinitionOptionalParameterEndMsg;
+    	PROCESSORS[SOFT_DOLLAR_TIERS] = EDecoder::processSoftDollarTiersMsg;
+    	PROCESSORS[FAMILY_CODES] = EDecoder::processFamilyCodesMsg;
+    	PROCESSORS[SMART_COMPONENTS] = EDecoder::processSmartComponentsMsg;
+    	PROCESSORS[TICK_REQ_PARAMS] = EDecoder::processTickReqParamsMsg;
+    	PROCESSORS[SYMBOL_SAMPLES] = EDecoder::processSymbolSamplesMsg;
+    	PROCESSORS[MKT_DEPTH_EXCHANGES] = EDecoder::processMktDepthExchangesMsg;
+    	PROCESSORS[HEAD_TIMESTAMP] = EDecoder::processHeadTimestampMsg;
+    	PROCESSORS[TICK_NEWS] = EDecoder::processTickNewsMsg;
+    	PROCESSORS[NEWS_PROVIDERS] = EDecoder::processNewsProvidersMsg;
+    	PROCESSORS[NEWS_ARTICLE] = EDecoder::processNewsArticleMsg;
+    	PROCESSORS[HISTORICAL_NEWS] = EDecoder::processHistoricalNewsMsg;
+    	PROCESSORS[HISTORICAL_NEWS_END] = EDecoder::processHistoricalNewsEndMsg;
+    	PROCESSORS[HISTOGRAM_DATA] = EDecoder::processHistogramDataMsg;
+    	PROCESSORS[HISTORICAL_DATA_UPDATE] = EDecoder::processHistoricalDataUpdateMsg;
+    	PROCESSORS[REROUTE_MKT_DATA_REQ] = EDecoder::processRerouteMktDataReq;
+    	PROCESSORS[REROUTE_MKT_DEPTH_REQ] = EDecoder::processRerouteMktDepthReq;
+    	PROCESSORS[MARKET_RULE] = EDecoder::processMarketRuleMsg;
+    	PROCESSORS[PNL] = EDecoder::processPnLMsg;
+    	PROCESSORS[PNL_SINGLE] = EDecoder::processPnLSingleMsg;
+    	PROCESSORS[HISTORICAL_TICKS] = EDecoder::processHistoricalTicks;
+    	PROCESSORS[HISTORICAL_TICKS_BID_ASK] = EDecoder::processHistoricalTicksBidAsk;
+    	PROCESSORS[HISTORICAL_TICKS_LAST] = EDecoder::processHistoricalTicksLast;
+    	PROCESSORS[TICK_BY_TICK] = EDecoder::processTickByTickMsg;
+    	PROCESSORS[ORDER_BOUND] = EDecoder::processOrderBoundMsg;
+    	PROCESSORS[COMPLETED_ORDER] = EDecoder::processCompletedOrderMsg;
+    	PROCESSORS[COMPLETED_ORDERS_END] = EDecoder::processCompletedOrdersEndMsg;
+    	PROCESSORS[REPLACE_FA_END] = EDecoder::processReplaceFAEndMsg;
+    }
+
     private EClientMsgSink m_clientMsgSink;
     private EWrapper m_EWrapper;
+    private ETickWrapper m_tickWrapper; // m_EWrapper when it takes ticks as primitives, otherwise null
     private int m_serverVersion;
-	private IMessageReader m_messageReader;
+	private final FieldCursor m_messageReader = new FieldCursor();
+	private volatile EMessageMask m_mask;
+	private EMessageHandler[] m_handlers;
 
 	public EDecoder(int serverVersion, EWrapper callback) {
 		this(serverVersion, callback, null);
@@ -106,6 +120,25 @@ class EDecoder implements ObjectInput {
 		m_clientMsgSink = sink;
 		m_serverVersion = serverVersion;
 		m_EWrapper = callback;
+		m_tickWrapper = callback instanceof ETickWrapper ? (ETickWrapper) callback : null;
+	}
+
+	/** Messages rejected by mask are skipped without decoding their fields; null decodes everything.
+	 *  Only valid on a decoder that is given whole frames, such as the one behind EReader.processMsgs. */
+	void setMessageMask(EMessageMask mask) {
+		m_mask = mask;
+	}
+
+	/** Replaces the built-in decoding of msgId with handler, or restores it when handler is null. */
+	void setMessageHandler(int msgId, EMessageHandler handler) {
+		if (msgId < 0 || msgId >= MSG_ID_LIMIT) {
+			throw new IllegalArgumentException("message id out of range: " + msgId);
+		}
+
+		if (m_handlers == null) {
+			m_handlers = new EMessageHandler[MSG_ID_LIMIT];
+		}
+		m_handlers[msgId] = handler;
 	}
 	
     private void processFirstMsg() throws IOException {
@@ -139,15 +172,8 @@ class EDecoder implements ObjectInput {
 		m_EWrapper.connectAck();
     } 
     
-    private boolean readMessageToInternalBuf(InputStream dis) {
-  		m_messageReader = new PreV100MessageReader(dis);
-    	return true;
-    }
-    
     public int processMsg(EMessage msg) throws IOException {
-    	if (!readMessageToInternalBuf(msg.getStream())) {
-    		return 0;
-    	}
+    	m_messageReader.reset(msg.buf(), msg.offset(), msg.length());
     	
     	if (m_serverVersion == 0) {
     		processFirstMsg();
@@ -157,335 +183,108 @@ class EDecoder implements ObjectInput {
     	
     	int msgId = readInt();
 
-        switch( msgId) {
-            case END_CONN:
-                return 0;
-                
-            case TICK_PRICE:
-                processTickPriceMsg();
-                break;
-
-            case TICK_SIZE:
-                processTickSizeMsg();
-                break;
-
-            case POSITION:
-                processPositionMsg();
-                break;
-
-            case POSITION_END:
-                processPositionEndMsg();
-                break;
-
-            case ACCOUNT_SUMMARY:
-                processAccountSummaryMsg();
-                break;
-
-            case ACCOUNT_SUMMARY_END:
-                processAccountSummaryEndMsg();
-                break;
-
-            case TICK_OPTION_COMPUTATION:
-                processTickOptionComputationMsg();
-            	break;
-
-            case TICK_GENERIC:
-                processTickGenericMsg();
-                break;
-
-            case TICK_STRING:
-                processTickStringMsg();
-                break;
-
-            case TICK_EFP:
-                processTickEFPMsg();
-                break;
-
-            case ORDER_STATUS:
-                processOrderStatusMsg();
-                break;
-
-            case ACCT_VALUE:
-                processAcctValueMsg();
-                break;
-
-            case PORTFOLIO_VALUE:
-                processPortfolioValueMsg();
-                break;
-
-            case ACCT_UPDATE_TIME:
-                processAcctUpdateTimeMsg();
-                break;
-
-            case ERR_MSG:
-                processErrMsgMsg();
-                break;
-
-            case OPEN_ORDER:
-                processOpenOrderMsg();
-                break;
-
-            case NEXT_VALID_ID:
-                processNextValidIdMsg();
-                break;
-
-            case SCANNER_DATA:
-                processScannerDataMsg();
-                break;
-
-            case CONTRACT_DATA:
-                processContractDataMsg();
-                break;
-           
-            case BOND_CONTRACT_DATA:
-                processBondContractDataMsg();
-                break;
-            
-            case EXECUTION_DATA:
-                processExecutionDataMsg();
-                break;
-            
-            case MARKET_DEPTH:
-                processMarketDepthMsg();
-                break;
-            
-            case MARKET_DEPTH_L2:
-                processMarketDepthL2Msg();
-                break;
-            
-            case NEWS_BULLETINS:
-                processNewsBulletinsMsg();
-                break;
-            
-            case MANAGED_ACCTS:
-                processManagedAcctsMsg();
-                break;
-
-            case RECEIVE_FA:
-                processReceiveFaMsg();
-                break;
-            
-            case HISTORICAL_DATA:
-                processHistoricalDataMsg();
-                break;
-            
-            case SCANNER_PARAMETERS:
-                processScannerParametersMsg();
-                break;
-
-            case CURRENT_TIME:
-                processCurrentTimeMsg();
-                break;
-            
-            case REAL_TIME_BARS:
-                processRealTimeBarsMsg();
-                break;
-            
-            case FUNDAMENTAL_DATA:
-                processFundamentalDataMsg();
-                break;
-            
-            case CONTRACT_DATA_END:
-                processContractDataEndMsg();
-                break;
-            
-            case OPEN_ORDER_END:
-                processOpenOrderEndMsg();
-                break;
-            
-            case ACCT_DOWNLOAD_END:
-                processAcctDownloadEndMsg();
-                break;
-            
-            case EXECUTION_DATA_END:
-                processExecutionDataEndMsg();
-                break;
-            
-            case DELTA_NEUTRAL_VALIDATION:
-                processDeltaNeutralValidationMsg();
-                break;
-            
-            case TICK_SNAPSHOT_END:
-                processTickSnapshotEndMsg();
-                break;
-            
-            case MARKET_DATA_TYPE:
-                processMarketDataTypeMsg();
-                break;
-            
-            case COMMISSION_REPORT:
-                processCommissionReportMsg();
-                break;
-            
-            case VERIFY_MESSAGE_API:
-                processVerifyMessageApiMsg();
-                break;
-            
-            case VERIFY_COMPLETED:
-                processVerifyCompletedMsg();
-                break;
-            
-            case DISPLAY_GROUP_LIST:
-                processDisplayGroupListMsg();
-                break;
-            
-            case DISPLAY_GROUP_UPDATED:
-                processDisplayGroupUpdatedMsg();
-                break;
-            
-            case VERIFY_AND_AUTH_MESSAGE_API:
-                processVerifyAndAuthMessageMsg();
-                break;
-            
-            case VERIFY_AND_AUTH_COMPLETED:
-                processVerifyAndAuthCompletedMsg();
-                break;
-            
-            case POSITION_MULTI:
-                processPositionMultiMsg();
-                break;
-            
-            case POSITION_MULTI_END:
-                processPositionMultiEndMsg();
-                break;
-            
-            case ACCOUNT_UPDATE_MULTI:
-                processAccountUpdateMultiMsg();
-                break;
-            
-            case ACCOUNT_UPDATE_MULTI_END:
-                processAccountUpdateMultiEndMsg();
-                break;            
-            
-            case SECURITY_DEFINITION_OPTION_PARAMETER:
-            	processSecurityDefinitionOptionalParameterMsg();
-            	break;
-            	
-            case SECURITY_DEFINITION_OPTION_PARAMETER_END:
-            	processSecurityDefinitionOptionalParameterEndMsg();
-            	break;
-            	
-            case SOFT_DOLLAR_TIERS:
-            	processSoftDollarTiersMsg();
-            	break;
-
-            case FAMILY_CODES:
-                processFamilyCodesMsg();
-                break;           	
-            	
-            case SMART_COMPONENTS:
-            	processSmartComponentsMsg();
-            	break;
-            	
-            case TICK_REQ_PARAMS:
-            	processTickReqParamsMsg();
-            	break;
-
-            case SYMBOL_SAMPLES:
-                processSymbolSamplesMsg();
-                break;
-
-            case MKT_DEPTH_EXCHANGES:
-                processMktDepthExchangesMsg();
-                break;
-                
-            case HEAD_TIMESTAMP:
-            	processHeadTimestampMsg();
-            	break;
-
-            case TICK_NEWS:
-                processTickNewsMsg();
-                break;
-
-            case NEWS_PROVIDERS:
-                processNewsProvidersMsg();
-                break;
+    	if (msgId == END_CONN) {
+    		return 0;
+    	}
 
-            case NEWS_ARTICLE:
-                processNewsArticleMsg();
-                break;
+    	MsgProcessor processor = msgId >= 0 && msgId < MSG_ID_LIMIT ? PROCESSORS[msgId] : null;
+    	EMessageHandler handler = msgId >= 0 && msgId < MSG_ID_LIMIT && m_handlers != null ? m_handlers[msgId] : null;
 
-            case HISTORICAL_NEWS:
-                processHistoricalNewsMsg();
-                break;
+    	if (processor == null && handler == null) {
+    		m_EWrapper.error( EClientErrors.NO_VALID_ID, EClientErrors.UNKNOWN_ID.code(), EClientErrors.UNKNOWN_ID.msg());
+    		return 0;
+    	}
 
-            case HISTORICAL_NEWS_END:
-                processHistoricalNewsEndMsg();
-                break;
-                
-            case HISTOGRAM_DATA:
-            	processHistogramDataMsg();
-            	break;
-            	
-            case HISTORICAL_DATA_UPDATE:
-                processHistoricalDataUpdateMsg();
-                break;
+    	EMessageMask mask = m_mask;
 
-            case REROUTE_MKT_DATA_REQ:
-                processRerouteMktDataReq();
-                break;
+    	if (mask != null && !accepts(mask, msgId)) {
+    		return m_messageReader.skipToEnd();
+    	}
 
-            case REROUTE_MKT_DEPTH_REQ:
-                processRerouteMktDepthReq();
-                break;
+    	if (handler != null) {
+    		handler.handle(msgId, m_serverVersion, this, m_EWrapper);
+    	} else {
+    		processor.process(this);
+    	}
 
-            case MARKET_RULE:
-                processMarketRuleMsg();
-                break;
-                
-            case PNL:
-            	processPnLMsg();
-            	break;
-            	
-            case PNL_SINGLE:
-            	processPnLSingleMsg();
-            	break;
-            	
-            case HISTORICAL_TICKS:
-                processHistoricalTicks();
-                break;
-                
-            case HISTORICAL_TICKS_BID_ASK:
-                processHistoricalTicksBidAsk();
-                break;
-                
-            case HISTORICAL_TICKS_LAST:
-                processHistoricalTicksLast();
-                break;
+        m_messageReader.close();
+        return m_messageReader.msgLength();
+    }
 
-            case TICK_BY_TICK:
-                processTickByTickMsg();
-                break;
+    private boolean accepts(EMessageMask mask, int msgId) throws IOException {
+    	if (!mask.acceptsType(msgId)) {
+    		return false;
+    	}
 
-            case ORDER_BOUND:
-                processOrderBoundMsg();
-                break;
+    	if (!mask.filtersReqIds()) {
+    		return true;
+    	}
 
-            case COMPLETED_ORDER:
-                processCompletedOrderMsg();
-                break;
+    	int field = reqIdField(msgId);
 
-            case COMPLETED_ORDERS_END:
-                processCompletedOrdersEndMsg();
-                break;
+    	return field < 0 || mask.acceptsReqId(m_messageReader.peekInt(field));
+    }
 
-            case REPLACE_FA_END:
-                processReplaceFAEndMsg();
-                break;
-                
-            default: {
-                m_EWrapper.error( EClientErrors.NO_VALID_ID, EClientErrors.UNKNOWN_ID.code(), EClientErrors.UNKNOWN_ID.msg());
-                return 0;
-            }
-        }
-        
-        m_messageReader.close();
-        return m_messageReader.msgLength();
+    /** Position of the request id among the fields following the message id, or -1 for messages not scoped to a request. */
+    private int reqIdField(int msgId) {
+    	switch (msgId) {
+    		case TICK_PRICE:
+    		case TICK_SIZE:
+    		case TICK_GENERIC:
+    		case TICK_STRING:
+    		case TICK_EFP:
+    		case TICK_SNAPSHOT_END:
+    		case MARKET_DEPTH:
+    		case MARKET_DEPTH_L2:
+    		case REAL_TIME_BARS:
+    		case SCANNER_DATA:
+    		case ACCOUNT_SUMMARY:
+    		case POSITION_MULTI:
+    		case ACCOUNT_UPDATE_MULTI:
+    			return 1; // after the message version
+
+    		case TICK_OPTION_COMPUTATION:
+    			return m_serverVersion >= EClient.MIN_SERVER_VER_PRICE_BASED_VOLATILITY ? 0 : 1;
+
+    		case HISTORICAL_DATA:
+    			return m_serverVersion >= EClient.MIN_SERVER_VER_SYNT_REALTIME_BARS ? 0 : 1;
+
+    		case TICK_BY_TICK:
+    		case TICK_NEWS:
+    		case TICK_REQ_PARAMS:
+    		case HISTORICAL_DATA_UPDATE:
+    		case HISTORICAL_TICKS:
+    		case HISTORICAL_TICKS_BID_ASK:
+    		case HISTORICAL_TICKS_LAST:
+    		case HEAD_TIMESTAMP:
+    		case HISTOGRAM_DATA:
+    		case PNL:
+    		case PNL_SINGLE:
+    			return 0;
+
+    		default:
+    			return -1;
+    	}
     }
 
     private void processHistoricalTicksLast() throws IOException {
         int reqId = readInt(),
             tickCount = readInt();
+
+        if (m_tickWrapper != null) {
+            for (int i = 0; i < tickCount; i++) {
+                long time = readLong();
+                int attribs = readInt();
+                double price = readDouble();
+                long size = readLong();
+                String exchange = readSharedStr(),
+                       specialConditions = readSharedStr();
+
+                m_tickWrapper.historicalTickLast(reqId, time, attribs, price, size, exchange, specialConditions);
+            }
+            m_tickWrapper.historicalTicksEnd(reqId, readBoolean());
+            return;
+        }
                 
         List<HistoricalTickLast> ticks = new ArrayList<>();
         
@@ -512,6 +311,23 @@ class EDecoder implements ObjectInput {
     private void processHistoricalTicksBidAsk() throws IOException {
         int reqId = readInt(),
             tickCount = readInt();
+
+        if (m_tickWrapper != null) {
+            for (int i = 0; i < tickCount; i++) {
+                long time = readLong();
+                int mask = readInt();
+                // the wire has askPastHigh in bit 0, unlike tick-by-tick bid/ask
+                int attribs = ((mask & 1) != 0 ? ETickAttribs.ASK_PAST_HIGH : 0) | ((mask & 2) != 0 ? ETickAttribs.BID_PAST_LOW : 0);
+                double priceBid = readDouble(),
+                       priceAsk = readDouble();
+                long sizeBid = readLong(),
+                     sizeAsk = readLong();
+
+                m_tickWrapper.historicalTickBidAsk(reqId, time, attribs, priceBid, priceAsk, sizeBid, sizeAsk);
+            }
+            m_tickWrapper.historicalTicksEnd(reqId, readBoolean());
+            return;
+        }
             
         List<HistoricalTickBidAsk> ticks = new ArrayList<>();
         
@@ -538,6 +354,19 @@ class EDecoder implements ObjectInput {
     private void processHistoricalTicks() throws IOException {
         int reqId = readInt(),
             tickCount = readInt();
+
+        if (m_tickWrapper != null) {
+            for (int i = 0; i < tickCount; i++) {
+                long time = readLong();
+                readInt();//for consistency
+                double price = readDouble();
+                long size = readLong();
+
+                m_tickWrapper.historicalTick(reqId, time, price, size);
+            }
+            m_tickWrapper.historicalTicksEnd(reqId, readBoolean());
+            return;
+        }
         
         List<HistoricalTick> ticks = new ArrayList<>();
         
@@ -1338,6 +1167,10 @@ class EDecoder implements ObjectInput {
 	}
 
     private void processOpenOrderMsg() throws IOException {
+        if (m_EWrapper instanceof ELazyOrderWrapper && m_serverVersion >= EClient.MIN_SERVER_VER_ORDER_CONTAINER) {
+            ((ELazyOrderWrapper) m_EWrapper).openOrder(new ELazyOrder(m_messageReader.copyMessage(), m_serverVersion, false));
+            return;
+        }
 
         // read version
         int version = m_serverVersion < EClient.MIN_SERVER_VER_ORDER_CONTAINER ? readInt() : m_serverVersion;
@@ -1699,7 +1532,7 @@ class EDecoder implements ObjectInput {
 		int tickType = readInt();
 		double price = readDouble();
 		long size = 0;
-		TickAttrib attribs = new TickAttrib();
+		int attribs = 0; // ETickAttribs bits
 		
 		if( version >= 2) {
 		    size = readLong();
@@ -1708,21 +1541,20 @@ class EDecoder implements ObjectInput {
 		if (version >= 3) {		
 			int attrMask = readInt();			
 
-			attribs.canAutoExecute(attrMask == 1);
-			
-			if (m_serverVersion >= EClient.MIN_SERVER_VER_PAST_LIMIT) {
-				BitMask mask = new BitMask(attrMask);
-				
-				attribs.canAutoExecute(mask.get(0));
-				attribs.pastLimit(mask.get(1));
-				if (m_serverVersion >= EClient.MIN_SERVER_VER_PRE_OPEN_BID_ASK) {
-					attribs.preOpen(mask.get(2));
-				}
+			if (m_serverVersion >= EClient.MIN_SERVER_VER_PRE_OPEN_BID_ASK) {
+				attribs = attrMask & (ETickAttribs.CAN_AUTO_EXECUTE | ETickAttribs.PAST_LIMIT | ETickAttribs.PRE_OPEN);
+			} else if (m_serverVersion >= EClient.MIN_SERVER_VER_PAST_LIMIT) {
+				attribs = attrMask & (ETickAttribs.CAN_AUTO_EXECUTE | ETickAttribs.PAST_LIMIT);
+			} else {
+				attribs = attrMask == 1 ? ETickAttribs.CAN_AUTO_EXECUTE : 0;
 			}
 		}
 
-		
-		m_EWrapper.tickPrice( tickerId, tickType, price, attribs);
+		if (m_tickWrapper != null) {
+			m_tickWrapper.tickPrice( tickerId, tickType, price, attribs);
+		} else {
+			m_EWrapper.tickPrice( tickerId, tickType, price, ETickAttribs.tickAttrib(attribs, new TickAttrib()));
+		}
 
 		if( version >= 2) {
 		    final int sizeTickType;
@@ -1842,6 +1674,11 @@ class EDecoder implements ObjectInput {
             case 2: // AllLast
                 double price = readDouble();
                 long size = readLong();
+                if (m_tickWrapper != null) {
+                    int attribs = readInt();
+                    m_tickWrapper.tickByTickAllLast(reqId, tickType, time, price, size, attribs, readSharedStr(), readSharedStr());
+                    break;
+                }
                 mask = new BitMask(readInt());
                 TickAttribLast tickAttribLast = new TickAttribLast();
                 tickAttribLast.pastLimit(mask.get(0));
@@ -1855,6 +1692,10 @@ class EDecoder implements ObjectInput {
                 double askPrice = readDouble();
                 long bidSize = readLong();
                 long askSize = readLong();
+                if (m_tickWrapper != null) {
+                    m_tickWrapper.tickByTickBidAsk(reqId, time, bidPrice, askPrice, bidSize, askSize, readInt());
+                    break;
+                }
                 mask = new BitMask(readInt());
                 TickAttribBidAsk tickAttribBidAsk = new TickAttribBidAsk();
                 tickAttribBidAsk.bidPastLow(mask.get(0));
@@ -1876,6 +1717,11 @@ class EDecoder implements ObjectInput {
     }
     
     private void processCompletedOrderMsg() throws IOException {
+        if (m_EWrapper instanceof ELazyOrderWrapper) {
+            ((ELazyOrderWrapper) m_EWrapper).completedOrder(new ELazyOrder(m_messageReader.copyMessage(), m_serverVersion, true));
+            return;
+        }
+
         Contract contract = new Contract();
         Order order = new Order();
         OrderState orderState = new OrderState();
@@ -1985,79 +1831,240 @@ class EDecoder implements ObjectInput {
     	return m_messageReader.readStr();
     }
 
+    /** As readStr, but returns the same String for a repeated short value, e.g. an exchange code. */
+    private String readSharedStr() throws IOException {
+    	return m_messageReader.readSharedStr();
+    }
+
     public boolean readBoolFromInt() throws IOException {
-        String str = readStr();
-        return str != null && (Integer.parseInt(str) != 0);
+        return m_messageReader.readBoolFromInt();
     }
 
     public int readInt() throws IOException {
-        String str = readStr();
-        return str == null ? 0 : Integer.parseInt( str);
+        return m_messageReader.readInt();
     }
 
     public int readIntMax() throws IOException {
-        String str = readStr();
-        return (str == null || str.length() == 0) ? Integer.MAX_VALUE
-        	                                      : Integer.parseInt( str);
+        return m_messageReader.readIntMax();
     }
 
     public long readLong() throws IOException {
-        String str = readStr();
-        return str == null ? 0L : Long.parseLong(str);
+        return m_messageReader.readLong();
     }
 
     public double readDouble() throws IOException {
-        String str = readStr();
-        return str == null ? 0 : Double.parseDouble( str);
+        return m_messageReader.readDouble();
     }
 
     public double readDoubleMax() throws IOException {
-        String str = readStr();
-        return (str == null || str.length() == 0) ? Double.MAX_VALUE
-        	                                      : Double.parseDouble( str);
+        return m_messageReader.readDoubleMax();
     }
 
     /** Message reader interface */
     private interface IMessageReader extends Closeable {
     	String readStr() throws IOException;
+    	boolean readBoolFromInt() throws IOException;
+    	int readInt() throws IOException;
+    	int readIntMax() throws IOException;
+    	long readLong() throws IOException;
+    	double readDouble() throws IOException;
+    	double readDoubleMax() throws IOException;
     	int msgLength();
     }
 
-    private static class PreV100MessageReader implements IMessageReader {
-    	private final InputStream m_din;
-    	private int m_msgLength = 0;
-    	
-    	PreV100MessageReader( InputStream din ) {
-    		m_din = din;
+    /** Field cursor over the NUL separated bytes of one message. Numeric fields are parsed
+     *  straight from the bytes; a String is only created for textual fields, and for numbers
+     *  the fast paths do not cover (where the JDK parser also produces the error message). */
+    private static class FieldCursor implements IMessageReader {
+    	private static final int SHARED_STR_SLOTS = 256;
+    	private static final int SHARED_STR_MAX_LENGTH = 32;
+
+    	private byte[] m_buf;
+    	private int m_start;
+    	private int m_end;
+    	private int m_pos;
+    	private int m_fieldStart;
+    	private int m_fieldEnd;
+    	private String[] m_shared; // readSharedStr's Strings by hash of their bytes, created on first use
+
+    	void reset(byte[] buf, int offset, int length) {
+    		m_buf = buf;
+    		m_start = offset;
+    		m_end = offset + length;
+    		m_pos = offset;
     	}
-    	
+
     	@Override
         public int msgLength() {
-    		return m_msgLength;
+    		return m_pos - m_start;
     	}
-    	
+
+    	/** Moves past the remaining bytes of the message and returns its length. */
+    	int skipToEnd() {
+    		m_pos = m_end;
+    		return m_end - m_start;
+    	}
+
+    	/** Moves past the remaining bytes of the message and returns a copy of the whole message. */
+    	byte[] copyMessage() {
+    		m_pos = m_end;
+    		return Arrays.copyOfRange(m_buf, m_start, m_end);
+    	}
+
+    	/** Reads the integer that follows skip more fields without consuming anything. */
+    	int peekInt(int skip) throws IOException {
+    		int pos = m_pos;
+
+    		try {
+    			for (int i = 0; i < skip; i++) {
+    				nextField();
+    			}
+    			return readInt();
+    		}
+    		finally {
+    			m_pos = pos;
+    		}
+    	}
+
+    	/** Advances over the next field and its terminating NUL; an unterminated field means the message is incomplete. */
+    	private void nextField() throws EOFException {
+    		int i = m_pos;
+
+    		while (i < m_end && m_buf[i] != 0) {
+    			i++;
+    		}
+
+    		if (i == m_end) {
+    			m_pos = m_end;
+    			throw new EOFException();
+    		}
+
+    		m_fieldStart = m_pos;
+    		m_fieldEnd = i;
+    		m_pos = i + 1;
+    	}
+
+    	private String fieldStr() {
+    		return new String(m_buf, m_fieldStart, m_fieldEnd - m_fieldStart, StandardCharsets.ISO_8859_1);
+    	}
+
     	@Override public String readStr() throws IOException {
-    		 StringBuilder sb = new StringBuilder();
-    		    		 
- 	         for(; true; m_msgLength++) {
- 	            int c = m_din.read();
- 	            if( c <= 0) {
- 	            	if ( c < 0 ) {
- 	            		throw new EOFException();
- 	            	}
- 	            	
- 	            	m_msgLength++;
- 	                break;
- 	            }
- 	            sb.append( (char)c);
- 	        }
- 	
- 	        String str = sb.toString();
- 	        return str.length() == 0 ? null : str;    
- 	    }
-    	
+    		nextField();
+    		return m_fieldEnd == m_fieldStart ? null : fieldStr();
+    	}
+
+    	String readSharedStr() throws IOException {
+    		nextField();
+
+    		int length = m_fieldEnd - m_fieldStart;
+
+    		if (length == 0) {
+    			return null;
+    		}
+    		if (length > SHARED_STR_MAX_LENGTH) {
+    			return fieldStr();
+    		}
+
+    		int hash = 0;
+    		for (int i = m_fieldStart; i < m_fieldEnd; i++) {
+    			hash = 31 * hash + m_buf[i];
+    		}
+
+    		if (m_shared == null) {
+    			m_shared = new String[SHARED_STR_SLOTS];
+    		}
+
+    		int slot = (hash ^ (hash >>> 16)) & (SHARED_STR_SLOTS - 1);
+    		String str = m_shared[slot];
+
+    		if (str == null || !fieldEquals(str)) {
+    			str = fieldStr();
+    			m_shared[slot] = str;
+    		}
+    		return str;
+    	}
+
+    	private boolean fieldEquals(String str) {
+    		if (str.length() != m_fieldEnd - m_fieldStart) {
+    			return false;
+    		}
+    		for (int i = 0; i < str.length(); i++) {
+    			if (str.charAt(i) != (char)(m_buf[m_fieldStart + i] & 0xff)) {
+    				return false;
+    			}
+    		}
+    		return true;
+    	}
+
+    	@Override public boolean readBoolFromInt() throws IOException {
+    		nextField();
+    		return m_fieldEnd != m_fieldStart && parseInt() != 0;
+    	}
+
+    	@Override public int readInt() throws IOException {
+    		nextField();
+    		return m_fieldEnd == m_fieldStart ? 0 : parseInt();
+    	}
+
+    	@Override public int readIntMax() throws IOException {
+    		nextField();
+    		return m_fieldEnd == m_fieldStart ? Integer.MAX_VALUE : parseInt();
+    	}
+
+    	@Override public long readLong() throws IOException {
+    		nextField();
+    		return m_fieldEnd == m_fieldStart ? 0L : parseLong();
+    	}
+
+    	@Override public double readDouble() throws IOException {
+    		nextField();
+    		return EDecimalParser.parse(m_buf, m_fieldStart, m_fieldEnd);
+    	}
+
+    	@Override public double readDoubleMax() throws IOException {
+    		nextField();
+    		return EDecimalParser.parseMax(m_buf, m_fieldStart, m_fieldEnd);
+    	}
+
+    	private int parseInt() {
+    		long value = parseLong();
+
+    		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+    			return Integer.parseInt(fieldStr()); // throws the same NumberFormatException as before
+    		}
+    		return (int)value;
+    	}
+
+    	private long parseLong() {
+    		int i = m_fieldStart;
+    		boolean negative = false;
+
+    		if (m_buf[i] == '-' || m_buf[i] == '+') {
+    			negative = m_buf[i] == '-';
+    			i++;
+    		}
+
+    		int digits = m_fieldEnd - i;
+
+    		if (digits == 0 || digits > 18) {
+    			return Long.parseLong(fieldStr());
+    		}
+
+    		long value = 0;
+
+    		for (; i < m_fieldEnd; i++) {
+    			int d = m_buf[i] - '0';
+
+    			if (d < 0 || d > 9) {
+    				return Long.parseLong(fieldStr());
+    			}
+    			value = value * 10 + d;
+    		}
+    		return negative ? -value : value;
+    	}
+
     	@Override public void close() {
-    	    /* noop in pre-v100 */
+    	    /* noop */
     	}
     }
     
@@ -0,0 +1,116 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Appends every framed message read from TWS to a journal of memory-mapped segment files,
+ *  see EReader.setJournal. Each segment starts with a header holding the server version the
+ *  session negotiated; records are [int length][long receive System.nanoTime()][message bytes]
+ *  and a zero length marks the end of the written data. A segment is rolled as soon as the
+ *  next record does not fit. Journals are read back with EJournalReplayer. */
+public class EJournalRecorder implements Closeable {
+    static final int MAGIC = 0x45574a31; // "EWJ1"
+    static final int HEADER_SIZE = 24;   // magic, server version, reserved, start time in epoch millis
+    static final int RECORD_HEADER_SIZE = 12;
+    static final String SEGMENT_PREFIX = "wire-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int SEGMENT_SIZE_DEFAULT = 64 * 1024 * 1024;
+
+    private final Path m_directory;
+    private final int m_serverVersion;
+    private final int m_segmentSize;
+    private int m_segmentIndex = 0;
+    private MappedByteBuffer m_segment;
+    private long m_records = 0;
+    private boolean m_closed = false;
+
+    public EJournalRecorder(Path directory, int serverVersion) throws IOException {
+        this(directory, serverVersion, SEGMENT_SIZE_DEFAULT);
+    }
+
+    /** @param serverVersion The version negotiated by the connection being recorded, EClient.serverVersion(). */
+    public EJournalRecorder(Path directory, int serverVersion, int segmentSize) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + 4) {
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        }
+
+        m_directory = Files.createDirectories(directory);
+        m_serverVersion = serverVersion;
+        m_segmentSize = segmentSize;
+
+        while (Files.exists(segmentPath(m_directory, m_segmentIndex))) {
+            m_segmentIndex++; // never overwrite an earlier recording
+        }
+    }
+
+    public synchronized void record(EMessage msg) throws IOException {
+        record(msg, System.nanoTime());
+    }
+
+    synchronized void record(EMessage msg, long receivedNanos) throws IOException {
+        if (m_closed) {
+            return;
+        }
+
+        int length = msg.length();
+
+        // keep room for the zero length terminator after the record
+        if (m_segment == null || m_segment.remaining() < RECORD_HEADER_SIZE + length + 4) {
+            roll(RECORD_HEADER_SIZE + length + 4);
+        }
+
+        m_segment.putInt(length);
+        m_segment.putLong(receivedNanos);
+        m_segment.put(msg.buf(), msg.offset(), length);
+        m_records++;
+    }
+
+    public synchronized long records() {
+        return m_records;
+    }
+
+    /** Flushes the mapped segment to the file. */
+    public synchronized void force() {
+        if (m_segment != null) {
+            m_segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+        m_segment = null;
+        m_closed = true;
+    }
+
+    private void roll(int needed) throws IOException {
+        force();
+
+        int size = Math.max(m_segmentSize, HEADER_SIZE + needed);
+
+        try (FileChannel channel = FileChannel.open(segmentPath(m_directory, m_segmentIndex++),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            m_segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        m_segment.putInt(MAGIC);
+        m_segment.putInt(m_serverVersion);
+        m_segment.putInt(0);
+        m_segment.putInt(0);
+        m_segment.putLong(System.currentTimeMillis());
+    }
+
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,111 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Feeds a journal written by EJournalRecorder back through EDecoder into any EWrapper, either
+ *  as fast as possible or at the pacing the messages were originally received with. Segments
+ *  are read in order and each is decoded with the server version from its header. The wrapper
+ *  is called on the thread calling replay, as it would be from EReader.processMsgs. */
+public class EJournalReplayer {
+    private final Path m_directory;
+    private byte[] m_buf = new byte[8192];
+
+    public EJournalReplayer(Path directory) {
+        m_directory = directory;
+    }
+
+    /** Replays as fast as possible and returns the number of messages delivered. */
+    public long replay(EWrapper wrapper) throws IOException {
+        return replay(wrapper, false);
+    }
+
+    /** @param paced Whether to wait between messages for the time that originally separated them. */
+    public long replay(EWrapper wrapper, boolean paced) throws IOException {
+        EDecoder decoder = null;
+        int serverVersion = 0;
+        long count = 0;
+        long firstReceived = 0;
+        long replayStart = 0;
+
+        for (Path path : segments()) {
+            ByteBuffer segment = map(path);
+
+            if (segment.getInt() != EJournalRecorder.MAGIC) {
+                throw new IOException("not a journal segment: " + path);
+            }
+
+            int segmentVersion = segment.getInt();
+
+            segment.position(EJournalRecorder.HEADER_SIZE);
+
+            if (decoder == null || segmentVersion != serverVersion) {
+                serverVersion = segmentVersion;
+                decoder = new EDecoder(serverVersion, wrapper);
+            }
+
+            while (segment.remaining() >= EJournalRecorder.RECORD_HEADER_SIZE) {
+                int length = segment.getInt();
+
+                if (length <= 0) {
+                    break;
+                }
+
+                long received = segment.getLong();
+
+                if (paced) {
+                    if (count == 0 || received < firstReceived) {
+                        firstReceived = received;
+                        replayStart = System.nanoTime();
+                    }
+                    awaitNanos(replayStart + (received - firstReceived));
+                }
+
+                if (m_buf.length < length) {
+                    m_buf = new byte[Math.max(length, m_buf.length * 2)];
+                }
+                segment.get(m_buf, 0, length);
+
+                decoder.processMsg(EMessage.wrap(m_buf, 0, length));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Segment files in recording order; the zero padded index makes that the name order. */
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(m_directory)) {
+            return files
+                .filter(p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(EJournalRecorder.SEGMENT_PREFIX) && name.endsWith(EJournalRecorder.SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void awaitNanos(long deadline) {
+        for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
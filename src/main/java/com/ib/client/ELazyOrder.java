@@ -0,0 +1,198 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.ib.client.Types.*;
+
+/** An OPEN_ORDER or COMPLETED_ORDER message that has not been decoded, see ELazyOrderWrapper.
+ *  The leading fields, which identify the contract and the order, are located by one scan when the
+ *  message arrives and parsed on each call to their accessor. contract(), order() and orderState()
+ *  decode the whole message once, on first use, into the same objects the eager callbacks get.
+ *  The view keeps its own copy of the message and may be held after the callback returns. */
+public final class ELazyOrder {
+    // positions of the leading fields counted from conid, the first contract field
+    private static final int ORDER_ID = -1;          // open orders only
+    private static final int CONID = 0;
+    private static final int SYMBOL = 1;
+    private static final int SEC_TYPE = 2;
+    private static final int LAST_TRADE_DATE = 3;
+    private static final int STRIKE = 4;
+    private static final int RIGHT = 5;
+    private static final int MULTIPLIER = 6;
+    private static final int EXCHANGE = 7;
+    private static final int CURRENCY = 8;
+    private static final int LOCAL_SYMBOL = 9;
+    private static final int TRADING_CLASS = 10;
+    private static final int ACTION = 11;
+    private static final int TOTAL_QUANTITY = 12;
+    private static final int ORDER_TYPE = 13;
+    private static final int LMT_PRICE = 14;
+    private static final int AUX_PRICE = 15;
+    private static final int TIF = 16;
+    private static final int OCA_GROUP = 17;
+    private static final int ACCOUNT = 18;
+    private static final int OPEN_CLOSE = 19;
+    private static final int ORIGIN = 20;
+    private static final int ORDER_REF = 21;
+    private static final int OPEN_CLIENT_ID = 22;    // open orders only
+    private static final int OPEN_PERM_ID = 23;
+    private static final int COMPLETED_PERM_ID = 22; // completed orders have no client id
+
+    private final byte[] m_buf;
+    private final int m_serverVersion;
+    private final boolean m_completed;
+    private final int m_first;    // index in m_starts of conid: 2 after msgId and orderId, 1 after msgId alone
+    private final int[] m_starts; // field starts; the field ends at the next start, less its NUL
+    private Contract m_contract;
+    private Order m_order;
+    private OrderState m_orderState;
+
+    /** @param buf a whole OPEN_ORDER or COMPLETED_ORDER frame, from the message id on, owned by this view */
+    ELazyOrder(byte[] buf, int serverVersion, boolean completed) throws IOException {
+        m_buf = buf;
+        m_serverVersion = serverVersion;
+        m_completed = completed;
+        m_first = completed ? 1 : 2;
+        m_starts = new int[m_first + (completed ? COMPLETED_PERM_ID : OPEN_PERM_ID) + 2];
+
+        int pos = 0;
+        for (int i = 0; i < m_starts.length; i++) {
+            m_starts[i] = pos;
+            if (i == m_starts.length - 1) {
+                break;
+            }
+            while (pos < buf.length && buf[pos] != 0) {
+                pos++;
+            }
+            if (pos == buf.length) {
+                throw new EOFException();
+            }
+            pos++;
+        }
+    }
+
+    public boolean isCompleted()        { return m_completed; }
+
+    /** 0 for completed orders, as in the decoded Order. */
+    public int orderId()                { return m_completed ? 0 : parseInt(ORDER_ID); }
+    public int permId()                 { return parseInt(m_completed ? COMPLETED_PERM_ID : OPEN_PERM_ID); }
+    /** Decodes the whole message for completed orders, whose client id follows the leading fields. */
+    public int clientId()               { return m_completed ? order().clientId() : parseInt(OPEN_CLIENT_ID); }
+
+    public int conid()                  { return parseInt(CONID); }
+    public String symbol()              { return str(SYMBOL); }
+    public SecType secType()            { return SecType.get(str(SEC_TYPE)); }
+    public String lastTradeDateOrContractMonth() { return str(LAST_TRADE_DATE); }
+    public double strike()              { return EDecimalParser.parse(m_buf, start(STRIKE), end(STRIKE)); }
+    public Right right()                { return Right.get(str(RIGHT)); }
+    public String multiplier()          { return str(MULTIPLIER); }
+    public String exchange()            { return str(EXCHANGE); }
+    public String currency()            { return str(CURRENCY); }
+    public String localSymbol()         { return str(LOCAL_SYMBOL); }
+    public String tradingClass()        { return str(TRADING_CLASS); }
+
+    public Action action()              { return Action.get(str(ACTION)); }
+    public double totalQuantity()       { return EDecimalParser.parse(m_buf, start(TOTAL_QUANTITY), end(TOTAL_QUANTITY)); }
+    public OrderType orderType()        { return OrderType.get(str(ORDER_TYPE)); }
+    public double lmtPrice()            { return EDecimalParser.parseMax(m_buf, start(LMT_PRICE), end(LMT_PRICE)); }
+    public double auxPrice()            { return EDecimalParser.parseMax(m_buf, start(AUX_PRICE), end(AUX_PRICE)); }
+    public TimeInForce tif()            { return TimeInForce.get(str(TIF)); }
+    public String ocaGroup()            { return str(OCA_GROUP); }
+    public String account()             { return str(ACCOUNT); }
+    public String openClose()           { return str(OPEN_CLOSE); }
+    public int origin()                 { return parseInt(ORIGIN); }
+    public String orderRef()            { return str(ORDER_REF); }
+
+    public synchronized Contract contract() {
+        decode();
+        return m_contract;
+    }
+
+    public synchronized Order order() {
+        decode();
+        return m_order;
+    }
+
+    /** Status, commission and margin come late in the message, so this always decodes it in full. */
+    public synchronized OrderState orderState() {
+        decode();
+        return m_orderState;
+    }
+
+    private void decode() {
+        if (m_order != null) {
+            return;
+        }
+
+        DefaultEWrapper capture = new DefaultEWrapper() {
+            @Override public void openOrder(int orderId, Contract contract, Order order, OrderState orderState) {
+                completedOrder(contract, order, orderState);
+            }
+
+            @Override public void completedOrder(Contract contract, Order order, OrderState orderState) {
+                m_contract = contract;
+                m_order = order;
+                m_orderState = orderState;
+            }
+        };
+
+        try {
+            new EDecoder(m_serverVersion, capture).processMsg(EMessage.wrap(m_buf, 0, m_buf.length));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("cannot decode order " + permId(), e);
+        }
+    }
+
+    private int start(int field) {
+        return m_starts[m_first + field];
+    }
+
+    private int end(int field) {
+        return m_starts[m_first + field + 1] - 1;
+    }
+
+    private String str(int field) {
+        int start = start(field);
+        int end = end(field);
+        return start == end ? null : new String(m_buf, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /** As EDecoder.readInt: 0 for an empty field. */
+    private int parseInt(int field) {
+        int start = start(field);
+        int end = end(field);
+
+        if (start == end) {
+            return 0;
+        }
+
+        int i = start;
+        boolean negative = m_buf[i] == '-';
+        if (negative || m_buf[i] == '+') {
+            i++;
+        }
+
+        int digits = end - i;
+        if (digits == 0 || digits > 9) {
+            return Integer.parseInt(new String(m_buf, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+
+        int value = 0;
+        for (; i < end; i++) {
+            int d = m_buf[i] - '0';
+
+            if (d < 0 || d > 9) {
+                // not a plain integer: throws the same NumberFormatException as the decoder
+                return Integer.parseInt(new String(m_buf, start, end - start, StandardCharsets.ISO_8859_1));
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,14 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+/** An EWrapper that takes open and completed orders as ELazyOrder views instead of decoded
+ *  Contract, Order and OrderState objects. When the wrapper given to EClientSocket implements this
+ *  interface, these two callbacks replace openOrder(int, Contract, Order, OrderState) and
+ *  completedOrder(Contract, Order, OrderState), except on servers older than the order container
+ *  version (145), which still get the eager callbacks. */
+public interface ELazyOrderWrapper extends EWrapper {
+    void openOrder(ELazyOrder order);
+    void completedOrder(ELazyOrder order);
+}
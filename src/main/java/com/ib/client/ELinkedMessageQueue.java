@@ -0,0 +1,42 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.util.Deque;
+import java.util.LinkedList;
+
+/** Unbounded queue guarded by its own monitor; the EReader default. */
+public class ELinkedMessageQueue implements EMessageQueue {
+	private final Deque<EMessage> m_msgQueue = new LinkedList<>();
+	private int m_highWaterMark = 0;
+
+	@Override
+	public void put(EMessage msg) {
+		synchronized (m_msgQueue) {
+			m_msgQueue.addFirst(msg);
+			m_highWaterMark = Math.max(m_highWaterMark, m_msgQueue.size());
+		}
+	}
+
+	@Override
+	public EMessage poll() {
+		synchronized (m_msgQueue) {
+			return m_msgQueue.isEmpty() ? null : m_msgQueue.removeLast();
+		}
+	}
+
+	@Override
+	public int size() {
+		synchronized (m_msgQueue) {
+			return m_msgQueue.size();
+		}
+	}
+
+	@Override
+	public int highWaterMark() {
+		synchronized (m_msgQueue) {
+			return m_highWaterMark;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** EReaderSignal with the semantics of EJavaSignal built on a ReentrantLock instead of a monitor.
+ *  A virtual thread waiting on it unmounts from its carrier thread, where Object.wait in
+ *  EJavaSignal would pin the carrier; use it when the processing loop runs on a virtual thread. */
+public class ELockSignal implements EReaderSignal {
+    private final ReentrantLock m_lock = new ReentrantLock();
+    private final Condition m_signalled = m_lock.newCondition();
+    private boolean m_open = false;
+
+    @Override
+    public void issueSignal() {
+        m_lock.lock();
+        try {
+            m_open = true;
+            m_signalled.signalAll();
+        }
+        finally {
+            m_lock.unlock();
+        }
+    }
+
+    @Override
+    public void waitForSignal() {
+        m_lock.lock();
+        try {
+            while (!m_open) {
+                try {
+                    m_signalled.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            m_open = false;
+        }
+        finally {
+            m_lock.unlock();
+        }
+    }
+}
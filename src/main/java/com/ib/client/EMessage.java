@@ -4,27 +4,79 @@
 package com.ib.client;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+/** A single framed message. The bytes are held as a view (array, offset, length) so that
+ *  a frame read from the socket can be handed to the decoder without intermediate copies. */
 public class EMessage {
-	ByteArrayOutputStream m_buf;
-	
+	private final byte[] m_buf;
+	private final int m_offset;
+	private final int m_length;
+
+	/** Copies the first len bytes of buf; the caller is free to reuse buf afterwards. */
 	public EMessage(byte[] buf, int len) {
-		m_buf = new ByteArrayOutputStream();
-		
-		m_buf.write(buf, 0, len);
+		this(Arrays.copyOf(buf, len), 0, len);
 	}
-	
+
 	public EMessage(Builder buf) throws IOException {
-		m_buf = new ByteArrayOutputStream();
-		
-			buf.writeTo(new DataOutputStream(m_buf));
+		this(buf.toByteArray());
+	}
+
+	/** Wraps the remaining bytes of frame. Array backed buffers are shared, not copied;
+	 *  direct or read-only buffers are copied once. The buffer's position is not changed. */
+	public EMessage(ByteBuffer frame) {
+		this(frame.hasArray() ? frame.array() : toArray(frame),
+			 frame.hasArray() ? frame.arrayOffset() + frame.position() : 0,
+			 frame.remaining());
+	}
+
+	private EMessage(byte[] buf) {
+		this(buf, 0, buf.length);
 	}
-	
+
+	private EMessage(byte[] buf, int offset, int length) {
+		m_buf = buf;
+		m_offset = offset;
+		m_length = length;
+	}
+
+	/** Wraps buf[offset, offset+length) without copying; buf must not be modified while the message is in use. */
+	public static EMessage wrap(byte[] buf, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > buf.length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + buf.length);
+		}
+		return new EMessage(buf, offset, length);
+	}
+
 	public InputStream getStream() {
-		return new ByteArrayInputStream(m_buf.toByteArray());
+		return new ByteArrayInputStream(m_buf, m_offset, m_length);
 	}
-	
-	public byte[] getRawData() {		
-		return m_buf.toByteArray();
+
+	/** Returns the message bytes; when the message spans its whole backing array that array is returned as is. */
+	public byte[] getRawData() {
+		return m_offset == 0 && m_length == m_buf.length ? m_buf : Arrays.copyOfRange(m_buf, m_offset, m_offset + m_length);
+	}
+
+	/** Read-only view of the message bytes. */
+	public ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(m_buf, m_offset, m_length).slice().asReadOnlyBuffer();
+	}
+
+	public int length() {
+		return m_length;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(m_buf, m_offset, m_length);
+	}
+
+	byte[] buf()  { return m_buf; }
+	int offset()  { return m_offset; }
+
+	private static byte[] toArray(ByteBuffer frame) {
+		byte[] bytes = new byte[frame.remaining()];
+		frame.duplicate().get(bytes);
+		return bytes;
 	}
 }
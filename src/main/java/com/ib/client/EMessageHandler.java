@@ -0,0 +1,15 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+
+/** Decodes one message type in place of the built-in decoder, see EReader.setMessageHandler.
+ *  The message id has already been read; the remaining fields are read from in, in wire order,
+ *  e.g. with readInt(), readDouble() and readUTF(). Fields that are not needed may be left unread. */
+@FunctionalInterface
+public interface EMessageHandler {
+    void handle(int msgId, int serverVersion, ObjectInput in, EWrapper wrapper) throws IOException;
+}
@@ -0,0 +1,82 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.util.BitSet;
+
+/** Declares which incoming messages the application consumes, see EReader.setMessageMask.
+ *  Rejected messages are skipped by length: only their message id (and, when request ids are
+ *  filtered, the request id) is parsed and no EWrapper callback is made. Message types are the
+ *  IncomingMessage ids; the request id filter applies to request scoped messages such as ticks,
+ *  bars and market depth, while unscoped ones (errors, orders, account data) only obey the type
+ *  filter. A mask may be replaced at any time but should not be modified once installed. */
+public class EMessageMask {
+    private final BitSet m_types = new BitSet(IncomingMessage.MSG_ID_LIMIT);
+    private BitSet m_reqIds; // null when request ids are not filtered
+
+    private EMessageMask(boolean all) {
+        if (all) {
+            m_types.set(0, IncomingMessage.MSG_ID_LIMIT);
+        }
+    }
+
+    /** A mask accepting every message, to be narrowed with exclude. */
+    public static EMessageMask all() {
+        return new EMessageMask(true);
+    }
+
+    /** A mask rejecting every message, to be widened with include. */
+    public static EMessageMask none() {
+        return new EMessageMask(false);
+    }
+
+    public EMessageMask include(int... msgIds) {
+        for (int msgId : msgIds) {
+            m_types.set(checkMsgId(msgId));
+        }
+        return this;
+    }
+
+    public EMessageMask exclude(int... msgIds) {
+        for (int msgId : msgIds) {
+            m_types.clear(checkMsgId(msgId));
+        }
+        return this;
+    }
+
+    /** Restricts request scoped messages to the given request ids; may be called repeatedly to add more. */
+    public EMessageMask reqIds(int... reqIds) {
+        if (m_reqIds == null) {
+            m_reqIds = new BitSet();
+        }
+
+        for (int reqId : reqIds) {
+            if (reqId < 0) {
+                throw new IllegalArgumentException("negative request id: " + reqId);
+            }
+            m_reqIds.set(reqId);
+        }
+        return this;
+    }
+
+    public boolean acceptsType(int msgId) {
+        return msgId >= 0 && m_types.get(msgId);
+    }
+
+    public boolean filtersReqIds() {
+        return m_reqIds != null;
+    }
+
+    /** Negative ids, which TWS uses for messages not tied to a request, are always accepted. */
+    public boolean acceptsReqId(int reqId) {
+        return m_reqIds == null || reqId < 0 || m_reqIds.get(reqId);
+    }
+
+    private static int checkMsgId(int msgId) {
+        if (msgId < 0 || msgId >= IncomingMessage.MSG_ID_LIMIT) {
+            throw new IllegalArgumentException("message id out of range: " + msgId);
+        }
+        return msgId;
+    }
+}
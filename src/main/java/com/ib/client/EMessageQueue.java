@@ -0,0 +1,21 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.InterruptedIOException;
+
+/** Hand-off between the EReader thread, which puts messages, and the thread running EReader.processMsgs, which polls them. */
+public interface EMessageQueue {
+	/** Called by the reader thread only; may block while a bounded queue is full. */
+	void put(EMessage msg) throws InterruptedIOException;
+
+	/** Called by the processing thread only; returns null when the queue is empty. */
+	EMessage poll();
+
+	/** Number of messages waiting to be processed. */
+	int size();
+
+	/** Largest size() seen since the queue was created. */
+	int highWaterMark();
+}
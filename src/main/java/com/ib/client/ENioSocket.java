@@ -0,0 +1,154 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/** Transport over a blocking SocketChannel. Inbound bytes are read in large chunks into a
+ *  reusable direct buffer and V100 frames are sliced out of it, so a burst of small messages
+ *  costs one read syscall instead of two per message. The buffer is only compacted when a
+ *  frame straddles its end. */
+public class ENioSocket implements ETransport {
+    private static final int IN_BUF_SIZE_DEFAULT = 64 * 1024;
+
+    private final SocketChannel m_channel;
+    private ByteBuffer m_in; // read mode: [position, limit) holds unread bytes
+
+    ENioSocket(SocketChannel channel) throws IOException {
+        this(channel, IN_BUF_SIZE_DEFAULT);
+    }
+
+    ENioSocket(SocketChannel channel, int bufferSize) throws IOException {
+        m_channel = channel;
+        m_channel.configureBlocking(true);
+        m_in = ByteBuffer.allocateDirect(bufferSize);
+        m_in.flip();
+    }
+
+    SocketChannel channel() {
+        return m_channel;
+    }
+
+    @Override
+    public void send(EMessage msg) throws IOException {
+        ByteBuffer out = msg.asByteBuffer();
+
+        while (out.hasRemaining()) {
+            m_channel.write(out);
+        }
+    }
+
+    /** Gathering write of all messages. */
+    @Override
+    public void send(List<EMessage> msgs) throws IOException {
+        ByteBuffer[] out = new ByteBuffer[msgs.size()];
+        long remaining = 0;
+
+        for (int i = 0; i < out.length; i++) {
+            out[i] = msgs.get(i).asByteBuffer();
+            remaining += out[i].remaining();
+        }
+
+        while (remaining > 0) {
+            remaining -= m_channel.write(out);
+        }
+    }
+
+    /** Returns the next length prefixed frame, reading from the channel only when no complete frame is buffered. */
+    EMessage readFrame() throws IOException {
+        ensure(4);
+
+        int msgSize = m_in.getInt(m_in.position());
+
+        if (msgSize < 0 || msgSize > EReader.MAX_MSG_LENGTH) {
+            throw new IOException("message is too long: " + msgSize);
+        }
+
+        ensure(4 + msgSize);
+
+        byte[] buf = new byte[msgSize];
+
+        m_in.position(m_in.position() + 4);
+        m_in.get(buf);
+
+        return EMessage.wrap(buf, 0, msgSize);
+    }
+
+    /** Stream style read used by the pre-V100 path and the handshake; returns -1 at end of stream. */
+    int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!m_in.hasRemaining() && fill(1) < 0) {
+            return -1;
+        }
+
+        int n = Math.min(len, m_in.remaining());
+
+        m_in.get(buf, off, n);
+
+        return n;
+    }
+
+    int readInt() throws IOException {
+        ensure(4);
+
+        return m_in.getInt();
+    }
+
+    /** Blocks until at least n unread bytes are buffered. */
+    private void ensure(int n) throws IOException {
+        while (m_in.remaining() < n) {
+            if (fill(n) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /** Performs one channel read into the free tail of the buffer, first making room for needed bytes from the current position. */
+    private int fill(int needed) throws IOException {
+        if (!m_in.hasRemaining()) {
+            m_in.clear().flip();
+        }
+
+        if (m_in.position() + needed > m_in.capacity()) {
+            if (needed > m_in.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(needed, m_in.capacity() * 2));
+
+                bigger.put(m_in).flip();
+                m_in = bigger;
+            }
+            else {
+                m_in.compact().flip();
+            }
+        }
+
+        int position = m_in.position();
+
+        m_in.position(m_in.limit());
+        m_in.limit(m_in.capacity());
+
+        int n;
+
+        try {
+            n = m_channel.read(m_in);
+        }
+        finally {
+            m_in.limit(m_in.position());
+            m_in.position(position);
+        }
+
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_channel.close();
+    }
+}
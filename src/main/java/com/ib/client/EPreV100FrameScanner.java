@@ -0,0 +1,149 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/** Finds message boundaries in the unframed pre-V100 stream. Bytes are scanned once as they
+ *  arrive and field terminators (NULs) are counted. Message types with a fixed number of fields
+ *  complete as soon as enough NULs have been seen; for the others a trial decode is run, and
+ *  only again once another NUL has arrived, since a message can only end on one. */
+class EPreV100FrameScanner {
+    static final int NEED_MORE_DATA = -1;
+
+    private static final EWrapper defaultWrapper = new DefaultEWrapper();
+
+    private int m_scanned = 0;        // bytes of the pending message already scanned
+    private int m_nuls = 0;           // field terminators among them
+    private int m_msgId = 0;
+    private int m_fieldsNeeded = 0;   // total fields when known from the message type, 0 otherwise
+    private int m_secondFieldStart = 0;
+    private int m_nulsAtLastTrial = 0; // non-zero once a trial decode has run out of data
+
+    /**
+     * @return the length of the complete message starting at buf[start], NEED_MORE_DATA when
+     * buf[start, end) holds only part of it, or 0 when the decoder reports the end of the stream
+     */
+    int scan(byte[] buf, int start, int end, int serverVersion) throws IOException {
+        if (m_nulsAtLastTrial > 0) {
+            countNuls(buf, start, end);
+            return m_nuls > m_nulsAtLastTrial ? trialDecode(buf, start, end, serverVersion) : NEED_MORE_DATA;
+        }
+
+        for (int i = start + m_scanned; i < end; i++) {
+            m_scanned++;
+
+            if (buf[i] != 0) {
+                continue;
+            }
+
+            m_nuls++;
+
+            if (serverVersion > 0 && m_nuls <= 2) {
+                onLeadingField(buf, start, i, serverVersion);
+            }
+
+            if (m_fieldsNeeded > 0) {
+                if (m_nuls == m_fieldsNeeded) {
+                    return complete();
+                }
+            }
+            else if (!(serverVersion > 0 && m_msgId == 1 && m_nuls == 1)) {
+                // layout not known from the type: the decoder finds the end itself
+                return trialDecode(buf, start, end, serverVersion);
+            }
+        }
+
+        return NEED_MORE_DATA;
+    }
+
+    private int trialDecode(byte[] buf, int start, int end, int serverVersion) throws IOException {
+        try (EDecoder decoder = new EDecoder(serverVersion, defaultWrapper)) {
+            int msgSize = decoder.processMsg(EMessage.wrap(buf, start, end - start));
+
+            reset();
+            return msgSize;
+        }
+        catch (EOFException e) {
+            countNuls(buf, start, end);
+            m_nulsAtLastTrial = m_nuls;
+            return NEED_MORE_DATA;
+        }
+    }
+
+    /** Counts the terminators among bytes not scanned yet. */
+    private void countNuls(byte[] buf, int start, int end) {
+        for (int i = start + m_scanned; i < end; i++) {
+            if (buf[i] == 0) {
+                m_nuls++;
+            }
+        }
+        m_scanned = end - start;
+    }
+
+    /** Reads the message id and, where the layout depends on it, the message version. */
+    private void onLeadingField(byte[] buf, int start, int nulPos, int serverVersion) {
+        if (m_nuls == 1) {
+            m_msgId = parseInt(buf, start, nulPos);
+            m_secondFieldStart = nulPos + 1;
+            m_fieldsNeeded = fixedFieldCount(m_msgId, 0);
+        }
+        else if (m_msgId == 1) {
+            m_fieldsNeeded = fixedFieldCount(m_msgId, parseInt(buf, m_secondFieldStart, nulPos));
+        }
+    }
+
+    /** Field counts, including the message id, of layouts that do not vary with the server version. */
+    private static int fixedFieldCount(int msgId, int version) {
+        switch (msgId) {
+            case 1:  return version == 0 ? 0 : version == 1 ? 5 : version == 2 ? 6 : 7; // TICK_PRICE
+            case 2:  return 5;  // TICK_SIZE
+            case 8:  return 3;  // ACCT_UPDATE_TIME
+            case 9:  return 3;  // NEXT_VALID_ID
+            case 12: return 8;  // MARKET_DEPTH
+            case 45: return 5;  // TICK_GENERIC
+            case 46: return 5;  // TICK_STRING
+            case 47: return 11; // TICK_EFP
+            case 49: return 3;  // CURRENT_TIME
+            case 50: return 11; // REAL_TIME_BARS
+            default: return 0;
+        }
+    }
+
+    private static int parseInt(byte[] buf, int from, int to) {
+        if (from == to || to - from > 9) {
+            return 0;
+        }
+
+        boolean negative = buf[from] == '-';
+        int value = 0;
+
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            int d = buf[i] - '0';
+
+            if (d < 0 || d > 9) {
+                return 0; // not a plain integer: leave the message to the trial decode
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    private int complete() {
+        int msgSize = m_scanned;
+
+        reset();
+        return msgSize;
+    }
+
+    private void reset() {
+        m_scanned = 0;
+        m_nuls = 0;
+        m_msgId = 0;
+        m_fieldsNeeded = 0;
+        m_secondFieldStart = 0;
+        m_nulsAtLastTrial = 0;
+    }
+}
@@ -5,9 +5,8 @@ package com.ib.client;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.LinkedList;
 
 
 
@@ -22,11 +21,14 @@ public class EReader extends Thread {
     private EClientSocket 	m_clientSocket;
     private EReaderSignal m_signal;
     private EDecoder m_processMsgsDecoder;
-    private static final EWrapper defaultWrapper = new DefaultEWrapper();
     private static final int IN_BUF_SIZE_DEFAULT = 8192;
     private byte[] m_iBuf = new byte[IN_BUF_SIZE_DEFAULT];
-    private int m_iBufLen = 0;
-    private final Deque<EMessage> m_msgQueue = new LinkedList<>();
+    private int m_iBufStart = 0; // first byte not yet returned as a message
+    private int m_iBufEnd = 0;   // end of the bytes read from the socket
+    private final EPreV100FrameScanner m_frameScanner = new EPreV100FrameScanner();
+    private final EMessageQueue m_msgQueue;
+    private volatile EJournalRecorder m_journal;
+    private volatile Thread m_runner; // the virtual thread running this reader, see start(boolean)
     
     protected boolean isUseV100Plus() {
 		return m_clientSocket.isUseV100Plus();
@@ -41,11 +43,92 @@ public class EReader extends Thread {
      * @param signal A callback that informs that there are messages in msg queue.
      */
     public EReader(EClientSocket parent, EReaderSignal signal) {
+    	this(parent, signal, new ELinkedMessageQueue());
+    }
+
+    /**
+     * Construct the EReader with a specific hand-off queue, e.g. an ERingBufferMessageQueue
+     * paired with an ESpinningSignal for lock-free delivery to the processing thread.
+     * @param parent An EClientSocket connected to TWS.
+     * @param signal A callback that informs that there are messages in msg queue.
+     * @param queue The queue between this reader thread and the thread calling processMsgs.
+     */
+    public EReader(EClientSocket parent, EReaderSignal signal, EMessageQueue queue) {
     	m_clientSocket = parent;
         m_signal = signal;
+        m_msgQueue = queue;
         m_processMsgsDecoder = new EDecoder(parent.serverVersion(), parent.wrapper(), parent);
     }
+
+    /** Messages read but not yet processed; a growing depth means the processing thread is lagging. */
+    public int queueDepth() {
+    	return m_msgQueue.size();
+    }
+
+    public int queueHighWaterMark() {
+    	return m_msgQueue.highWaterMark();
+    }
+
+    /** Records every message read from now on to journal, or stops recording when journal is null.
+     *  The journal is not closed by the reader. */
+    public void setJournal(EJournalRecorder journal) {
+    	m_journal = journal;
+    }
+
+    /** Skips messages the application does not consume; null (the default) decodes every message.
+     *  The mask may be replaced while messages are being processed. */
+    public void setMessageMask(EMessageMask mask) {
+    	m_processMsgsDecoder.setMessageMask(mask);
+    }
+
+    /** Decodes msgId with handler instead of the built-in decoder; null restores the default.
+     *  Handlers must be installed before processMsgs is first called. */
+    public void setMessageHandler(int msgId, EMessageHandler handler) {
+    	m_processMsgsDecoder.setMessageHandler(msgId, handler);
+    }
     
+    /**
+     * Starts reading on a virtual thread when virtualThread is set and the JDK has them, see EThreads,
+     * and on this thread otherwise. On a virtual thread this EReader is never started itself, so its
+     * isAlive() is false and join() returns at once; Thread makes both final, so they cannot follow the
+     * virtual thread. Wait for the returned thread, or thread(), instead.
+     * @return the thread the reader runs on
+     */
+    public synchronized Thread start(boolean virtualThread) {
+    	if (!virtualThread || !EThreads.isVirtualAvailable()) {
+    		start();
+    		return this;
+    	}
+    	if (m_runner != null || isAlive()) {
+    		throw new IllegalThreadStateException("reader already started");
+    	}
+    	m_runner = EThreads.startThread(getName(), true, this);
+    	return m_runner;
+    }
+
+    @Override
+    public synchronized void start() {
+    	if (m_runner != null) {
+    		throw new IllegalThreadStateException("reader runs on " + m_runner);
+    	}
+    	super.start();
+    }
+
+    /** The thread reading messages: the virtual thread after start(true), otherwise this one. */
+    public Thread thread() {
+    	Thread runner = m_runner;
+    	return runner != null ? runner : this;
+    }
+
+    @Override
+    public void interrupt() {
+    	Thread runner = m_runner;
+    	if (runner != null) {
+    		runner.interrupt();
+    	}
+    	super.interrupt();
+    }
+
     /**
      * Read and put messages to the msg queue until interrupted or TWS closes connection.
      */
@@ -53,7 +136,7 @@ public class EReader extends Thread {
     public void run() {
         try {
             // loop until thread is terminated
-            while (!isInterrupted()) {
+            while (!Thread.currentThread().isInterrupted()) {
             	if (!putMessageToQueue())
             		break;
             }
@@ -81,19 +164,28 @@ public class EReader extends Thread {
 		if (msg == null)
 			return false;
 		
-		synchronized(m_msgQueue) {
-			m_msgQueue.addFirst(msg);
+		EJournalRecorder journal = m_journal;
+		
+		if (journal != null) {
+			try {
+				journal.record(msg);
+			}
+			catch (IOException e) {
+				// losing the journal must not cost the connection
+				m_journal = null;
+				eWrapper().error(e);
+			}
 		}
 		
+		m_msgQueue.put(msg);
+		
 		m_signal.issueSignal();
 		
 		return true;
 	}   
 
 	protected EMessage getMsg() {
-    	synchronized (m_msgQueue) {
-    		return m_msgQueue.isEmpty() ? null : m_msgQueue.removeLast();
-		}
+    	return m_msgQueue.poll();
     }
 	
     static final int MAX_MSG_LENGTH = 0xffffff;
@@ -116,6 +208,11 @@ public class EReader extends Thread {
 
 	private EMessage readSingleMessage() throws IOException {
 		if (isUseV100Plus()) {
+			// the connection decides, not the setting: eConnect(Socket, int) uses a stream even with it set
+			if (m_clientSocket.isNioConnection()) {
+				return readFrame();
+			}
+			
 			int msgSize = 0;
 			try {
 				msgSize = m_clientSocket.readInt();
@@ -141,58 +238,81 @@ public class EReader extends Thread {
 				offset += m_clientSocket.read(buf, offset, msgSize - offset);
 			}
 						
-			return new EMessage(buf, buf.length);
+			return EMessage.wrap(buf, 0, msgSize);
 		}
 		
-		if (m_iBufLen == 0) {
-			m_iBufLen = appendIBuf();
-		}
+		while (true) {
+			if (m_iBufEnd > m_iBufStart) {
+				int msgSize = m_frameScanner.scan(m_iBuf, m_iBufStart, m_iBufEnd, m_clientSocket.serverVersion());
 				
-		int msgSize;
-		
-		while (true)
-			try {
-				msgSize = 0;
-				if (m_iBufLen > 0) {
-				  try (EDecoder decoder = new EDecoder(m_clientSocket.serverVersion(), defaultWrapper)) {
-				    msgSize = decoder.processMsg(new EMessage(m_iBuf, m_iBufLen));
-				  }
-				}
-				break;
-			} catch (IOException e) {
-				if (m_iBufLen >= m_iBuf.length * 3/4) {
-					byte[] tmp = new byte[m_iBuf.length * 2];
+				if (msgSize == 0)
+					return null;
+				
+				if (msgSize > 0) {
+					EMessage msg = EMessage.wrap(Arrays.copyOfRange(m_iBuf, m_iBufStart, m_iBufStart + msgSize), 0, msgSize);
 					
-					System.arraycopy(m_iBuf, 0, tmp, 0, m_iBuf.length);
+					m_iBufStart += msgSize;
 					
-					m_iBuf = tmp;
+					if (m_iBufStart == m_iBufEnd) {
+						m_iBufStart = m_iBufEnd = 0;
+					}
+					
+					return msg;
 				}
-				
-				m_iBufLen += appendIBuf();
 			}
+			
+			makeRoomInIBuf();
+			
+			int n = appendIBuf();
+			
+			if (n < 0) {
+				parent().connectionError();
+				parent().eDisconnect();
+				return null;
+			}
+			
+			m_iBufEnd += n;
+		}
+	}
+
+	/** Makes the tail of the input buffer writable. Only the unconsumed bytes, i.e. the part of a
+	 *  message that straddled the previous read, are moved; the buffer grows when a single message
+	 *  fills it and shrinks back once it is drained. */
+	private void makeRoomInIBuf() {
+		if (m_iBufStart == m_iBufEnd && m_iBuf.length > IN_BUF_SIZE_DEFAULT) {
+			m_iBuf = new byte[IN_BUF_SIZE_DEFAULT];
+			m_iBufStart = m_iBufEnd = 0;
+		}
 		
-		if (msgSize == 0)
-			return null;
-		
-		
-		EMessage msg = new EMessage(m_iBuf, msgSize);
-		
-		System.arraycopy(Arrays.copyOfRange(m_iBuf, msgSize, m_iBuf.length), 0, m_iBuf, 0, m_iBuf.length - msgSize);
+		if (m_iBufEnd < m_iBuf.length) {
+			return;
+		}
 		
-		m_iBufLen -= msgSize;
+		int pending = m_iBufEnd - m_iBufStart;
+		byte[] target = pending > m_iBuf.length / 2 ? new byte[m_iBuf.length * 2] : m_iBuf;
 		
-		if (m_iBufLen < IN_BUF_SIZE_DEFAULT && m_iBuf.length > IN_BUF_SIZE_DEFAULT) {
-			byte[] tmp = new byte[IN_BUF_SIZE_DEFAULT];
-			
-			System.arraycopy(m_iBuf, 0, tmp, 0, tmp.length);
-			
-			m_iBuf = tmp;
-		}			
+		System.arraycopy(m_iBuf, m_iBufStart, target, 0, pending);
 		
-		return msg;
+		m_iBuf = target;
+		m_iBufStart = 0;
+		m_iBufEnd = pending;
+	}
+
+	private EMessage readFrame() throws IOException {
+		try {
+			return m_clientSocket.readFrame();
+		}
+		catch (EOFException ex) {
+			parent().connectionError();
+			parent().eDisconnect();
+			return null;
+		}
+		catch (ClosedChannelException ex) {
+			return null;
+		}
 	}
 
 	protected int appendIBuf() throws IOException {
-		return m_clientSocket.read(m_iBuf, m_iBufLen, m_iBuf.length - m_iBufLen);
+		return m_clientSocket.read(m_iBuf, m_iBufEnd, m_iBuf.length - m_iBufEnd);
 	}   
 }
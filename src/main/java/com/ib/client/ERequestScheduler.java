@@ -0,0 +1,297 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Paces outbound requests so the application can issue them as they arise instead of sleeping
+ *  between them. Requests are queued by priority (orders and cancels, then market data, then
+ *  historical data), FIFO within a priority, and released by one thread no faster than:
+ *  <ul>
+ *  <li>the message rate, 50 per second by default, as a token bucket of one second</li>
+ *  <li>for historical requests, TWS's pacing rules: at most 60 in any 10 minutes, no identical
+ *  request within 15 seconds, and at most 5 for the same contract, exchange and data type within
+ *  2 seconds</li>
+ *  </ul>
+ *  A historical request held back by the identical or same-contract rule does not block the
+ *  historical requests behind it. Each request is assumed to send one message. */
+public class ERequestScheduler implements Closeable {
+    public enum Priority { ORDER, MARKET_DATA, HISTORY }
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int HISTORICAL_PER_WINDOW = 60;
+    private static final long HISTORICAL_WINDOW = TimeUnit.MINUTES.toNanos(10);
+    private static final long IDENTICAL_INTERVAL = TimeUnit.SECONDS.toNanos(15);
+    private static final int SAME_CONTRACT_PER_WINDOW = 5;
+    private static final long SAME_CONTRACT_WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    private final ReentrantLock m_lock = new ReentrantLock();
+    private final Condition m_changed = m_lock.newCondition();
+    private final PriorityQueue<Request> m_queue = new PriorityQueue<>();
+    private final ArrayDeque<Long> m_historicalSent = new ArrayDeque<>();
+    private final Map<String, Long> m_identicalSent = new HashMap<>();
+    private final Map<String, ArrayDeque<Long>> m_contractSent = new HashMap<>();
+    private final double m_messagesPerSecond;
+    private final Thread m_thread;
+    private double m_tokens;
+    private long m_refilled;
+    private long m_sequence;
+    private volatile boolean m_closed;
+
+    private static class Request implements Comparable<Request> {
+        final Priority m_priority;
+        final long m_sequence;
+        final Runnable m_send;
+        final String m_identity;  // historical requests only
+        final String m_contract;  // historical requests only
+        final CompletableFuture<Void> m_sent = new CompletableFuture<>();
+
+        Request(Priority priority, long sequence, Runnable send, String identity, String contract) {
+            m_priority = priority;
+            m_sequence = sequence;
+            m_send = send;
+            m_identity = identity;
+            m_contract = contract;
+        }
+
+        @Override
+        public int compareTo(Request o) {
+            int c = m_priority.compareTo(o.m_priority);
+            return c != 0 ? c : Long.compare(m_sequence, o.m_sequence);
+        }
+    }
+
+    public ERequestScheduler() {
+        this(50);
+    }
+
+    public ERequestScheduler(double messagesPerSecond) {
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("message rate must be positive: " + messagesPerSecond);
+        }
+        m_messagesPerSecond = messagesPerSecond;
+        m_tokens = messagesPerSecond;
+        m_refilled = System.nanoTime();
+        m_thread = EThreads.newThread("ERequestScheduler", false, this::run);
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /** Queues a request; the future completes after send ran, or exceptionally if it threw or the scheduler was closed.
+     *  A HISTORY request counts against the 60 per 10 minutes only; use submitHistorical for the other rules. */
+    public CompletableFuture<Void> submit(Priority priority, Runnable send) {
+        return add(priority, send, null, null);
+    }
+
+    /** Queues a historical request subject to the historical pacing rules.
+     *  @param identity equal for requests TWS would consider identical, e.g. all parameters but the request id */
+    public CompletableFuture<Void> submitHistorical(Contract contract, String whatToShow, String identity, Runnable send) {
+        String key = contract.conid() + ":" + contract.symbol() + ":" + contract.secType() + ":" + contract.exchange() + ":" + whatToShow;
+        return add(Priority.HISTORY, send, key + ":" + identity, key);
+    }
+
+    /** EClient.reqHistoricalData through the scheduler. */
+    public CompletableFuture<Void> reqHistoricalData(EClient client, int tickerId, Contract contract, String endDateTime,
+            String durationStr, String barSizeSetting, String whatToShow, int useRTH, int formatDate,
+            boolean keepUpToDate, List<TagValue> chartOptions) {
+        String identity = endDateTime + ":" + durationStr + ":" + barSizeSetting + ":" + useRTH + ":" + keepUpToDate;
+        return submitHistorical(contract, whatToShow, identity, () -> client.reqHistoricalData(tickerId, contract,
+                endDateTime, durationStr, barSizeSetting, whatToShow, useRTH, formatDate, keepUpToDate, chartOptions));
+    }
+
+    public int queued() {
+        m_lock.lock();
+        try {
+            return m_queue.size();
+        }
+        finally {
+            m_lock.unlock();
+        }
+    }
+
+    /** Stops releasing requests; those still queued fail. */
+    @Override
+    public void close() {
+        m_lock.lock();
+        try {
+            m_closed = true;
+            m_changed.signalAll();
+        }
+        finally {
+            m_lock.unlock();
+        }
+    }
+
+    private CompletableFuture<Void> add(Priority priority, Runnable send, String identity, String contract) {
+        m_lock.lock();
+        try {
+            Request request = new Request(priority, m_sequence++, send, identity, contract);
+
+            if (m_closed) {
+                request.m_sent.completeExceptionally(new IllegalStateException("scheduler is closed"));
+            }
+            else {
+                m_queue.add(request);
+                m_changed.signalAll();
+            }
+            return request.m_sent;
+        }
+        finally {
+            m_lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Request request;
+
+            m_lock.lock();
+            try {
+                request = next();
+                if (request == null) {
+                    for (Request r : m_queue) {
+                        r.m_sent.completeExceptionally(new IllegalStateException("scheduler is closed"));
+                    }
+                    m_queue.clear();
+                    return;
+                }
+            }
+            finally {
+                m_lock.unlock();
+            }
+
+            try {
+                request.m_send.run();
+                request.m_sent.complete(null);
+            }
+            catch (RuntimeException e) {
+                request.m_sent.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** Waits for a request that may be sent now, books it against the limits and removes it from the
+     *  queue; null once closed. Called with the lock held. */
+    private Request next() {
+        while (!m_closed) {
+            long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+
+            refill(now);
+
+            if (!m_queue.isEmpty()) {
+                if (m_tokens < 1) {
+                    wait = (long)((1 - m_tokens) * SECOND / m_messagesPerSecond);
+                }
+                else {
+                    Request request = null;
+
+                    for (Iterator<Request> it = sorted(); it.hasNext(); ) {
+                        Request r = it.next();
+                        long until = r.m_priority == Priority.HISTORY ? historicalWait(r, now) : 0;
+
+                        if (until == 0) {
+                            request = r;
+                            break;
+                        }
+                        wait = Math.min(wait, until);
+                    }
+
+                    if (request != null) {
+                        m_queue.remove(request);
+                        m_tokens -= 1;
+                        if (request.m_priority == Priority.HISTORY) {
+                            bookHistorical(request, now);
+                        }
+                        return request;
+                    }
+                }
+            }
+
+            try {
+                if (wait == Long.MAX_VALUE) {
+                    m_changed.await();
+                }
+                else {
+                    m_changed.awaitNanos(wait);
+                }
+            }
+            catch (InterruptedException e) {
+                m_closed = true;
+            }
+        }
+        return null;
+    }
+
+    /** Queued requests in release order; the queue holds at most a few hundred, so sorting a copy is cheap. */
+    private Iterator<Request> sorted() {
+        Request[] requests = m_queue.toArray(new Request[0]);
+        Arrays.sort(requests);
+        return Arrays.asList(requests).iterator();
+    }
+
+    private void refill(long now) {
+        m_tokens = Math.min(m_messagesPerSecond, m_tokens + (now - m_refilled) * m_messagesPerSecond / SECOND);
+        m_refilled = now;
+    }
+
+    /** Nanoseconds until the historical pacing rules allow request, 0 if it may go now. */
+    private long historicalWait(Request request, long now) {
+        long wait = 0;
+
+        trim(m_historicalSent, now - HISTORICAL_WINDOW);
+        if (m_historicalSent.size() >= HISTORICAL_PER_WINDOW) {
+            wait = m_historicalSent.peekFirst() + HISTORICAL_WINDOW - now;
+        }
+
+        if (request.m_identity == null) {
+            return Math.max(wait, 0);   // plain submit(HISTORY, ...)
+        }
+
+        Long identical = m_identicalSent.get(request.m_identity);
+        if (identical != null && now - identical < IDENTICAL_INTERVAL) {
+            wait = Math.max(wait, identical + IDENTICAL_INTERVAL - now);
+        }
+
+        ArrayDeque<Long> sameContract = m_contractSent.get(request.m_contract);
+        if (sameContract != null) {
+            trim(sameContract, now - SAME_CONTRACT_WINDOW);
+            if (sameContract.size() >= SAME_CONTRACT_PER_WINDOW) {
+                wait = Math.max(wait, sameContract.peekFirst() + SAME_CONTRACT_WINDOW - now);
+            }
+        }
+        return Math.max(wait, 0);
+    }
+
+    private void bookHistorical(Request request, long now) {
+        m_historicalSent.addLast(now);
+        if (request.m_identity == null) {
+            return;
+        }
+        m_identicalSent.put(request.m_identity, now);
+        m_identicalSent.values().removeIf(sent -> now - sent >= IDENTICAL_INTERVAL);
+        m_contractSent.values().removeIf(sent -> {
+            trim(sent, now - SAME_CONTRACT_WINDOW);
+            return sent.isEmpty();
+        });
+        m_contractSent.computeIfAbsent(request.m_contract, k -> new ArrayDeque<>()).addLast(now);
+    }
+
+    private static void trim(ArrayDeque<Long> sent, long before) {
+        while (!sent.isEmpty() && sent.peekFirst() <= before) {
+            sent.pollFirst();
+        }
+    }
+}
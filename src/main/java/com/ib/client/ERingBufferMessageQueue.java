@@ -0,0 +1,108 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** Bounded single-producer/single-consumer ring buffer. Slots are pre-allocated and the two
+ *  sequences are published with ordered stores, so the hand-off takes no lock and allocates
+ *  nothing per message. When the ring is full the reader thread backs off until the
+ *  processing thread catches up, which in turn applies TCP back-pressure to TWS. */
+public class ERingBufferMessageQueue implements EMessageQueue {
+	private static final int SPINS_WHEN_FULL = 100;
+	private static final long PARK_NANOS_WHEN_FULL = 1000;
+
+	private final EMessage[] m_ring;
+	private final int m_mask;
+	private final Sequence m_head = new Sequence(); // next slot to poll, written by the consumer
+	private final Sequence m_tail = new Sequence(); // next slot to fill, written by the producer
+	private long m_cachedHead = 0;                  // producer's last view of m_head
+	private volatile int m_highWaterMark = 0;
+
+	/** @param capacity rounded up to a power of two */
+	public ERingBufferMessageQueue(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		m_ring = new EMessage[size];
+		m_mask = size - 1;
+	}
+
+	@Override
+	public void put(EMessage msg) throws InterruptedIOException {
+		long tail = m_tail.get();
+
+		if (tail - m_cachedHead >= m_ring.length) {
+			m_cachedHead = m_head.get();
+
+			for (int spins = 0; tail - m_cachedHead >= m_ring.length; m_cachedHead = m_head.get()) {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException("interrupted while the message queue was full");
+				}
+				if (++spins < SPINS_WHEN_FULL) {
+					Thread.onSpinWait();
+				}
+				else {
+					LockSupport.parkNanos(PARK_NANOS_WHEN_FULL);
+				}
+			}
+		}
+
+		m_ring[(int)tail & m_mask] = msg;
+		m_tail.lazySet(tail + 1);
+
+		int depth = (int)(tail + 1 - m_cachedHead);
+		if (depth > m_highWaterMark) {
+			depth = (int)(tail + 1 - (m_cachedHead = m_head.get()));
+			if (depth > m_highWaterMark) {
+				m_highWaterMark = depth;
+			}
+		}
+	}
+
+	@Override
+	public EMessage poll() {
+		long head = m_head.get();
+
+		if (head == m_tail.get()) {
+			return null;
+		}
+
+		int slot = (int)head & m_mask;
+		EMessage msg = m_ring[slot];
+
+		m_ring[slot] = null;
+		m_head.lazySet(head + 1);
+
+		return msg;
+	}
+
+	@Override
+	public int size() {
+		long head = m_head.get();
+		return (int)(m_tail.get() - head);
+	}
+
+	@Override
+	public int highWaterMark() {
+		return m_highWaterMark;
+	}
+
+	public int capacity() {
+		return m_ring.length;
+	}
+
+	/** Keeps the two sequences on separate cache lines. */
+	@SuppressWarnings("unused")
+	private static final class Sequence extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		private long p1, p2, p3, p4, p5, p6, p7;
+	}
+}
@@ -0,0 +1,574 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** EWrapper that hands every callback to one of N worker threads and calls the target wrapper
+ *  there, so a slow handler for one request no longer holds up the others. Callbacks are routed
+ *  by the hash of their reqId, tickerId or orderId; callbacks for the same key run on the same
+ *  worker in the order they were decoded. Callbacks that carry no key (account and portfolio
+ *  updates, positions, openOrderEnd, commissionReport, connection events, ...) all run on shard 0,
+ *  in order among themselves. There is no ordering between different keys, so an End callback
+ *  without a key may be delivered before the data of another key.
+ *
+ *  Pass it to EClientSocket in place of the application's wrapper; the target must be thread safe
+ *  for callbacks of different keys. close() stops the workers after the queued callbacks ran. Callbacks
+ *  that arrive later, e.g. while the connection is torn down, are dropped and counted, see
+ *  droppedAfterClose(), except the error callbacks and connectionClosed, which run on the calling thread.
+ *
+ *  This class implements EWrapper only: EDecoder checks for ETickWrapper and ELazyOrderWrapper on the
+ *  wrapper it is given, so a target implementing them gets the eager callbacks when sharded. */
+public class EShardedWrapper implements EWrapper, Closeable {
+    private static final Runnable STOP = () -> { };
+
+    private final EWrapper m_wrapper;
+    private final Shard[] m_shards;
+    private final AtomicLong m_droppedAfterClose = new AtomicLong();
+
+    /** One worker thread and its queue. */
+    private final class Shard extends Thread {
+        private final LinkedBlockingQueue<Runnable> m_queue = new LinkedBlockingQueue<>();
+        private final AtomicInteger m_depth = new AtomicInteger();
+        private final AtomicLong m_dispatched = new AtomicLong();
+        private volatile int m_highWaterMark;
+        private final Object m_lock = new Object();  // not the Thread's monitor, which join() uses
+        private boolean m_stopped;                    // under m_lock, so nothing is queued behind STOP
+
+        Shard(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        /** @return false, without queuing callback, once the shard is stopped */
+        boolean add(Runnable callback) {
+            synchronized (m_lock) {
+                if (m_stopped) {
+                    return false;
+                }
+                int depth = m_depth.incrementAndGet();
+
+                if (depth > m_highWaterMark) {
+                    m_highWaterMark = depth;
+                }
+                m_queue.add(callback);
+                return true;
+            }
+        }
+
+        void shutdown() {
+            synchronized (m_lock) {
+                if (!m_stopped) {
+                    m_stopped = true;
+                    m_queue.add(STOP);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable callback;
+
+                try {
+                    callback = m_queue.take();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                if (callback == STOP) {
+                    return;
+                }
+                m_depth.decrementAndGet();
+
+                try {
+                    callback.run();
+                }
+                catch (Exception e) {
+                    m_wrapper.error(e);
+                }
+                m_dispatched.incrementAndGet();
+            }
+        }
+    }
+
+    public EShardedWrapper(EWrapper wrapper, int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        m_wrapper = wrapper;
+        m_shards = new Shard[workers];
+
+        for (int i = 0; i < workers; i++) {
+            m_shards[i] = new Shard("EWrapper shard " + i);
+            m_shards[i].start();
+        }
+    }
+
+    public EWrapper wrapper() {
+        return m_wrapper;
+    }
+
+    public int shards() {
+        return m_shards.length;
+    }
+
+    /** Shard the callbacks of the given reqId, tickerId or orderId run on. */
+    public int shardOf(int key) {
+        int h = key * 0x9E3779B9; // spreads consecutive ids over the shards
+        return Math.floorMod(h ^ (h >>> 16), m_shards.length);
+    }
+
+    /** Callbacks queued on the shard and not yet started. */
+    public int queueDepth(int shard) {
+        return m_shards[shard].m_depth.get();
+    }
+
+    /** Largest queue depth seen on the shard. */
+    public int queueHighWaterMark(int shard) {
+        return m_shards[shard].m_highWaterMark;
+    }
+
+    /** Callbacks completed on the shard. */
+    public long dispatched(int shard) {
+        return m_shards[shard].m_dispatched.get();
+    }
+
+    /** Callbacks dropped because they arrived after close(). */
+    public long droppedAfterClose() {
+        return m_droppedAfterClose.get();
+    }
+
+    /** Stops accepting work and waits up to timeoutMillis for the queued callbacks to run.
+     *  @return true if every worker finished in time. */
+    public boolean close(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        for (Shard shard : m_shards) {
+            shard.shutdown();
+        }
+        for (Shard shard : m_shards) {
+            shard.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (shard.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Stops the workers once the callbacks queued so far have run, without waiting. */
+    @Override
+    public void close() {
+        for (Shard shard : m_shards) {
+            shard.shutdown();
+        }
+    }
+
+    // never throws into EDecoder: an exception there would end the reader or processing thread
+    private void dispatch(int key, Runnable callback) {
+        if (!m_shards[shardOf(key)].add(callback)) {
+            m_droppedAfterClose.incrementAndGet();
+        }
+    }
+
+    private void dispatch(Runnable callback) {
+        if (!m_shards[0].add(callback)) {
+            m_droppedAfterClose.incrementAndGet();
+        }
+    }
+
+    /** Connection events still reach the target after close(), on the calling thread. */
+    private void dispatchOrRun(Shard shard, Runnable callback) {
+        if (!shard.add(callback)) {
+            callback.run();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////
+    // Keyed callbacks
+    ///////////////////////////////////////////////////////////////////////
+    @Override public void tickPrice(int tickerId, int field, double price, TickAttrib attrib) {
+        dispatch(tickerId, () -> m_wrapper.tickPrice(tickerId, field, price, attrib));
+    }
+
+    @Override public void tickSize(int tickerId, int field, long size) {
+        dispatch(tickerId, () -> m_wrapper.tickSize(tickerId, field, size));
+    }
+
+    @Override public void tickOptionComputation(int tickerId, int field, int tickAttrib, double impliedVol,
+            double delta, double optPrice, double pvDividend, double gamma, double vega, double theta, double undPrice) {
+        dispatch(tickerId, () -> m_wrapper.tickOptionComputation(tickerId, field, tickAttrib, impliedVol,
+                delta, optPrice, pvDividend, gamma, vega, theta, undPrice));
+    }
+
+    @Override public void tickGeneric(int tickerId, int tickType, double value) {
+        dispatch(tickerId, () -> m_wrapper.tickGeneric(tickerId, tickType, value));
+    }
+
+    @Override public void tickString(int tickerId, int tickType, String value) {
+        dispatch(tickerId, () -> m_wrapper.tickString(tickerId, tickType, value));
+    }
+
+    @Override public void tickEFP(int tickerId, int tickType, double basisPoints, String formattedBasisPoints,
+            double impliedFuture, int holdDays, String futureLastTradeDate, double dividendImpact,
+            double dividendsToLastTradeDate) {
+        dispatch(tickerId, () -> m_wrapper.tickEFP(tickerId, tickType, basisPoints, formattedBasisPoints,
+                impliedFuture, holdDays, futureLastTradeDate, dividendImpact, dividendsToLastTradeDate));
+    }
+
+    @Override public void orderStatus(int orderId, String status, double filled, double remaining,
+            double avgFillPrice, int permId, int parentId, double lastFillPrice, int clientId, String whyHeld,
+            double mktCapPrice) {
+        dispatch(orderId, () -> m_wrapper.orderStatus(orderId, status, filled, remaining, avgFillPrice, permId,
+                parentId, lastFillPrice, clientId, whyHeld, mktCapPrice));
+    }
+
+    @Override public void openOrder(int orderId, Contract contract, Order order, OrderState orderState) {
+        dispatch(orderId, () -> m_wrapper.openOrder(orderId, contract, order, orderState));
+    }
+
+    @Override public void contractDetails(int reqId, ContractDetails contractDetails) {
+        dispatch(reqId, () -> m_wrapper.contractDetails(reqId, contractDetails));
+    }
+
+    @Override public void bondContractDetails(int reqId, ContractDetails contractDetails) {
+        dispatch(reqId, () -> m_wrapper.bondContractDetails(reqId, contractDetails));
+    }
+
+    @Override public void contractDetailsEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.contractDetailsEnd(reqId));
+    }
+
+    /** Keyed by the execution's orderId, not reqId, which is -1 for executions TWS sends on its own,
+     *  so a fill stays in order with openOrder and orderStatus of its order. execDetailsEnd is keyed
+     *  by reqId and so may run before the executions of that request. */
+    @Override public void execDetails(int reqId, Contract contract, Execution execution) {
+        dispatch(execution.orderId(), () -> m_wrapper.execDetails(reqId, contract, execution));
+    }
+
+    @Override public void execDetailsEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.execDetailsEnd(reqId));
+    }
+
+    @Override public void updateMktDepth(int tickerId, int position, int operation, int side, double price, long size) {
+        dispatch(tickerId, () -> m_wrapper.updateMktDepth(tickerId, position, operation, side, price, size));
+    }
+
+    @Override public void updateMktDepthL2(int tickerId, int position, String marketMaker, int operation,
+            int side, double price, long size, boolean isSmartDepth) {
+        dispatch(tickerId, () -> m_wrapper.updateMktDepthL2(tickerId, position, marketMaker, operation,
+                side, price, size, isSmartDepth));
+    }
+
+    @Override public void historicalData(int reqId, Bar bar) {
+        dispatch(reqId, () -> m_wrapper.historicalData(reqId, bar));
+    }
+
+    @Override public void scannerData(int reqId, int rank, ContractDetails contractDetails, String distance,
+            String benchmark, String projection, String legsStr) {
+        dispatch(reqId, () -> m_wrapper.scannerData(reqId, rank, contractDetails, distance, benchmark, projection, legsStr));
+    }
+
+    @Override public void scannerDataEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.scannerDataEnd(reqId));
+    }
+
+    @Override public void realtimeBar(int reqId, long time, double open, double high, double low, double close,
+            long volume, double wap, int count) {
+        dispatch(reqId, () -> m_wrapper.realtimeBar(reqId, time, open, high, low, close, volume, wap, count));
+    }
+
+    @Override public void fundamentalData(int reqId, String data) {
+        dispatch(reqId, () -> m_wrapper.fundamentalData(reqId, data));
+    }
+
+    @Override public void deltaNeutralValidation(int reqId, DeltaNeutralContract deltaNeutralContract) {
+        dispatch(reqId, () -> m_wrapper.deltaNeutralValidation(reqId, deltaNeutralContract));
+    }
+
+    @Override public void tickSnapshotEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.tickSnapshotEnd(reqId));
+    }
+
+    @Override public void marketDataType(int reqId, int marketDataType) {
+        dispatch(reqId, () -> m_wrapper.marketDataType(reqId, marketDataType));
+    }
+
+    @Override public void accountSummary(int reqId, String account, String tag, String value, String currency) {
+        dispatch(reqId, () -> m_wrapper.accountSummary(reqId, account, tag, value, currency));
+    }
+
+    @Override public void accountSummaryEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.accountSummaryEnd(reqId));
+    }
+
+    @Override public void displayGroupList(int reqId, String groups) {
+        dispatch(reqId, () -> m_wrapper.displayGroupList(reqId, groups));
+    }
+
+    @Override public void displayGroupUpdated(int reqId, String contractInfo) {
+        dispatch(reqId, () -> m_wrapper.displayGroupUpdated(reqId, contractInfo));
+    }
+
+    @Override public void error(int id, int errorCode, String errorMsg) {
+        dispatchOrRun(m_shards[shardOf(id)], () -> m_wrapper.error(id, errorCode, errorMsg));
+    }
+
+    @Override public void positionMulti(int reqId, String account, String modelCode, Contract contract, double pos,
+            double avgCost) {
+        dispatch(reqId, () -> m_wrapper.positionMulti(reqId, account, modelCode, contract, pos, avgCost));
+    }
+
+    @Override public void positionMultiEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.positionMultiEnd(reqId));
+    }
+
+    @Override public void accountUpdateMulti(int reqId, String account, String modelCode, String key, String value,
+            String currency) {
+        dispatch(reqId, () -> m_wrapper.accountUpdateMulti(reqId, account, modelCode, key, value, currency));
+    }
+
+    @Override public void accountUpdateMultiEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.accountUpdateMultiEnd(reqId));
+    }
+
+    @Override public void securityDefinitionOptionalParameter(int reqId, String exchange, int underlyingConId,
+            String tradingClass, String multiplier, Set<String> expirations, Set<Double> strikes) {
+        dispatch(reqId, () -> m_wrapper.securityDefinitionOptionalParameter(reqId, exchange, underlyingConId,
+                tradingClass, multiplier, expirations, strikes));
+    }
+
+    @Override public void securityDefinitionOptionalParameterEnd(int reqId) {
+        dispatch(reqId, () -> m_wrapper.securityDefinitionOptionalParameterEnd(reqId));
+    }
+
+    @Override public void softDollarTiers(int reqId, SoftDollarTier[] tiers) {
+        dispatch(reqId, () -> m_wrapper.softDollarTiers(reqId, tiers));
+    }
+
+    @Override public void symbolSamples(int reqId, ContractDescription[] contractDescriptions) {
+        dispatch(reqId, () -> m_wrapper.symbolSamples(reqId, contractDescriptions));
+    }
+
+    @Override public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
+        dispatch(reqId, () -> m_wrapper.historicalDataEnd(reqId, startDateStr, endDateStr));
+    }
+
+    @Override public void tickNews(int tickerId, long timeStamp, String providerCode, String articleId,
+            String headline, String extraData) {
+        dispatch(tickerId, () -> m_wrapper.tickNews(tickerId, timeStamp, providerCode, articleId, headline, extraData));
+    }
+
+    @Override public void smartComponents(int reqId, Map<Integer, Entry<String, Character>> theMap) {
+        dispatch(reqId, () -> m_wrapper.smartComponents(reqId, theMap));
+    }
+
+    @Override public void tickReqParams(int tickerId, double minTick, String bboExchange, int snapshotPermissions) {
+        dispatch(tickerId, () -> m_wrapper.tickReqParams(tickerId, minTick, bboExchange, snapshotPermissions));
+    }
+
+    @Override public void newsArticle(int requestId, int articleType, String articleText) {
+        dispatch(requestId, () -> m_wrapper.newsArticle(requestId, articleType, articleText));
+    }
+
+    @Override public void historicalNews(int requestId, String time, String providerCode, String articleId,
+            String headline) {
+        dispatch(requestId, () -> m_wrapper.historicalNews(requestId, time, providerCode, articleId, headline));
+    }
+
+    @Override public void historicalNewsEnd(int requestId, boolean hasMore) {
+        dispatch(requestId, () -> m_wrapper.historicalNewsEnd(requestId, hasMore));
+    }
+
+    @Override public void headTimestamp(int reqId, String headTimestamp) {
+        dispatch(reqId, () -> m_wrapper.headTimestamp(reqId, headTimestamp));
+    }
+
+    @Override public void histogramData(int reqId, List<HistogramEntry> items) {
+        dispatch(reqId, () -> m_wrapper.histogramData(reqId, items));
+    }
+
+    @Override public void historicalDataUpdate(int reqId, Bar bar) {
+        dispatch(reqId, () -> m_wrapper.historicalDataUpdate(reqId, bar));
+    }
+
+    @Override public void rerouteMktDataReq(int reqId, int conId, String exchange) {
+        dispatch(reqId, () -> m_wrapper.rerouteMktDataReq(reqId, conId, exchange));
+    }
+
+    @Override public void rerouteMktDepthReq(int reqId, int conId, String exchange) {
+        dispatch(reqId, () -> m_wrapper.rerouteMktDepthReq(reqId, conId, exchange));
+    }
+
+    @Override public void pnl(int reqId, double dailyPnL, double unrealizedPnL, double realizedPnL) {
+        dispatch(reqId, () -> m_wrapper.pnl(reqId, dailyPnL, unrealizedPnL, realizedPnL));
+    }
+
+    @Override public void pnlSingle(int reqId, int pos, double dailyPnL, double unrealizedPnL, double realizedPnL,
+            double value) {
+        dispatch(reqId, () -> m_wrapper.pnlSingle(reqId, pos, dailyPnL, unrealizedPnL, realizedPnL, value));
+    }
+
+    @Override public void historicalTicks(int reqId, List<HistoricalTick> ticks, boolean done) {
+        dispatch(reqId, () -> m_wrapper.historicalTicks(reqId, ticks, done));
+    }
+
+    @Override public void historicalTicksBidAsk(int reqId, List<HistoricalTickBidAsk> ticks, boolean done) {
+        dispatch(reqId, () -> m_wrapper.historicalTicksBidAsk(reqId, ticks, done));
+    }
+
+    @Override public void historicalTicksLast(int reqId, List<HistoricalTickLast> ticks, boolean done) {
+        dispatch(reqId, () -> m_wrapper.historicalTicksLast(reqId, ticks, done));
+    }
+
+    @Override public void tickByTickAllLast(int reqId, int tickType, long time, double price, long size,
+            TickAttribLast tickAttribLast, String exchange, String specialConditions) {
+        dispatch(reqId, () -> m_wrapper.tickByTickAllLast(reqId, tickType, time, price, size, tickAttribLast,
+                exchange, specialConditions));
+    }
+
+    @Override public void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, long bidSize,
+            long askSize, TickAttribBidAsk tickAttribBidAsk) {
+        dispatch(reqId, () -> m_wrapper.tickByTickBidAsk(reqId, time, bidPrice, askPrice, bidSize, askSize,
+                tickAttribBidAsk));
+    }
+
+    @Override public void tickByTickMidPoint(int reqId, long time, double midPoint) {
+        dispatch(reqId, () -> m_wrapper.tickByTickMidPoint(reqId, time, midPoint));
+    }
+
+    /** Keyed by apiOrderId so it stays in order with openOrder and orderStatus of that order. */
+    @Override public void orderBound(long orderId, int apiClientId, int apiOrderId) {
+        dispatch(apiOrderId, () -> m_wrapper.orderBound(orderId, apiClientId, apiOrderId));
+    }
+
+    @Override public void replaceFAEnd(int reqId, String text) {
+        dispatch(reqId, () -> m_wrapper.replaceFAEnd(reqId, text));
+    }
+
+    ///////////////////////////////////////////////////////////////////////
+    // Callbacks without a key, on shard 0
+    ///////////////////////////////////////////////////////////////////////
+    @Override public void openOrderEnd() {
+        dispatch(() -> m_wrapper.openOrderEnd());
+    }
+
+    @Override public void updateAccountValue(String key, String value, String currency, String accountName) {
+        dispatch(() -> m_wrapper.updateAccountValue(key, value, currency, accountName));
+    }
+
+    @Override public void updatePortfolio(Contract contract, double position, double marketPrice, double marketValue,
+            double averageCost, double unrealizedPNL, double realizedPNL, String accountName) {
+        dispatch(() -> m_wrapper.updatePortfolio(contract, position, marketPrice, marketValue, averageCost,
+                unrealizedPNL, realizedPNL, accountName));
+    }
+
+    @Override public void updateAccountTime(String timeStamp) {
+        dispatch(() -> m_wrapper.updateAccountTime(timeStamp));
+    }
+
+    @Override public void accountDownloadEnd(String accountName) {
+        dispatch(() -> m_wrapper.accountDownloadEnd(accountName));
+    }
+
+    @Override public void nextValidId(int orderId) {
+        dispatch(() -> m_wrapper.nextValidId(orderId));
+    }
+
+    @Override public void updateNewsBulletin(int msgId, int msgType, String message, String origExchange) {
+        dispatch(() -> m_wrapper.updateNewsBulletin(msgId, msgType, message, origExchange));
+    }
+
+    @Override public void managedAccounts(String accountsList) {
+        dispatch(() -> m_wrapper.managedAccounts(accountsList));
+    }
+
+    @Override public void receiveFA(int faDataType, String xml) {
+        dispatch(() -> m_wrapper.receiveFA(faDataType, xml));
+    }
+
+    @Override public void scannerParameters(String xml) {
+        dispatch(() -> m_wrapper.scannerParameters(xml));
+    }
+
+    @Override public void currentTime(long time) {
+        dispatch(() -> m_wrapper.currentTime(time));
+    }
+
+    @Override public void commissionReport(CommissionReport commissionReport) {
+        dispatch(() -> m_wrapper.commissionReport(commissionReport));
+    }
+
+    @Override public void position(String account, Contract contract, double pos, double avgCost) {
+        dispatch(() -> m_wrapper.position(account, contract, pos, avgCost));
+    }
+
+    @Override public void positionEnd() {
+        dispatch(() -> m_wrapper.positionEnd());
+    }
+
+    @Override public void verifyMessageAPI(String apiData) {
+        dispatch(() -> m_wrapper.verifyMessageAPI(apiData));
+    }
+
+    @Override public void verifyCompleted(boolean isSuccessful, String errorText) {
+        dispatch(() -> m_wrapper.verifyCompleted(isSuccessful, errorText));
+    }
+
+    @Override public void verifyAndAuthMessageAPI(String apiData, String xyzChallenge) {
+        dispatch(() -> m_wrapper.verifyAndAuthMessageAPI(apiData, xyzChallenge));
+    }
+
+    @Override public void verifyAndAuthCompleted(boolean isSuccessful, String errorText) {
+        dispatch(() -> m_wrapper.verifyAndAuthCompleted(isSuccessful, errorText));
+    }
+
+    @Override public void error(Exception e) {
+        dispatchOrRun(m_shards[0], () -> m_wrapper.error(e));
+    }
+
+    @Override public void error(String str) {
+        dispatchOrRun(m_shards[0], () -> m_wrapper.error(str));
+    }
+
+    @Override public void connectionClosed() {
+        dispatchOrRun(m_shards[0], () -> m_wrapper.connectionClosed());
+    }
+
+    @Override public void connectAck() {
+        dispatch(() -> m_wrapper.connectAck());
+    }
+
+    @Override public void familyCodes(FamilyCode[] familyCodes) {
+        dispatch(() -> m_wrapper.familyCodes(familyCodes));
+    }
+
+    @Override public void mktDepthExchanges(DepthMktDataDescription[] depthMktDataDescriptions) {
+        dispatch(() -> m_wrapper.mktDepthExchanges(depthMktDataDescriptions));
+    }
+
+    @Override public void newsProviders(NewsProvider[] newsProviders) {
+        dispatch(() -> m_wrapper.newsProviders(newsProviders));
+    }
+
+    @Override public void marketRule(int marketRuleId, PriceIncrement[] priceIncrements) {
+        dispatch(() -> m_wrapper.marketRule(marketRuleId, priceIncrements));
+    }
+
+    @Override public void completedOrder(Contract contract, Order order, OrderState orderState) {
+        dispatch(() -> m_wrapper.completedOrder(contract, order, orderState));
+    }
+
+    @Override public void completedOrdersEnd() {
+        dispatch(() -> m_wrapper.completedOrdersEnd());
+    }
+}
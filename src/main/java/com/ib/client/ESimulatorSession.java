@@ -0,0 +1,771 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/** One client connection of ETwsSimulator. Requests are read on the session thread; replies,
+ *  tick streams and fills are framed into an outbound queue that a writer thread drains once
+ *  each message's injected delay has passed. */
+class ESimulatorSession extends Thread {
+    // request ids, as sent by EClient
+    private static final int PLACE_ORDER = 3;
+    private static final int CANCEL_ORDER = 4;
+    private static final int REQ_ACCOUNT_DATA = 6;
+    private static final int REQ_IDS = 8;
+    private static final int REQ_HISTORICAL_DATA = 20;
+    private static final int REQ_CURRENT_TIME = 49;
+    private static final int REQ_POSITIONS = 61;
+    private static final int START_API = 71;
+    private static final int REQ_HEAD_TIMESTAMP = 87;
+    private static final int REQ_TICK_BY_TICK_DATA = 97;
+    private static final int CANCEL_TICK_BY_TICK_DATA = 98;
+
+    private static final int SERVER_VERSION = EClient.MAX_VERSION;
+    private static final int MAX_TICKS_PER_RUN = 10_000; // catch-up limit after a stall
+    private static final DateTimeFormatter BAR_TIME = DateTimeFormatter.ofPattern("yyyyMMdd  HH:mm:ss");
+    private static final DateTimeFormatter END_TIME = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss");
+    private static final DateTimeFormatter END_TIME_UTC = DateTimeFormatter.ofPattern("yyyyMMdd-HH:mm:ss");
+    private static final long HEAD_BAR_SECONDS = 300; // bar size the head timestamp assumes
+    private static final DateTimeFormatter CONNECT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss z");
+    private static final DateTimeFormatter ACCOUNT_TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    private static final AtomicInteger s_permIds = new AtomicInteger(1_000_000);
+
+    private final ETwsSimulator m_simulator;
+    private final Socket m_socket;
+    private final DataInputStream m_in;
+    private final OutputStream m_out;
+    private final LinkedBlockingQueue<Outbound> m_outbound = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService m_timer;
+    private final Map<Integer, ScheduledFuture<?>> m_streams = new ConcurrentHashMap<>();
+    private final Map<Integer, ScheduledFuture<?>> m_pendingFills = new ConcurrentHashMap<>();
+    private final Map<String, Double> m_lastPrices = new ConcurrentHashMap<>();
+    private final Thread m_writer;
+    private long m_lastSendAt;
+    private volatile int m_clientId;
+    private int m_nextOrderId = 1;
+    private int m_execIds = 0;
+
+    private static final class Outbound {
+        static final Outbound CLOSE = new Outbound(null, 0);
+
+        final byte[] m_frame;
+        final long m_sendAt;
+
+        Outbound(byte[] frame, long sendAt) {
+            m_frame = frame;
+            m_sendAt = sendAt;
+        }
+    }
+
+    /** Reads the NUL terminated fields of one request. */
+    private static final class Fields {
+        private final byte[] m_buf;
+        private int m_pos;
+
+        Fields(byte[] buf) {
+            m_buf = buf;
+        }
+
+        String str() throws EOFException {
+            int start = m_pos;
+
+            while (m_pos < m_buf.length && m_buf[m_pos] != 0) {
+                m_pos++;
+            }
+
+            if (m_pos == m_buf.length) {
+                throw new EOFException("truncated request");
+            }
+            return new String(m_buf, start, m_pos++ - start, StandardCharsets.UTF_8);
+        }
+
+        int intValue() throws EOFException {
+            String s = str();
+            return s.isEmpty() ? 0 : Integer.parseInt(s);
+        }
+
+        double doubleValue() throws EOFException {
+            String s = str();
+            return s.isEmpty() ? Double.MAX_VALUE : Double.parseDouble(s);
+        }
+
+        /** Contract fields in the order reqHistoricalData, reqTickByTickData and placeOrder send them. */
+        Contract contract() throws EOFException {
+            Contract contract = new Contract();
+
+            contract.conid(intValue());
+            contract.symbol(str());
+            contract.secType(str());
+            contract.lastTradeDateOrContractMonth(str());
+            double strike = doubleValue();
+            contract.strike(strike == Double.MAX_VALUE ? 0 : strike);
+            contract.right(str());
+            contract.multiplier(str());
+            contract.exchange(str());
+            contract.primaryExch(str());
+            contract.currency(str());
+            contract.localSymbol(str());
+            contract.tradingClass(str());
+            return contract;
+        }
+    }
+
+    ESimulatorSession(ETwsSimulator simulator, Socket socket) throws IOException {
+        super("TWS simulator session " + socket.getPort());
+        setDaemon(true);
+        m_simulator = simulator;
+        m_socket = socket;
+        m_socket.setTcpNoDelay(true);
+        m_in = new DataInputStream(socket.getInputStream());
+        m_out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        m_timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, getName() + " timer");
+            t.setDaemon(true);
+            return t;
+        });
+        m_writer = new Thread(this::writeOutbound, getName() + " writer");
+        m_writer.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        m_writer.start();
+
+        try {
+            if (handshake()) {
+                while (!isInterrupted()) {
+                    int length = m_in.readInt();
+
+                    if (length < 0 || length > EReader.MAX_MSG_LENGTH) {
+                        throw new IOException("bad request length: " + length);
+                    }
+
+                    byte[] request = new byte[length];
+
+                    m_in.readFully(request);
+                    onRequest(new Fields(request));
+                }
+            }
+        }
+        catch (EOFException e) {
+            // client disconnected
+        }
+        catch (IOException | RuntimeException e) {
+            if (!m_socket.isClosed()) {
+                e.printStackTrace();
+            }
+        }
+        finally {
+            close();
+        }
+    }
+
+    void close() {
+        m_timer.shutdownNow();
+        m_outbound.offer(Outbound.CLOSE);
+
+        try {
+            m_socket.close();
+        }
+        catch (IOException ignored) {
+        }
+        m_simulator.removed(this);
+    }
+
+    /** Reads "API\0" and the version range, and answers with the server version and time. */
+    private boolean handshake() throws IOException {
+        byte[] prefix = new byte[4];
+
+        m_in.readFully(prefix);
+
+        if (!"API\0".equals(new String(prefix, StandardCharsets.US_ASCII))) {
+            return false;
+        }
+
+        byte[] versions = new byte[m_in.readInt()];
+
+        m_in.readFully(versions);
+
+        String range = new String(versions, StandardCharsets.UTF_8).split(" ")[0]; // "v100..160" plus connect options
+        String[] bounds = range.substring(1).split("\\.\\.");
+        int min = Integer.parseInt(bounds[0]);
+        int max = bounds.length > 1 ? Integer.parseInt(bounds[1]) : min;
+
+        if (SERVER_VERSION < min || SERVER_VERSION > max) {
+            return false; // replies are only encoded for SERVER_VERSION
+        }
+
+        Builder b = frame();
+        b.send(SERVER_VERSION);
+        b.send(CONNECT_TIME.format(Instant.now().atZone(ZoneId.systemDefault())));
+        send(b);
+        return true;
+    }
+
+    private void onRequest(Fields in) throws IOException {
+        switch (in.intValue()) {
+            case START_API:
+                in.intValue(); // version
+                m_clientId = in.intValue();
+                sendManagedAccounts();
+                sendNextValidId();
+                break;
+
+            case REQ_IDS:
+                sendNextValidId();
+                break;
+
+            case REQ_CURRENT_TIME: {
+                Builder b = frame();
+                b.send(IncomingMessage.CURRENT_TIME);
+                b.send(1);
+                b.send(System.currentTimeMillis() / 1000);
+                send(b);
+                break;
+            }
+
+            case REQ_HISTORICAL_DATA:
+                onHistoricalData(in);
+                break;
+
+            case REQ_HEAD_TIMESTAMP:
+                onHeadTimestamp(in);
+                break;
+
+            case REQ_POSITIONS:
+                onPositions();
+                break;
+
+            case REQ_ACCOUNT_DATA:
+                in.intValue(); // version
+                if (in.intValue() != 0) {
+                    onAccountUpdates();
+                }
+                break;
+
+            case REQ_TICK_BY_TICK_DATA: {
+                int reqId = in.intValue();
+                Contract contract = in.contract();
+                startTickStream(reqId, contract, in.str());
+                break;
+            }
+
+            case CANCEL_TICK_BY_TICK_DATA: {
+                ScheduledFuture<?> stream = m_streams.remove(in.intValue());
+
+                if (stream != null) {
+                    stream.cancel(false);
+                }
+                break;
+            }
+
+            case PLACE_ORDER:
+                onPlaceOrder(in);
+                break;
+
+            case CANCEL_ORDER: {
+                in.intValue(); // version
+                int orderId = in.intValue();
+                ScheduledFuture<?> fill = m_pendingFills.remove(orderId);
+
+                if (fill != null && fill.cancel(false)) {
+                    sendOrderStatus(orderId, "Cancelled", 0, 0, 0, 0);
+                }
+                break;
+            }
+
+            default:
+                break; // not simulated
+        }
+    }
+
+    private void sendManagedAccounts() throws IOException {
+        Builder b = frame();
+        b.send(IncomingMessage.MANAGED_ACCTS);
+        b.send(1);
+        b.send(m_simulator.account());
+        send(b);
+    }
+
+    private void sendNextValidId() throws IOException {
+        Builder b = frame();
+        b.send(IncomingMessage.NEXT_VALID_ID);
+        b.send(1);
+        b.send(m_nextOrderId);
+        send(b);
+    }
+
+    /** Bar i of the n bars of the source starts (n - i) bar sizes before the current time rounded
+     *  down to the bar size; the request returns the bars starting in [endDateTime - duration, endDateTime). */
+    private void onHistoricalData(Fields in) throws IOException {
+        int reqId = in.intValue();
+        Contract contract = in.contract();
+        in.intValue(); // includeExpired
+        String endDateTime = in.str();
+        String barSize = in.str();
+        String duration = in.str();
+        in.intValue(); // useRTH
+        in.str();      // whatToShow
+        int formatDate = in.intValue();
+
+        List<Bar> bars = m_simulator.historicalBars(contract);
+        long barSeconds = seconds(barSize);
+        long durationSeconds = seconds(duration);
+        long step = barSeconds > 0 ? barSeconds : 60;
+        long anchor = System.currentTimeMillis() / 1000 / step * step;
+        long end = endDateTime.isEmpty() ? anchor : parseEndTime(endDateTime);
+        long start = durationSeconds > 0 ? end - durationSeconds : end - (long)bars.size() * step;
+        int from = bars.size();
+        int to = 0;
+
+        for (int i = 0; i < bars.size(); i++) {
+            long time = anchor - (long)(bars.size() - i) * step;
+
+            if (time >= start && time < end) {
+                from = Math.min(from, i);
+                to = i + 1;
+            }
+        }
+
+        int count = Math.max(0, to - from);
+
+        Builder b = frame();
+        b.send(IncomingMessage.HISTORICAL_DATA);
+        b.send(reqId);
+        b.send(formatTime(start, formatDate));
+        b.send(formatTime(end, formatDate));
+        b.send(count);
+
+        for (int i = from; i < to; i++) {
+            Bar bar = bars.get(i);
+            long time = anchor - (long)(bars.size() - i) * step;
+
+            b.send(bar.time() != null && !bar.time().isEmpty() ? bar.time() : formatTime(time, formatDate));
+            b.send(bar.open());
+            b.send(bar.high());
+            b.send(bar.low());
+            b.send(bar.close());
+            b.send(bar.volume());
+            b.send(bar.wap());
+            b.send(bar.count());
+        }
+        send(b);
+
+        if (count > 0 && endDateTime.isEmpty()) {
+            m_lastPrices.putIfAbsent(contract.symbol(), bars.get(to - 1).close());
+        }
+    }
+
+    /** Start of the first bar of the source at a bar size of HEAD_BAR_SECONDS. */
+    private void onHeadTimestamp(Fields in) throws IOException {
+        int reqId = in.intValue();
+        Contract contract = in.contract();
+        in.intValue(); // includeExpired
+        in.intValue(); // useRTH
+        in.str();      // whatToShow
+        int formatDate = in.intValue();
+
+        long anchor = System.currentTimeMillis() / 1000 / HEAD_BAR_SECONDS * HEAD_BAR_SECONDS;
+
+        Builder b = frame();
+        b.send(IncomingMessage.HEAD_TIMESTAMP);
+        b.send(reqId);
+        b.send(formatTime(anchor - m_simulator.historicalBars(contract).size() * HEAD_BAR_SECONDS, formatDate));
+        send(b);
+    }
+
+    /** "yyyyMMdd HH:mm:ss" in the local or the given time zone, or "yyyyMMdd-HH:mm:ss" in UTC. */
+    private static long parseEndTime(String text) {
+        String[] parts = text.trim().split("\\s+");
+
+        if (parts.length == 1) {
+            return LocalDateTime.parse(parts[0], END_TIME_UTC).toEpochSecond(ZoneOffset.UTC);
+        }
+
+        ZoneId zone = parts.length > 2 ? ZoneId.of(parts[2], ZoneId.SHORT_IDS) : ZoneId.systemDefault();
+        return LocalDateTime.parse(parts[0] + " " + parts[1], END_TIME).atZone(zone).toEpochSecond();
+    }
+
+    private void onPositions() throws IOException {
+        for (ETwsSimulator.Position p : m_simulator.positions()) {
+            Contract c = p.m_contract;
+            Builder b = frame();
+
+            b.send(IncomingMessage.POSITION);
+            b.send(3);
+            b.send(m_simulator.account());
+            b.send(c.conid());
+            b.send(c.symbol());
+            b.send(c.getSecType());
+            b.send(c.lastTradeDateOrContractMonth());
+            b.send(c.strike());
+            b.send(c.getRight());
+            b.send(c.multiplier());
+            b.send(c.exchange());
+            b.send(c.currency());
+            b.send(c.localSymbol());
+            b.send(c.tradingClass());
+            b.send(p.m_pos);
+            b.send(p.m_avgCost);
+            send(b);
+        }
+
+        Builder b = frame();
+        b.send(IncomingMessage.POSITION_END);
+        b.send(1);
+        send(b);
+    }
+
+    private void onAccountUpdates() throws IOException {
+        String account = m_simulator.account();
+
+        for (Map.Entry<String, String[]> value : m_simulator.accountValues().entrySet()) {
+            Builder b = frame();
+
+            b.send(IncomingMessage.ACCT_VALUE);
+            b.send(2);
+            b.send(value.getKey());
+            b.send(value.getValue()[0]);
+            b.send(value.getValue()[1]);
+            b.send(account);
+            send(b);
+        }
+
+        for (ETwsSimulator.Position p : m_simulator.positions()) {
+            Contract c = p.m_contract;
+            double price = lastPrice(c, p.m_avgCost);
+            Builder b = frame();
+
+            b.send(IncomingMessage.PORTFOLIO_VALUE);
+            b.send(8);
+            b.send(c.conid());
+            b.send(c.symbol());
+            b.send(c.getSecType());
+            b.send(c.lastTradeDateOrContractMonth());
+            b.send(c.strike());
+            b.send(c.getRight());
+            b.send(c.multiplier());
+            b.send(c.primaryExch());
+            b.send(c.currency());
+            b.send(c.localSymbol());
+            b.send(c.tradingClass());
+            b.send(p.m_pos);
+            b.send(price);
+            b.send(price * p.m_pos);
+            b.send(p.m_avgCost);
+            b.send((price - p.m_avgCost) * p.m_pos);
+            b.send(0.0);
+            b.send(account);
+            send(b);
+        }
+
+        Builder b = frame();
+        b.send(IncomingMessage.ACCT_UPDATE_TIME);
+        b.send(1);
+        b.send(ACCOUNT_TIME.format(Instant.now().atZone(ZoneId.systemDefault())));
+        send(b);
+
+        b = frame();
+        b.send(IncomingMessage.ACCT_DOWNLOAD_END);
+        b.send(1);
+        b.send(account);
+        send(b);
+    }
+
+    private void startTickStream(int reqId, Contract contract, String tickType) {
+        int type;
+
+        switch (tickType) {
+            case "Last":     type = 1; break;
+            case "AllLast":  type = 2; break;
+            case "BidAsk":   type = 3; break;
+            case "MidPoint": type = 4; break;
+            default:         return;
+        }
+
+        String symbol = contract.symbol();
+        double ticksPerSecond = m_simulator.ticksPerSecond();
+        long started = System.nanoTime();
+        long[] sent = { 0 };
+
+        Runnable emit = () -> {
+            long due = (long)((System.nanoTime() - started) / 1e9 * ticksPerSecond) - sent[0];
+
+            try {
+                for (long i = Math.min(due, MAX_TICKS_PER_RUN); i > 0; i--) {
+                    sendTick(reqId, type, symbol, nextPrice(contract));
+                }
+            }
+            catch (IOException e) {
+                close();
+            }
+            sent[0] += due;
+        };
+
+        ScheduledFuture<?> previous = m_streams.put(reqId, m_timer.scheduleAtFixedRate(emit, 0, 1, TimeUnit.MILLISECONDS));
+
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void sendTick(int reqId, int type, String symbol, double price) throws IOException {
+        Builder b = frame();
+
+        b.send(IncomingMessage.TICK_BY_TICK);
+        b.send(reqId);
+        b.send(type);
+        b.send(System.currentTimeMillis() / 1000);
+
+        switch (type) {
+            case 1:
+            case 2:
+                b.send(price);
+                b.send((long)ThreadLocalRandom.current().nextInt(1, 10));
+                b.send(0);
+                b.send("CME");
+                b.send("");
+                break;
+            case 3: {
+                double half = price * 0.00005;
+                b.send(round(price - half));
+                b.send(round(price + half));
+                b.send((long)ThreadLocalRandom.current().nextInt(1, 50));
+                b.send((long)ThreadLocalRandom.current().nextInt(1, 50));
+                b.send(0);
+                break;
+            }
+            default:
+                b.send(price);
+                break;
+        }
+        send(b);
+    }
+
+    private void onPlaceOrder(Fields in) throws IOException {
+        int orderId = in.intValue();
+        Contract contract = in.contract();
+        in.str(); // secIdType
+        in.str(); // secId
+        String action = in.str();
+        double quantity = in.doubleValue();
+        in.str(); // orderType
+        double lmtPrice = in.doubleValue();
+
+        m_nextOrderId = Math.max(m_nextOrderId, orderId + 1);
+
+        int permId = s_permIds.incrementAndGet();
+        double signedQuantity = "BUY".equals(action) ? quantity : -quantity;
+
+        sendOrderStatus(orderId, "Submitted", 0, quantity, 0, permId);
+
+        ScheduledFuture<?> fill = m_timer.schedule(() -> {
+            if (m_pendingFills.remove(orderId) == null) {
+                return; // cancelled
+            }
+
+            double price = lmtPrice != Double.MAX_VALUE ? lmtPrice : lastPrice(contract, 1.0);
+
+            m_simulator.fill(contract, signedQuantity, price);
+
+            try {
+                sendExecution(orderId, contract, signedQuantity, price, permId);
+                sendOrderStatus(orderId, "Filled", quantity, 0, price, permId);
+            }
+            catch (IOException e) {
+                close();
+            }
+        }, m_simulator.fillDelayMillis(), TimeUnit.MILLISECONDS);
+
+        m_pendingFills.put(orderId, fill);
+    }
+
+    private void sendOrderStatus(int orderId, String status, double filled, double remaining, double avgFillPrice, int permId) throws IOException {
+        Builder b = frame();
+
+        b.send(IncomingMessage.ORDER_STATUS);
+        b.send(orderId);
+        b.send(status);
+        b.send(filled);
+        b.send(remaining);
+        b.send(avgFillPrice);
+        b.send(permId);
+        b.send(0);              // parentId
+        b.send(avgFillPrice);   // lastFillPrice
+        b.send(m_clientId);
+        b.send("");             // whyHeld
+        b.send(0.0);            // mktCapPrice
+        send(b);
+    }
+
+    private void sendExecution(int orderId, Contract c, double signedQuantity, double price, int permId) throws IOException {
+        Builder b = frame();
+
+        b.send(IncomingMessage.EXECUTION_DATA);
+        b.send(-1); // reqId: not a reqExecutions reply
+        b.send(orderId);
+        b.send(c.conid());
+        b.send(c.symbol());
+        b.send(c.getSecType());
+        b.send(c.lastTradeDateOrContractMonth());
+        b.send(c.strike());
+        b.send(c.getRight());
+        b.send(c.multiplier());
+        b.send(c.exchange());
+        b.send(c.currency());
+        b.send(c.localSymbol());
+        b.send(c.tradingClass());
+        b.send(String.format("sim.%d.%d", m_clientId, ++m_execIds));
+        b.send(BAR_TIME.format(Instant.now().atZone(ZoneId.systemDefault())));
+        b.send(m_simulator.account());
+        b.send(c.exchange());
+        b.send(signedQuantity > 0 ? "BOT" : "SLD");
+        b.send(Math.abs(signedQuantity));
+        b.send(price);
+        b.send(permId);
+        b.send(m_clientId);
+        b.send(0);                      // liquidation
+        b.send(Math.abs(signedQuantity)); // cumQty
+        b.send(price);                  // avgPrice
+        b.send("");                     // orderRef
+        b.send("");                     // evRule
+        b.send(0.0);                    // evMultiplier
+        b.send("");                     // modelCode
+        b.send(1);                      // lastLiquidity: added
+        send(b);
+    }
+
+    private double nextPrice(Contract contract) {
+        double price = lastPrice(contract, 1.0);
+        double step = price * 0.0001 * (ThreadLocalRandom.current().nextInt(3) - 1);
+
+        price = round(price + step);
+        m_lastPrices.put(contract.symbol(), price);
+        return price;
+    }
+
+    /** Last streamed price of the contract, else the close of its last historical bar, else dflt. */
+    private double lastPrice(Contract contract, double dflt) {
+        Double price = m_lastPrices.get(contract.symbol());
+
+        if (price == null) {
+            List<Bar> bars = m_simulator.historicalBars(contract);
+
+            price = bars.isEmpty() ? dflt : bars.get(bars.size() - 1).close();
+            m_lastPrices.putIfAbsent(contract.symbol(), price);
+        }
+        return price;
+    }
+
+    private static double round(double price) {
+        return Math.round(price * 1e7) / 1e7;
+    }
+
+    private static Builder frame() {
+        Builder b = new Builder(256);
+        b.allocateLengthHeader();
+        return b;
+    }
+
+    /** Queues the message for the writer, due after the injected latency but never before an earlier message. */
+    private void send(Builder b) {
+        b.updateLength(0);
+
+        long latency = m_simulator.latencyNanos();
+        long jitter = m_simulator.jitterNanos();
+
+        synchronized (m_outbound) {
+            long sendAt = System.nanoTime() + latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+
+            sendAt = Math.max(sendAt, m_lastSendAt);
+            m_lastSendAt = sendAt;
+            m_outbound.offer(new Outbound(b.toByteArray(), sendAt));
+        }
+    }
+
+    private void writeOutbound() {
+        try {
+            while (true) {
+                Outbound next = m_outbound.take();
+
+                if (next == Outbound.CLOSE) {
+                    return;
+                }
+
+                for (long left = next.m_sendAt - System.nanoTime(); left > 0; left = next.m_sendAt - System.nanoTime()) {
+                    m_out.flush(); // nothing else is due before this message
+                    LockSupport.parkNanos(left);
+                }
+
+                m_out.write(next.m_frame);
+
+                Outbound head = m_outbound.peek();
+
+                if (head == null || head.m_sendAt > System.nanoTime()) {
+                    m_out.flush();
+                }
+            }
+        }
+        catch (InterruptedException | IOException e) {
+            close();
+        }
+    }
+
+    /** Seconds in "5 mins", "1 hour", "3600 S", "2 D" and the like; 0 when not understood. */
+    private static long seconds(String text) {
+        String[] parts = text.trim().split("\\s+");
+
+        if (parts.length != 2) {
+            return 0;
+        }
+
+        long n;
+
+        try {
+            n = Long.parseLong(parts[0]);
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+
+        switch (parts[1].toLowerCase()) {
+            case "s": case "sec": case "secs":     return n;
+            case "min": case "mins":               return n * 60;
+            case "hour": case "hours":             return n * 3600;
+            case "d": case "day": case "days":     return n * 86400;
+            case "w": case "week": case "weeks":   return n * 7 * 86400;
+            case "m": case "month": case "months": return n * 30 * 86400;
+            case "y": case "year": case "years":   return n * 365 * 86400;
+            default:                               return 0;
+        }
+    }
+
+    private static String formatTime(long epochSeconds, int formatDate) {
+        return formatDate == 2 ? Long.toString(epochSeconds) : BAR_TIME.format(Instant.ofEpochSecond(epochSeconds).atZone(ZoneId.systemDefault()));
+    }
+}
@@ -6,16 +6,46 @@ package com.ib.client;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.util.List;
 
 public class ESocket implements ETransport {
+    private static final int COALESCE_BUF_SIZE = 64 * 1024;
 
     protected DataOutputStream m_dos;   // the socket output stream
+    private byte[] m_coalesceBuf;       // only touched by the single thread calling send(List)
 
     @Override
     public void send(EMessage msg) throws IOException {
-        byte[] buf = msg.getRawData();
+        msg.writeTo(m_dos);
+    }
+
+    /** Copies the messages into one buffer so they go out in a single write. */
+    @Override
+    public void send(List<EMessage> msgs) throws IOException {
+        if (m_coalesceBuf == null) {
+            m_coalesceBuf = new byte[COALESCE_BUF_SIZE];
+        }
+
+        int count = 0;
 
-        m_dos.write(buf, 0, buf.length);
+        for (EMessage msg : msgs) {
+            if (count + msg.length() > m_coalesceBuf.length) {
+                m_dos.write(m_coalesceBuf, 0, count);
+                count = 0;
+
+                if (msg.length() > m_coalesceBuf.length) {
+                    msg.writeTo(m_dos);
+                    continue;
+                }
+            }
+
+            System.arraycopy(msg.buf(), msg.offset(), m_coalesceBuf, count, msg.length());
+            count += msg.length();
+        }
+
+        if (count > 0) {
+            m_dos.write(m_coalesceBuf, 0, count);
+        }
     }
 
     ESocket(Socket s) throws IOException {
@@ -0,0 +1,59 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** Lock-free EReaderSignal: issueSignal is a single volatile store and the waiting thread
+ *  polls for it with the selected strategy instead of blocking on a monitor as EJavaSignal does.
+ *  Trades CPU on the processing thread for lower hand-off latency. */
+public class ESpinningSignal implements EReaderSignal {
+    public enum WaitStrategy {
+        /** Spins on the flag; lowest latency, keeps one core busy. */
+        BUSY_SPIN,
+        /** Yields the core between checks. */
+        YIELD,
+        /** Parks for a fixed number of nanoseconds between checks. */
+        PARK_NANOS
+    }
+
+    private final WaitStrategy m_strategy;
+    private final long m_parkNanos;
+    private volatile boolean m_open = false;
+
+    public ESpinningSignal(WaitStrategy strategy) {
+        this(strategy, 1000);
+    }
+
+    public ESpinningSignal(WaitStrategy strategy, long parkNanos) {
+        m_strategy = strategy;
+        m_parkNanos = parkNanos;
+    }
+
+    @Override
+    public void issueSignal() {
+        m_open = true;
+    }
+
+    @Override
+    public void waitForSignal() {
+        while (!m_open) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            switch (m_strategy) {
+                case BUSY_SPIN:
+                    Thread.onSpinWait();
+                    break;
+                case YIELD:
+                    Thread.yield();
+                    break;
+                case PARK_NANOS:
+                    LockSupport.parkNanos(m_parkNanos);
+                    break;
+            }
+        }
+        m_open = false;
+    }
+}
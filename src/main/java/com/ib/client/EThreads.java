@@ -0,0 +1,74 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/** Creates the API's reader, processing and writer threads, either as platform threads or, on
+ *  JDKs that have them (21 and later), as virtual threads. Virtual threads are looked up
+ *  reflectively so the API still builds and runs on older JDKs, where a request for a virtual
+ *  thread quietly gets a platform thread instead. */
+public final class EThreads {
+    private static final MethodHandle OF_VIRTUAL;   // Thread.ofVirtual()
+    private static final MethodHandle NAME;         // Thread.Builder.name(String)
+    private static final MethodHandle UNSTARTED;    // Thread.Builder.unstarted(Runnable)
+    private static final boolean VIRTUAL_AVAILABLE;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle unstarted = null;
+
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class));
+            unstarted = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+            ofVirtual.invoke(); // throws on JDK 19 and 20 without --enable-preview
+        }
+        catch (Throwable e) {
+            // JDK without virtual threads, or with them disabled as a preview feature
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+        VIRTUAL_AVAILABLE = ofVirtual != null;
+    }
+
+    private EThreads() {
+    }
+
+    public static boolean isVirtualAvailable() {
+        return VIRTUAL_AVAILABLE;
+    }
+
+    /** An unstarted thread running task: a virtual thread if requested and available, otherwise a
+     *  platform thread. Virtual threads are always daemon threads. */
+    public static Thread newThread(String name, boolean virtual, Runnable task) {
+        if (virtual && VIRTUAL_AVAILABLE) {
+            try {
+                Object builder = OF_VIRTUAL.invoke();
+                builder = NAME.invoke(builder, name);
+                return (Thread) UNSTARTED.invoke(builder, task);
+            }
+            catch (Throwable e) {
+                // fall through to a platform thread
+            }
+        }
+
+        return new Thread(task, name);
+    }
+
+    public static Thread startThread(String name, boolean virtual, Runnable task) {
+        Thread thread = newThread(name, virtual, task);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,50 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+/** Tick attribute bits of the ETickWrapper callbacks, and helpers that copy them into attribute
+ *  objects which the caller keeps and reuses for every tick. */
+public final class ETickAttribs {
+    // tickPrice
+    public static final int CAN_AUTO_EXECUTE = 1;
+    public static final int PAST_LIMIT = 1 << 1;
+    public static final int PRE_OPEN = 1 << 2;
+
+    // tickByTickAllLast and historicalTickLast; past limit is bit 0 here as on the wire
+    public static final int LAST_PAST_LIMIT = 1;
+    public static final int UNREPORTED = 1 << 1;
+
+    // tickByTickBidAsk and historicalTickBidAsk
+    public static final int BID_PAST_LOW = 1;
+    public static final int ASK_PAST_HIGH = 1 << 1;
+
+    private ETickAttribs() {
+    }
+
+    public static boolean isSet(int attribs, int bit) {
+        return (attribs & bit) != 0;
+    }
+
+    /** Sets attrib from the bits of tickPrice and returns it. */
+    public static TickAttrib tickAttrib(int attribs, TickAttrib attrib) {
+        attrib.canAutoExecute(isSet(attribs, CAN_AUTO_EXECUTE));
+        attrib.pastLimit(isSet(attribs, PAST_LIMIT));
+        attrib.preOpen(isSet(attribs, PRE_OPEN));
+        return attrib;
+    }
+
+    /** Sets attrib from the bits of tickByTickAllLast or historicalTickLast and returns it. */
+    public static TickAttribLast tickAttribLast(int attribs, TickAttribLast attrib) {
+        attrib.pastLimit(isSet(attribs, LAST_PAST_LIMIT));
+        attrib.unreported(isSet(attribs, UNREPORTED));
+        return attrib;
+    }
+
+    /** Sets attrib from the bits of tickByTickBidAsk or historicalTickBidAsk and returns it. */
+    public static TickAttribBidAsk tickAttribBidAsk(int attribs, TickAttribBidAsk attrib) {
+        attrib.bidPastLow(isSet(attribs, BID_PAST_LOW));
+        attrib.askPastHigh(isSet(attribs, ASK_PAST_HIGH));
+        return attrib;
+    }
+}
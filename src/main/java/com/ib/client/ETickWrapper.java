@@ -0,0 +1,34 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+/** An EWrapper that takes price ticks, tick-by-tick data and historical ticks as primitives only.
+ *  When the wrapper given to EClientSocket implements this interface, these callbacks replace
+ *  tickPrice(int, int, double, TickAttrib), tickByTickAllLast, tickByTickBidAsk and the three
+ *  historicalTicks callbacks, and decoding such a message allocates nothing: tick attributes
+ *  arrive as the bit masks of ETickAttribs, historical ticks one at a time followed by
+ *  historicalTicksEnd, and the exchange and special conditions of trades are Strings shared by
+ *  all ticks with the same value. The other callbacks, including tickSize and tickByTickMidPoint,
+ *  are unchanged. */
+public interface ETickWrapper extends EWrapper {
+    /** @param attribs ETickAttribs.CAN_AUTO_EXECUTE, PAST_LIMIT and PRE_OPEN */
+    void tickPrice(int tickerId, int field, double price, int attribs);
+
+    /** @param attribs ETickAttribs.LAST_PAST_LIMIT and UNREPORTED */
+    void tickByTickAllLast(int reqId, int tickType, long time, double price, long size, int attribs, String exchange, String specialConditions);
+
+    /** @param attribs ETickAttribs.BID_PAST_LOW and ASK_PAST_HIGH */
+    void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize, int attribs);
+
+    void historicalTick(int reqId, long time, double price, long size);
+
+    /** @param attribs ETickAttribs.BID_PAST_LOW and ASK_PAST_HIGH */
+    void historicalTickBidAsk(int reqId, long time, int attribs, double priceBid, double priceAsk, long sizeBid, long sizeAsk);
+
+    /** @param attribs ETickAttribs.LAST_PAST_LIMIT and UNREPORTED */
+    void historicalTickLast(int reqId, long time, int attribs, double price, long size, String exchange, String specialConditions);
+
+    /** Follows the ticks of one historical ticks message, as the List of the EWrapper callbacks ends. */
+    void historicalTicksEnd(int reqId, boolean done);
+}
@@ -5,7 +5,15 @@ package com.ib.client;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 
 public interface ETransport extends Closeable {
 	void send(EMessage msg) throws IOException;
+
+	/** Sends the messages in order; transports override this to write them in one call. */
+	default void send(List<EMessage> msgs) throws IOException {
+		for (EMessage msg : msgs) {
+			send(msg);
+		}
+	}
 }
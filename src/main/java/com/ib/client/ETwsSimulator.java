@@ -0,0 +1,196 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/** In-process stand-in for TWS / IB Gateway for offline load and latency testing. It accepts
+ *  V100 connections from EClientSocket.eConnect and answers a subset of requests at server
+ *  version EClient.MAX_VERSION:
+ *  <ul>
+ *  <li>startAPI and reqIds with managedAccounts and nextValidId, reqCurrentTime</li>
+ *  <li>reqHistoricalData and reqHeadTimestamp from the configured bar source</li>
+ *  <li>reqPositions and reqAccountUpdates from the simulated account</li>
+ *  <li>reqTickByTickData as a random walk at the configured rate</li>
+ *  <li>placeOrder and cancelOrder with orderStatus and execDetails; fills update the positions</li>
+ *  </ul>
+ *  Other requests are read and ignored. Every outbound message can be delayed by a fixed latency
+ *  plus uniform jitter, without reordering. Settings apply to connections made after the change. */
+public class ETwsSimulator implements Closeable {
+    private final ServerSocket m_serverSocket;
+    private final List<ESimulatorSession> m_sessions = new CopyOnWriteArrayList<>();
+    private final Map<String, Position> m_positions = new ConcurrentHashMap<>();
+    private final Map<String, String[]> m_accountValues = new ConcurrentHashMap<>();
+    private volatile String m_account = "DU0000000";
+    private volatile Function<Contract, List<Bar>> m_historicalBars = contract -> Collections.emptyList();
+    private volatile double m_ticksPerSecond = 10;
+    private volatile long m_latencyNanos = 0;
+    private volatile long m_jitterNanos = 0;
+    private volatile long m_fillDelayMillis = 0;
+    private Thread m_acceptThread;
+
+    /** Position of the simulated account in one contract, keyed by symbol. */
+    static class Position {
+        final Contract m_contract;
+        double m_pos;
+        double m_avgCost;
+
+        Position(Contract contract, double pos, double avgCost) {
+            m_contract = contract;
+            m_pos = pos;
+            m_avgCost = avgCost;
+        }
+    }
+
+    /** Listens on the loopback interface; port 0 picks a free port, see port(). */
+    public ETwsSimulator(int port) throws IOException {
+        m_serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        setAccountValue("NetLiquidation", "1000000", "USD");
+        setAccountValue("TotalCashValue", "1000000", "USD");
+        setAccountValue("BuyingPower", "4000000", "USD");
+    }
+
+    public int port() {
+        return m_serverSocket.getLocalPort();
+    }
+
+    public synchronized ETwsSimulator start() {
+        if (m_acceptThread == null) {
+            m_acceptThread = new Thread(this::acceptConnections, "TWS simulator");
+            m_acceptThread.setDaemon(true);
+            m_acceptThread.start();
+        }
+        return this;
+    }
+
+    /** Bars returned by reqHistoricalData, newest last; bars without a time are stamped by the simulator. */
+    public ETwsSimulator setHistoricalBars(Function<Contract, List<Bar>> source) {
+        m_historicalBars = source;
+        return this;
+    }
+
+    /** Rate of each tick-by-tick subscription. */
+    public ETwsSimulator setTickRate(double ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("tick rate must be positive: " + ticksPerSecond);
+        }
+        m_ticksPerSecond = ticksPerSecond;
+        return this;
+    }
+
+    /** Delay of every outbound message: latencyMicros plus a uniform random part of up to jitterMicros. */
+    public ETwsSimulator setLatency(long latencyMicros, long jitterMicros) {
+        m_latencyNanos = latencyMicros * 1000;
+        m_jitterNanos = jitterMicros * 1000;
+        return this;
+    }
+
+    /** Time between accepting an order and reporting its fill. */
+    public ETwsSimulator setFillDelay(long millis) {
+        m_fillDelayMillis = millis;
+        return this;
+    }
+
+    public ETwsSimulator setAccount(String account) {
+        m_account = account;
+        return this;
+    }
+
+    public ETwsSimulator setAccountValue(String key, String value, String currency) {
+        m_accountValues.put(key, new String[] { value, currency });
+        return this;
+    }
+
+    public ETwsSimulator setPosition(Contract contract, double pos, double avgCost) {
+        m_positions.put(contract.symbol(), new Position(contract, pos, avgCost));
+        return this;
+    }
+
+    public int sessions() {
+        return m_sessions.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_serverSocket.close();
+
+        for (ESimulatorSession session : m_sessions) {
+            session.close();
+        }
+    }
+
+    String account()                        { return m_account; }
+    Map<String, String[]> accountValues()   { return m_accountValues; }
+    double ticksPerSecond()                 { return m_ticksPerSecond; }
+    long latencyNanos()                     { return m_latencyNanos; }
+    long jitterNanos()                      { return m_jitterNanos; }
+    long fillDelayMillis()                  { return m_fillDelayMillis; }
+
+    List<Bar> historicalBars(Contract contract) {
+        List<Bar> bars = m_historicalBars.apply(contract);
+        return bars != null ? bars : Collections.emptyList();
+    }
+
+    List<Position> positions() {
+        synchronized (m_positions) {
+            List<Position> positions = new ArrayList<>();
+
+            for (Position p : m_positions.values()) {
+                positions.add(new Position(p.m_contract, p.m_pos, p.m_avgCost));
+            }
+            return positions;
+        }
+    }
+
+    /** Books a fill; quantity is negative for sells. */
+    void fill(Contract contract, double quantity, double price) {
+        synchronized (m_positions) {
+            Position p = m_positions.computeIfAbsent(contract.symbol(), s -> new Position(contract, 0, 0));
+            double pos = p.m_pos + quantity;
+
+            if (pos == 0) {
+                p.m_avgCost = 0;
+            }
+            else if (Math.signum(pos) == Math.signum(quantity) && Math.abs(pos) > Math.abs(p.m_pos)) {
+                p.m_avgCost = (p.m_avgCost * p.m_pos + price * quantity) / pos; // position increased
+            }
+            else if (Math.signum(pos) != Math.signum(p.m_pos)) {
+                p.m_avgCost = price; // flipped sides
+            }
+            p.m_pos = pos;
+        }
+    }
+
+    void removed(ESimulatorSession session) {
+        m_sessions.remove(session);
+    }
+
+    private void acceptConnections() {
+        while (!m_serverSocket.isClosed()) {
+            try {
+                Socket socket = m_serverSocket.accept();
+                ESimulatorSession session = new ESimulatorSession(this, socket);
+
+                m_sessions.add(session);
+                session.start();
+            }
+            catch (IOException e) {
+                if (!m_serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
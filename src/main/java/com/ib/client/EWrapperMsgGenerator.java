@@ -11,191 +11,274 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+/** Formats EWrapper callbacks as log lines. Each method has a variant that appends the same text to
+ *  a caller's StringBuilder and returns it, so that a logger can reuse one buffer instead of building
+ *  a new String for every tick; the String methods delegate to these. */
 public class EWrapperMsgGenerator {
     public static final String SCANNER_PARAMETERS = "SCANNER PARAMETERS:";
     public static final String FINANCIAL_ADVISOR = "FA:";
+    private static final String TICK_TIME_FORMAT = "yyyyMMdd-HH:mm:ss zzz";
     
 	public static String tickPrice( int tickerId, int field, double price, TickAttrib attribs) {
-    	return "id=" + tickerId + "  " + TickType.getField( field) + "=" + price + " " + 
-        (attribs.canAutoExecute() ? " canAutoExecute" : " noAutoExecute") + " pastLimit = " + attribs.pastLimit() +
-        (field == TickType.BID.index() || field == TickType.ASK.index() ? " preOpen = " + attribs.preOpen() : "");
-    }
+		return tickPrice(new StringBuilder(96), tickerId, field, price, attribs).toString();
+	}
+
+	public static StringBuilder tickPrice(StringBuilder sb, int tickerId, int field, double price, TickAttrib attribs) {
+		sb.append("id=").append(tickerId).append("  ").append(TickType.getField( field)).append('=').append(price).append(' ')
+			.append(attribs.canAutoExecute() ? " canAutoExecute" : " noAutoExecute").append(" pastLimit = ").append(attribs.pastLimit());
+		if (field == TickType.BID.index() || field == TickType.ASK.index()) {
+			sb.append(" preOpen = ").append(attribs.preOpen());
+		}
+		return sb;
+	}
 	
     public static String tickSize( int tickerId, int field, long size) {
-    	return "id=" + tickerId + "  " + TickType.getField( field) + "=" + size;
+    	return tickSize(new StringBuilder(32), tickerId, field, size).toString();
+    }
+
+    public static StringBuilder tickSize(StringBuilder sb, int tickerId, int field, long size) {
+    	return sb.append("id=").append(tickerId).append("  ").append(TickType.getField( field)).append('=').append(size);
     }
     
     public static String tickOptionComputation( int tickerId, int field, int tickAttrib, double impliedVol,
     		double delta, double optPrice, double pvDividend,
     		double gamma, double vega, double theta, double undPrice) {
-	return "id=" + tickerId + "  " + TickType.getField( field) +
-            ": tickAttrib = " + Util.IntMaxString(tickAttrib) +
-            " impliedVol = " + Util.maxDoubleToString(impliedVol) +
-            " delta = " + Util.maxDoubleToString(delta) +
-            " gamma = " + Util.maxDoubleToString(gamma) +
-            " vega = " + Util.maxDoubleToString(vega) +
-            " theta = " + Util.maxDoubleToString(theta) +
-            " optPrice = " + Util.maxDoubleToString(optPrice) +
-            " pvDividend = " + Util.maxDoubleToString(pvDividend) +
-            " undPrice = " + Util.maxDoubleToString(undPrice);
+    	return tickOptionComputation(new StringBuilder(192), tickerId, field, tickAttrib, impliedVol, delta, optPrice, pvDividend,
+    			gamma, vega, theta, undPrice).toString();
+    }
+
+    public static StringBuilder tickOptionComputation(StringBuilder sb, int tickerId, int field, int tickAttrib, double impliedVol,
+    		double delta, double optPrice, double pvDividend,
+    		double gamma, double vega, double theta, double undPrice) {
+    	sb.append("id=").append(tickerId).append("  ").append(TickType.getField( field)).append(": tickAttrib = ");
+    	Util.appendIntMaxString(sb, tickAttrib).append(" impliedVol = ");
+    	Util.appendMaxDoubleToString(sb, impliedVol).append(" delta = ");
+    	Util.appendMaxDoubleToString(sb, delta).append(" gamma = ");
+    	Util.appendMaxDoubleToString(sb, gamma).append(" vega = ");
+    	Util.appendMaxDoubleToString(sb, vega).append(" theta = ");
+    	Util.appendMaxDoubleToString(sb, theta).append(" optPrice = ");
+    	Util.appendMaxDoubleToString(sb, optPrice).append(" pvDividend = ");
+    	Util.appendMaxDoubleToString(sb, pvDividend).append(" undPrice = ");
+    	return Util.appendMaxDoubleToString(sb, undPrice);
     }
     
     public static String tickGeneric(int tickerId, int tickType, double value) {
-    	return "id=" + tickerId + "  " + TickType.getField( tickType) + "=" + value;
+    	return tickGeneric(new StringBuilder(48), tickerId, tickType, value).toString();
+    }
+
+    public static StringBuilder tickGeneric(StringBuilder sb, int tickerId, int tickType, double value) {
+    	return sb.append("id=").append(tickerId).append("  ").append(TickType.getField( tickType)).append('=').append(value);
     }
     
     public static String tickString(int tickerId, int tickType, String value) {
-    	return "id=" + tickerId + "  " + TickType.getField( tickType) + "=" + value;
+    	return tickString(new StringBuilder(64), tickerId, tickType, value).toString();
+    }
+
+    public static StringBuilder tickString(StringBuilder sb, int tickerId, int tickType, String value) {
+    	return sb.append("id=").append(tickerId).append("  ").append(TickType.getField( tickType)).append('=').append(value);
     }
     
     public static String tickEFP(int tickerId, int tickType, double basisPoints,
 			String formattedBasisPoints, double impliedFuture, int holdDays,
 			String futureLastTradeDate, double dividendImpact, double dividendsToLastTradeDate) {
-    	return "id=" + tickerId + "  " + TickType.getField(tickType)
-		+ ": basisPoints = " + basisPoints + "/" + formattedBasisPoints
-		+ " impliedFuture = " + impliedFuture + " holdDays = " + holdDays +
-		" futureLastTradeDate = " + futureLastTradeDate + " dividendImpact = " + dividendImpact +
-		" dividends to expiry = "	+ dividendsToLastTradeDate;
+    	return tickEFP(new StringBuilder(192), tickerId, tickType, basisPoints, formattedBasisPoints, impliedFuture, holdDays,
+    			futureLastTradeDate, dividendImpact, dividendsToLastTradeDate).toString();
+    }
+
+    public static StringBuilder tickEFP(StringBuilder sb, int tickerId, int tickType, double basisPoints,
+			String formattedBasisPoints, double impliedFuture, int holdDays,
+			String futureLastTradeDate, double dividendImpact, double dividendsToLastTradeDate) {
+    	return sb.append("id=").append(tickerId).append("  ").append(TickType.getField(tickType))
+		.append(": basisPoints = ").append(basisPoints).append('/').append(formattedBasisPoints)
+		.append(" impliedFuture = ").append(impliedFuture).append(" holdDays = ").append(holdDays)
+		.append(" futureLastTradeDate = ").append(futureLastTradeDate).append(" dividendImpact = ").append(dividendImpact)
+		.append(" dividends to expiry = ").append(dividendsToLastTradeDate);
     }
     
     public static String orderStatus( int orderId, String status, double filled, double remaining,
             double avgFillPrice, int permId, int parentId, double lastFillPrice,
             int clientId, String whyHeld, double mktCapPrice) {
-    	return "order status: orderId=" + orderId + " clientId=" + clientId + " permId=" + permId +
-        " status=" + status + " filled=" + filled + " remaining=" + remaining +
-        " avgFillPrice=" + avgFillPrice + " lastFillPrice=" + lastFillPrice +
-        " parent Id=" + parentId + " whyHeld=" + whyHeld + " mktCapPrice=" + mktCapPrice;
+    	return orderStatus(new StringBuilder(224), orderId, status, filled, remaining, avgFillPrice, permId, parentId, lastFillPrice,
+    			clientId, whyHeld, mktCapPrice).toString();
+    }
+
+    public static StringBuilder orderStatus(StringBuilder sb, int orderId, String status, double filled, double remaining,
+            double avgFillPrice, int permId, int parentId, double lastFillPrice,
+            int clientId, String whyHeld, double mktCapPrice) {
+    	return sb.append("order status: orderId=").append(orderId).append(" clientId=").append(clientId).append(" permId=").append(permId)
+        .append(" status=").append(status).append(" filled=").append(filled).append(" remaining=").append(remaining)
+        .append(" avgFillPrice=").append(avgFillPrice).append(" lastFillPrice=").append(lastFillPrice)
+        .append(" parent Id=").append(parentId).append(" whyHeld=").append(whyHeld).append(" mktCapPrice=").append(mktCapPrice);
     }
     
     public static String openOrder( int orderId, Contract contract, Order order, OrderState orderState) {
-		final StringBuilder sb = new StringBuilder(1024);
+		return openOrder(new StringBuilder(1024), orderId, contract, order, orderState).toString();
+    }
+
+    public static StringBuilder openOrder(StringBuilder sb, int orderId, Contract contract, Order order, OrderState orderState) {
         sb.append("open order:");
         appendOrderFields(sb, orderId, contract, order, orderState, true);
-        return sb.toString();
+        return sb;
     }
     
     public static String openOrderEnd() {
     	return " =============== end ===============";
     }
+
+    public static StringBuilder openOrderEnd(StringBuilder sb) {
+    	return sb.append(openOrderEnd());
+    }
     
     public static String updateAccountValue(String key, String value, String currency, String accountName) {
-    	return "updateAccountValue: " + key + " " + value + " " + currency + " " + accountName;
+    	return updateAccountValue(new StringBuilder(96), key, value, currency, accountName).toString();
+    }
+
+    public static StringBuilder updateAccountValue(StringBuilder sb, String key, String value, String currency, String accountName) {
+    	return sb.append("updateAccountValue: ").append(key).append(' ').append(value).append(' ').append(currency).append(' ').append(accountName);
     }
     
     public static String updatePortfolio(Contract contract, double position, double marketPrice,
     									 double marketValue, double averageCost, double unrealizedPNL,
     									 double realizedPNL, String accountName) {
-		return "updatePortfolio: "
-            + contractMsg(contract)
-            + position + " " + marketPrice + " " + marketValue + " " + averageCost + " " + unrealizedPNL + " " + realizedPNL + " " + accountName;
+		return updatePortfolio(new StringBuilder(384), contract, position, marketPrice, marketValue, averageCost, unrealizedPNL,
+				realizedPNL, accountName).toString();
+    }
+
+    public static StringBuilder updatePortfolio(StringBuilder sb, Contract contract, double position, double marketPrice,
+    									 double marketValue, double averageCost, double unrealizedPNL,
+    									 double realizedPNL, String accountName) {
+		sb.append("updatePortfolio: ");
+		appendContractMsg(sb, contract);
+		return sb.append(position).append(' ').append(marketPrice).append(' ').append(marketValue).append(' ').append(averageCost)
+			.append(' ').append(unrealizedPNL).append(' ').append(realizedPNL).append(' ').append(accountName);
     }
     
     public static String updateAccountTime(String timeStamp) {
-    	return "updateAccountTime: " + timeStamp;
+    	return updateAccountTime(new StringBuilder(32), timeStamp).toString();
+    }
+
+    public static StringBuilder updateAccountTime(StringBuilder sb, String timeStamp) {
+    	return sb.append("updateAccountTime: ").append(timeStamp);
     }
     
     public static String accountDownloadEnd(String accountName) {
-    	return "accountDownloadEnd: " + accountName;
+    	return accountDownloadEnd(new StringBuilder(32), accountName).toString();
+    }
+
+    public static StringBuilder accountDownloadEnd(StringBuilder sb, String accountName) {
+    	return sb.append("accountDownloadEnd: ").append(accountName);
     }
     
     public static String nextValidId( int orderId) {
-    	return "Next Valid Order ID: " + orderId;
+    	return nextValidId(new StringBuilder(32), orderId).toString();
+    }
+
+    public static StringBuilder nextValidId(StringBuilder sb, int orderId) {
+    	return sb.append("Next Valid Order ID: ").append(orderId);
     }
     
     public static String contractDetails(int reqId, ContractDetails contractDetails) {
+    	return contractDetails(new StringBuilder(1024), reqId, contractDetails).toString();
+    }
+
+    public static StringBuilder contractDetails(StringBuilder sb, int reqId, ContractDetails contractDetails) {
     	Contract contract = contractDetails.contract();
-		return "reqId = " + reqId + " ===================================\n"
-            + " ---- Contract Details begin ----\n"
-            + contractMsg(contract) + contractDetailsMsg(contractDetails)
-            + " ---- Contract Details End ----\n";
-    }
-    
-    private static String contractDetailsMsg(ContractDetails contractDetails) {
-		return "marketName = " + contractDetails.marketName() + "\n"
-        + "minTick = " + contractDetails.minTick() + "\n"
-        + "price magnifier = " + contractDetails.priceMagnifier() + "\n"
-        + "orderTypes = " + contractDetails.orderTypes() + "\n"
-        + "validExchanges = " + contractDetails.validExchanges() + "\n"
-        + "underConId = " + contractDetails.underConid() + "\n"
-        + "longName = " + contractDetails.longName() + "\n"
-        + "contractMonth = " + contractDetails.contractMonth() + "\n"
-        + "industry = " + contractDetails.industry() + "\n"
-        + "category = " + contractDetails.category() + "\n"
-        + "subcategory = " + contractDetails.subcategory() + "\n"
-        + "timeZoneId = " + contractDetails.timeZoneId() + "\n"
-        + "tradingHours = " + contractDetails.tradingHours() + "\n"
-        + "liquidHours = " + contractDetails.liquidHours() + "\n"
-        + "evRule = " + contractDetails.evRule() + "\n"
-        + "evMultiplier = " + contractDetails.evMultiplier() + "\n"
-        + "mdSizeMultiplier = " + contractDetails.mdSizeMultiplier() + "\n"
-        + "aggGroup = " + contractDetails.aggGroup() + "\n"
-        + "underSymbol = " + contractDetails.underSymbol() + "\n"
-        + "underSecType = " + contractDetails.underSecType() + "\n"
-        + "marketRuleIds = " + contractDetails.marketRuleIds() + "\n"
-        + "realExpirationDate = " + contractDetails.realExpirationDate() + "\n"
-        + "lastTradeTime = " + contractDetails.lastTradeTime() + "\n"
-        + "stockType = " + contractDetails.stockType() + "\n"
-        + contractDetailsSecIdList(contractDetails);
-    }
-    
-	private static String contractMsg(Contract contract) {
-		return "conid = " + contract.conid() + "\n"
-        + "symbol = " + contract.symbol() + "\n"
-        + "secType = " + contract.getSecType() + "\n"
-        + "lastTradeDate = " + contract.lastTradeDateOrContractMonth() + "\n"
-        + "strike = " + contract.strike() + "\n"
-        + "right = " + contract.getRight() + "\n"
-        + "multiplier = " + contract.multiplier() + "\n"
-        + "exchange = " + contract.exchange() + "\n"
-        + "primaryExch = " + contract.primaryExch() + "\n"
-        + "currency = " + contract.currency() + "\n"
-        + "localSymbol = " + contract.localSymbol() + "\n"
-        + "tradingClass = " + contract.tradingClass() + "\n";
+		sb.append("reqId = ").append(reqId).append(" ===================================\n")
+            .append(" ---- Contract Details begin ----\n");
+		appendContractMsg(sb, contract);
+		appendContractDetailsMsg(sb, contractDetails);
+		return sb.append(" ---- Contract Details End ----\n");
+    }
+    
+    private static void appendContractDetailsMsg(StringBuilder sb, ContractDetails contractDetails) {
+		sb.append("marketName = ").append(contractDetails.marketName()).append('\n')
+        .append("minTick = ").append(contractDetails.minTick()).append('\n')
+        .append("price magnifier = ").append(contractDetails.priceMagnifier()).append('\n')
+        .append("orderTypes = ").append(contractDetails.orderTypes()).append('\n')
+        .append("validExchanges = ").append(contractDetails.validExchanges()).append('\n')
+        .append("underConId = ").append(contractDetails.underConid()).append('\n')
+        .append("longName = ").append(contractDetails.longName()).append('\n')
+        .append("contractMonth = ").append(contractDetails.contractMonth()).append('\n')
+        .append("industry = ").append(contractDetails.industry()).append('\n')
+        .append("category = ").append(contractDetails.category()).append('\n')
+        .append("subcategory = ").append(contractDetails.subcategory()).append('\n')
+        .append("timeZoneId = ").append(contractDetails.timeZoneId()).append('\n')
+        .append("tradingHours = ").append(contractDetails.tradingHours()).append('\n')
+        .append("liquidHours = ").append(contractDetails.liquidHours()).append('\n')
+        .append("evRule = ").append(contractDetails.evRule()).append('\n')
+        .append("evMultiplier = ").append(contractDetails.evMultiplier()).append('\n')
+        .append("mdSizeMultiplier = ").append(contractDetails.mdSizeMultiplier()).append('\n')
+        .append("aggGroup = ").append(contractDetails.aggGroup()).append('\n')
+        .append("underSymbol = ").append(contractDetails.underSymbol()).append('\n')
+        .append("underSecType = ").append(contractDetails.underSecType()).append('\n')
+        .append("marketRuleIds = ").append(contractDetails.marketRuleIds()).append('\n')
+        .append("realExpirationDate = ").append(contractDetails.realExpirationDate()).append('\n')
+        .append("lastTradeTime = ").append(contractDetails.lastTradeTime()).append('\n')
+        .append("stockType = ").append(contractDetails.stockType()).append('\n');
+		appendContractDetailsSecIdList(sb, contractDetails);
+    }
+    
+	private static void appendContractMsg(StringBuilder sb, Contract contract) {
+		sb.append("conid = ").append(contract.conid()).append('\n')
+        .append("symbol = ").append(contract.symbol()).append('\n')
+        .append("secType = ").append(contract.getSecType()).append('\n')
+        .append("lastTradeDate = ").append(contract.lastTradeDateOrContractMonth()).append('\n')
+        .append("strike = ").append(contract.strike()).append('\n')
+        .append("right = ").append(contract.getRight()).append('\n')
+        .append("multiplier = ").append(contract.multiplier()).append('\n')
+        .append("exchange = ").append(contract.exchange()).append('\n')
+        .append("primaryExch = ").append(contract.primaryExch()).append('\n')
+        .append("currency = ").append(contract.currency()).append('\n')
+        .append("localSymbol = ").append(contract.localSymbol()).append('\n')
+        .append("tradingClass = ").append(contract.tradingClass()).append('\n');
     }
 	
     public static String bondContractDetails(int reqId, ContractDetails contractDetails) {
+        return bondContractDetails(new StringBuilder(1024), reqId, contractDetails).toString();
+    }
+
+    public static StringBuilder bondContractDetails(StringBuilder sb, int reqId, ContractDetails contractDetails) {
         Contract contract = contractDetails.contract();
-		return "reqId = " + reqId + " ===================================\n"	
-        + " ---- Bond Contract Details begin ----\n"
-        + "symbol = " + contract.symbol() + "\n"
-        + "secType = " + contract.getSecType() + "\n"
-        + "cusip = " + contractDetails.cusip() + "\n"
-        + "coupon = " + contractDetails.coupon() + "\n"
-        + "maturity = " + contractDetails.maturity() + "\n"
-        + "issueDate = " + contractDetails.issueDate() + "\n"
-        + "ratings = " + contractDetails.ratings() + "\n"
-        + "bondType = " + contractDetails.bondType() + "\n"
-        + "couponType = " + contractDetails.couponType() + "\n"
-        + "convertible = " + contractDetails.convertible() + "\n"
-        + "callable = " + contractDetails.callable() + "\n"
-        + "putable = " + contractDetails.putable() + "\n"
-        + "descAppend = " + contractDetails.descAppend() + "\n"
-        + "exchange = " + contract.exchange() + "\n"
-        + "currency = " + contract.currency() + "\n"
-        + "marketName = " + contractDetails.marketName() + "\n"
-        + "tradingClass = " + contract.tradingClass() + "\n"
-        + "conid = " + contract.conid() + "\n"
-        + "minTick = " + contractDetails.minTick() + "\n"
-        + "orderTypes = " + contractDetails.orderTypes() + "\n"
-        + "validExchanges = " + contractDetails.validExchanges() + "\n"
-        + "nextOptionDate = " + contractDetails.nextOptionDate() + "\n"
-        + "nextOptionType = " + contractDetails.nextOptionType() + "\n"
-        + "nextOptionPartial = " + contractDetails.nextOptionPartial() + "\n"
-        + "notes = " + contractDetails.notes() + "\n"
-        + "longName = " + contractDetails.longName() + "\n"
-        + "evRule = " + contractDetails.evRule() + "\n"
-        + "evMultiplier = " + contractDetails.evMultiplier() + "\n"
-        + "mdSizeMultiplier = " + contractDetails.mdSizeMultiplier() + "\n"
-        + "aggGroup = " + contractDetails.aggGroup() + "\n"
-        + "marketRuleIds = " + contractDetails.marketRuleIds() + "\n"
-        + "timeZoneId = " + contractDetails.timeZoneId() + "\n"
-        + "lastTradeTime = " + contractDetails.lastTradeTime() + "\n"
-        + contractDetailsSecIdList(contractDetails)
-        + " ---- Bond Contract Details End ----\n";
-    }
-    
-    private static String contractDetailsSecIdList(ContractDetails contractDetails) {
-        final StringBuilder sb = new StringBuilder(32);
+		sb.append("reqId = ").append(reqId).append(" ===================================\n")
+        .append(" ---- Bond Contract Details begin ----\n")
+        .append("symbol = ").append(contract.symbol()).append('\n')
+        .append("secType = ").append(contract.getSecType()).append('\n')
+        .append("cusip = ").append(contractDetails.cusip()).append('\n')
+        .append("coupon = ").append(contractDetails.coupon()).append('\n')
+        .append("maturity = ").append(contractDetails.maturity()).append('\n')
+        .append("issueDate = ").append(contractDetails.issueDate()).append('\n')
+        .append("ratings = ").append(contractDetails.ratings()).append('\n')
+        .append("bondType = ").append(contractDetails.bondType()).append('\n')
+        .append("couponType = ").append(contractDetails.couponType()).append('\n')
+        .append("convertible = ").append(contractDetails.convertible()).append('\n')
+        .append("callable = ").append(contractDetails.callable()).append('\n')
+        .append("putable = ").append(contractDetails.putable()).append('\n')
+        .append("descAppend = ").append(contractDetails.descAppend()).append('\n')
+        .append("exchange = ").append(contract.exchange()).append('\n')
+        .append("currency = ").append(contract.currency()).append('\n')
+        .append("marketName = ").append(contractDetails.marketName()).append('\n')
+        .append("tradingClass = ").append(contract.tradingClass()).append('\n')
+        .append("conid = ").append(contract.conid()).append('\n')
+        .append("minTick = ").append(contractDetails.minTick()).append('\n')
+        .append("orderTypes = ").append(contractDetails.orderTypes()).append('\n')
+        .append("validExchanges = ").append(contractDetails.validExchanges()).append('\n')
+        .append("nextOptionDate = ").append(contractDetails.nextOptionDate()).append('\n')
+        .append("nextOptionType = ").append(contractDetails.nextOptionType()).append('\n')
+        .append("nextOptionPartial = ").append(contractDetails.nextOptionPartial()).append('\n')
+        .append("notes = ").append(contractDetails.notes()).append('\n')
+        .append("longName = ").append(contractDetails.longName()).append('\n')
+        .append("evRule = ").append(contractDetails.evRule()).append('\n')
+        .append("evMultiplier = ").append(contractDetails.evMultiplier()).append('\n')
+        .append("mdSizeMultiplier = ").append(contractDetails.mdSizeMultiplier()).append('\n')
+        .append("aggGroup = ").append(contractDetails.aggGroup()).append('\n')
+        .append("marketRuleIds = ").append(contractDetails.marketRuleIds()).append('\n')
+        .append("timeZoneId = ").append(contractDetails.timeZoneId()).append('\n')
+        .append("lastTradeTime = ").append(contractDetails.lastTradeTime()).append('\n');
+		appendContractDetailsSecIdList(sb, contractDetails);
+		return sb.append(" ---- Bond Contract Details End ----\n");
+    }
+    
+    private static void appendContractDetailsSecIdList(StringBuilder sb, ContractDetails contractDetails) {
         sb.append("secIdList={");
         if (contractDetails.secIdList() != null) {
 			for (TagValue param : contractDetails.secIdList()) {
@@ -206,212 +289,348 @@ public class EWrapperMsgGenerator {
 			}
         }
         sb.append("}\n");
-        return sb.toString();
     }
 
     public static String contractDetailsEnd(int reqId) {
-    	return "reqId = " + reqId + " =============== end ===============";
+    	return contractDetailsEnd(new StringBuilder(48), reqId).toString();
+    }
+
+    public static StringBuilder contractDetailsEnd(StringBuilder sb, int reqId) {
+    	return sb.append("reqId = ").append(reqId).append(" =============== end ===============");
     }
     
     public static String execDetails( int reqId, Contract contract, Execution execution) {
-		return " ---- Execution Details begin ----\n"
-        + "reqId = " + reqId + "\n"
-        + "orderId = " + execution.orderId() + "\n"
-        + "clientId = " + execution.clientId() + "\n"
-        + contractMsg(contract)
-        + "execId = " + execution.execId() + "\n"
-        + "time = " + execution.time() + "\n"
-        + "acctNumber = " + execution.acctNumber() + "\n"
-        + "executionExchange = " + execution.exchange() + "\n"
-        + "side = " + execution.side() + "\n"
-        + "shares = " + execution.shares() + "\n"
-        + "price = " + execution.price() + "\n"
-        + "permId = " + execution.permId() + "\n"
-        + "liquidation = " + execution.liquidation() + "\n"
-        + "cumQty = " + execution.cumQty() + "\n"
-        + "avgPrice = " + execution.avgPrice() + "\n"
-        + "orderRef = " + execution.orderRef() + "\n"
-        + "evRule = " + execution.evRule() + "\n"
-        + "evMultiplier = " + execution.evMultiplier() + "\n"
-        + "modelCode = " + execution.modelCode() + "\n"
-        + "lastLiquidity = " + execution.lastLiquidity() + "\n"
-        + " ---- Execution Details end ----\n";
+		return execDetails(new StringBuilder(768), reqId, contract, execution).toString();
+    }
+
+    public static StringBuilder execDetails(StringBuilder sb, int reqId, Contract contract, Execution execution) {
+		sb.append(" ---- Execution Details begin ----\n")
+        .append("reqId = ").append(reqId).append('\n')
+        .append("orderId = ").append(execution.orderId()).append('\n')
+        .append("clientId = ").append(execution.clientId()).append('\n');
+		appendContractMsg(sb, contract);
+		return sb.append("execId = ").append(execution.execId()).append('\n')
+        .append("time = ").append(execution.time()).append('\n')
+        .append("acctNumber = ").append(execution.acctNumber()).append('\n')
+        .append("executionExchange = ").append(execution.exchange()).append('\n')
+        .append("side = ").append(execution.side()).append('\n')
+        .append("shares = ").append(execution.shares()).append('\n')
+        .append("price = ").append(execution.price()).append('\n')
+        .append("permId = ").append(execution.permId()).append('\n')
+        .append("liquidation = ").append(execution.liquidation()).append('\n')
+        .append("cumQty = ").append(execution.cumQty()).append('\n')
+        .append("avgPrice = ").append(execution.avgPrice()).append('\n')
+        .append("orderRef = ").append(execution.orderRef()).append('\n')
+        .append("evRule = ").append(execution.evRule()).append('\n')
+        .append("evMultiplier = ").append(execution.evMultiplier()).append('\n')
+        .append("modelCode = ").append(execution.modelCode()).append('\n')
+        .append("lastLiquidity = ").append(execution.lastLiquidity()).append('\n')
+        .append(" ---- Execution Details end ----\n");
     }
     
     public static String execDetailsEnd(int reqId) {
-    	return "reqId = " + reqId + " =============== end ===============";
+    	return execDetailsEnd(new StringBuilder(48), reqId).toString();
+    }
+
+    public static StringBuilder execDetailsEnd(StringBuilder sb, int reqId) {
+    	return sb.append("reqId = ").append(reqId).append(" =============== end ===============");
     }
     
     public static String updateMktDepth( int tickerId, int position, int operation, int side,
     									 double price, long size) {
-    	return "updateMktDepth: " + tickerId + " " + position + " " + operation + " " + side + " " + price + " " + size;
+    	return updateMktDepth(new StringBuilder(64), tickerId, position, operation, side, price, size).toString();
+    }
+
+    public static StringBuilder updateMktDepth(StringBuilder sb, int tickerId, int position, int operation, int side,
+    									 double price, long size) {
+    	return sb.append("updateMktDepth: ").append(tickerId).append(' ').append(position).append(' ').append(operation)
+    		.append(' ').append(side).append(' ').append(price).append(' ').append(size);
     }
     
     public static String updateMktDepthL2( int tickerId, int position, String marketMaker,
     									   int operation, int side, double price, long size, boolean isSmartDepth) {
-    	return "updateMktDepth: " + tickerId + " " + position + " " + marketMaker + " " + operation + " " + side + " " + price + " " + size + " " + isSmartDepth;
+    	return updateMktDepthL2(new StringBuilder(80), tickerId, position, marketMaker, operation, side, price, size, isSmartDepth).toString();
+    }
+
+    public static StringBuilder updateMktDepthL2(StringBuilder sb, int tickerId, int position, String marketMaker,
+    									   int operation, int side, double price, long size, boolean isSmartDepth) {
+    	return sb.append("updateMktDepth: ").append(tickerId).append(' ').append(position).append(' ').append(marketMaker)
+    		.append(' ').append(operation).append(' ').append(side).append(' ').append(price).append(' ').append(size)
+    		.append(' ').append(isSmartDepth);
     }
     
     public static String updateNewsBulletin( int msgId, int msgType, String message, String origExchange) {
-    	return "MsgId=" + msgId + " :: MsgType=" + msgType +  " :: Origin=" + origExchange + " :: Message=" + message;
+    	return updateNewsBulletin(new StringBuilder(128), msgId, msgType, message, origExchange).toString();
+    }
+
+    public static StringBuilder updateNewsBulletin(StringBuilder sb, int msgId, int msgType, String message, String origExchange) {
+    	return sb.append("MsgId=").append(msgId).append(" :: MsgType=").append(msgType).append(" :: Origin=").append(origExchange)
+    		.append(" :: Message=").append(message);
     }
     
     public static String managedAccounts( String accountsList) {
-    	return "Connected : The list of managed accounts are : [" + accountsList + "]";
+    	return managedAccounts(new StringBuilder(96), accountsList).toString();
+    }
+
+    public static StringBuilder managedAccounts(StringBuilder sb, String accountsList) {
+    	return sb.append("Connected : The list of managed accounts are : [").append(accountsList).append(']');
     }
     
     public static String receiveFA(int faDataType, String xml) {
-    	return FINANCIAL_ADVISOR + " " + EClient.faMsgTypeName(faDataType) + " " + xml;
+    	return receiveFA(new StringBuilder(256), faDataType, xml).toString();
+    }
+
+    public static StringBuilder receiveFA(StringBuilder sb, int faDataType, String xml) {
+    	return sb.append(FINANCIAL_ADVISOR).append(' ').append(EClient.faMsgTypeName(faDataType)).append(' ').append(xml);
     }
     
     public static String historicalData(int reqId, String date, double open, double high, double low,
                       					double close, long volume, int count, double WAP) {
-    	return "id=" + reqId +
-        " date = " + date +
-        " open=" + open +
-        " high=" + high +
-        " low=" + low +
-        " close=" + close +
-        " volume=" + volume +
-        " count=" + count +
-        " WAP=" + WAP;
+    	return historicalData(new StringBuilder(160), reqId, date, open, high, low, close, volume, count, WAP).toString();
+    }
+
+    public static StringBuilder historicalData(StringBuilder sb, int reqId, String date, double open, double high, double low,
+                      					double close, long volume, int count, double WAP) {
+    	return sb.append("id=").append(reqId)
+        .append(" date = ").append(date)
+        .append(" open=").append(open)
+        .append(" high=").append(high)
+        .append(" low=").append(low)
+        .append(" close=").append(close)
+        .append(" volume=").append(volume)
+        .append(" count=").append(count)
+        .append(" WAP=").append(WAP);
     }
+
     public static String historicalDataEnd(int reqId, String startDate, String endDate) {
-    	return "id=" + reqId +
-    			" start date = " + startDate +
-    			" end date=" + endDate;
+    	return historicalDataEnd(new StringBuilder(80), reqId, startDate, endDate).toString();
+    }
+
+    public static StringBuilder historicalDataEnd(StringBuilder sb, int reqId, String startDate, String endDate) {
+    	return sb.append("id=").append(reqId)
+    			.append(" start date = ").append(startDate)
+    			.append(" end date=").append(endDate);
     }
     
 	public static String realtimeBar(int reqId, long time, double open,
 			double high, double low, double close, long volume, double wap, int count) {
-        return "id=" + reqId +
-        " time = " + time +
-        " open=" + open +
-        " high=" + high +
-        " low=" + low +
-        " close=" + close +
-        " volume=" + volume +
-        " count=" + count +
-        " WAP=" + wap;
+		return realtimeBar(new StringBuilder(160), reqId, time, open, high, low, close, volume, wap, count).toString();
+	}
+
+	public static StringBuilder realtimeBar(StringBuilder sb, int reqId, long time, double open,
+			double high, double low, double close, long volume, double wap, int count) {
+        return sb.append("id=").append(reqId)
+        .append(" time = ").append(time)
+        .append(" open=").append(open)
+        .append(" high=").append(high)
+        .append(" low=").append(low)
+        .append(" close=").append(close)
+        .append(" volume=").append(volume)
+        .append(" count=").append(count)
+        .append(" WAP=").append(wap);
 	}
 	
     public static String scannerParameters(String xml) {
-    	return SCANNER_PARAMETERS + "\n" + xml;
+    	return scannerParameters(new StringBuilder(1024), xml).toString();
+    }
+
+    public static StringBuilder scannerParameters(StringBuilder sb, String xml) {
+    	return sb.append(SCANNER_PARAMETERS).append('\n').append(xml);
     }
     
     public static String scannerData(int reqId, int rank, ContractDetails contractDetails,
     								 String distance, String benchmark, String projection,
     								 String legsStr) {
+    	return scannerData(new StringBuilder(320), reqId, rank, contractDetails, distance, benchmark, projection, legsStr).toString();
+    }
+
+    public static StringBuilder scannerData(StringBuilder sb, int reqId, int rank, ContractDetails contractDetails,
+    								 String distance, String benchmark, String projection,
+    								 String legsStr) {
         Contract contract = contractDetails.contract();
-    	return "id = " + reqId +
-        " rank=" + rank +
-        " symbol=" + contract.symbol() +
-        " secType=" + contract.getSecType() +
-        " lastTradeDate=" + contract.lastTradeDateOrContractMonth() +
-        " strike=" + contract.strike() +
-        " right=" + contract.getRight() +
-        " exchange=" + contract.exchange() +
-        " currency=" + contract.currency() +
-        " localSymbol=" + contract.localSymbol() +
-        " marketName=" + contractDetails.marketName() +
-        " tradingClass=" + contract.tradingClass() +
-        " distance=" + distance +
-        " benchmark=" + benchmark +
-        " projection=" + projection +
-        " legsStr=" + legsStr;
+    	return sb.append("id = ").append(reqId)
+        .append(" rank=").append(rank)
+        .append(" symbol=").append(contract.symbol())
+        .append(" secType=").append(contract.getSecType())
+        .append(" lastTradeDate=").append(contract.lastTradeDateOrContractMonth())
+        .append(" strike=").append(contract.strike())
+        .append(" right=").append(contract.getRight())
+        .append(" exchange=").append(contract.exchange())
+        .append(" currency=").append(contract.currency())
+        .append(" localSymbol=").append(contract.localSymbol())
+        .append(" marketName=").append(contractDetails.marketName())
+        .append(" tradingClass=").append(contract.tradingClass())
+        .append(" distance=").append(distance)
+        .append(" benchmark=").append(benchmark)
+        .append(" projection=").append(projection)
+        .append(" legsStr=").append(legsStr);
     }
     
     public static String scannerDataEnd(int reqId) {
-    	return "id = " + reqId + " =============== end ===============";
+    	return scannerDataEnd(new StringBuilder(48), reqId).toString();
+    }
+
+    public static StringBuilder scannerDataEnd(StringBuilder sb, int reqId) {
+    	return sb.append("id = ").append(reqId).append(" =============== end ===============");
     }
     
     public static String currentTime(long time) {
-		return "current time = " + time +
-		" (" + DateFormat.getDateTimeInstance().format(new Date(time * 1000)) + ")";
+		return currentTime(new StringBuilder(64), time).toString();
+    }
+
+    public static StringBuilder currentTime(StringBuilder sb, long time) {
+		return sb.append("current time = ").append(time)
+		.append(" (").append(DateFormat.getDateTimeInstance().format(new Date(time * 1000))).append(')');
     }
 
     public static String fundamentalData(int reqId, String data) {
-		return "id  = " + reqId + " len = " + data.length() + '\n' + data;
+		return fundamentalData(new StringBuilder(data.length() + 32), reqId, data).toString();
+    }
+
+    public static StringBuilder fundamentalData(StringBuilder sb, int reqId, String data) {
+		return sb.append("id  = ").append(reqId).append(" len = ").append(data.length()).append('\n').append(data);
     }
     
     public static String deltaNeutralValidation(int reqId, DeltaNeutralContract deltaNeutralContract) {
-    	return "id = " + reqId
-    	+ " deltaNeutralContract.conId =" + deltaNeutralContract.conid()
-    	+ " deltaNeutralContract.delta =" + deltaNeutralContract.delta()
-    	+ " deltaNeutralContract.price =" + deltaNeutralContract.price();
+    	return deltaNeutralValidation(new StringBuilder(128), reqId, deltaNeutralContract).toString();
     }
+
+    public static StringBuilder deltaNeutralValidation(StringBuilder sb, int reqId, DeltaNeutralContract deltaNeutralContract) {
+    	return sb.append("id = ").append(reqId)
+    	.append(" deltaNeutralContract.conId =").append(deltaNeutralContract.conid())
+    	.append(" deltaNeutralContract.delta =").append(deltaNeutralContract.delta())
+    	.append(" deltaNeutralContract.price =").append(deltaNeutralContract.price());
+    }
+
     public static String tickSnapshotEnd(int tickerId) {
-    	return "id=" + tickerId + " =============== end ===============";
+    	return tickSnapshotEnd(new StringBuilder(48), tickerId).toString();
+    }
+
+    public static StringBuilder tickSnapshotEnd(StringBuilder sb, int tickerId) {
+    	return sb.append("id=").append(tickerId).append(" =============== end ===============");
     }
     
     public static String marketDataType(int reqId, int marketDataType){
-    	return "id=" + reqId + " marketDataType = " + MarketDataType.getField(marketDataType);
+    	return marketDataType(new StringBuilder(48), reqId, marketDataType).toString();
+    }
+
+    public static StringBuilder marketDataType(StringBuilder sb, int reqId, int marketDataType){
+    	return sb.append("id=").append(reqId).append(" marketDataType = ").append(MarketDataType.getField(marketDataType));
     }
     
     public static String commissionReport( CommissionReport commissionReport) {
-		return "commission report:" +
-        " execId=" + commissionReport.execId() +
-        " commission=" + Util.DoubleMaxString(commissionReport.commission()) +
-        " currency=" + commissionReport.currency() +
-        " realizedPNL=" + Util.DoubleMaxString(commissionReport.realizedPNL()) +
-        " yield=" + Util.DoubleMaxString(commissionReport.yield()) +
-        " yieldRedemptionDate=" + Util.IntMaxString(commissionReport.yieldRedemptionDate());
+		return commissionReport(new StringBuilder(160), commissionReport).toString();
+    }
+
+    public static StringBuilder commissionReport(StringBuilder sb, CommissionReport commissionReport) {
+		sb.append("commission report:")
+        .append(" execId=").append(commissionReport.execId())
+        .append(" commission=");
+		Util.appendDoubleMaxString(sb, commissionReport.commission())
+        .append(" currency=").append(commissionReport.currency())
+        .append(" realizedPNL=");
+		Util.appendDoubleMaxString(sb, commissionReport.realizedPNL())
+        .append(" yield=");
+		Util.appendDoubleMaxString(sb, commissionReport.yield())
+        .append(" yieldRedemptionDate=");
+		return Util.appendIntMaxString(sb, commissionReport.yieldRedemptionDate());
     }
     
     public static String position( String account, Contract contract, double pos, double avgCost) {
-		return " ---- Position begin ----\n"
-        + "account = " + account + "\n"
-        + contractMsg(contract)
-        + "position = " + Util.DoubleMaxString(pos) + "\n"
-        + "avgCost = " + Util.DoubleMaxString(avgCost) + "\n"
-        + " ---- Position end ----\n";
+		return position(new StringBuilder(384), account, contract, pos, avgCost).toString();
+    }
+
+    public static StringBuilder position(StringBuilder sb, String account, Contract contract, double pos, double avgCost) {
+		sb.append(" ---- Position begin ----\n")
+        .append("account = ").append(account).append('\n');
+		appendContractMsg(sb, contract);
+		sb.append("position = ");
+		Util.appendDoubleMaxString(sb, pos).append('\n')
+        .append("avgCost = ");
+		return Util.appendDoubleMaxString(sb, avgCost).append('\n')
+        .append(" ---- Position end ----\n");
     }    
 
     public static String positionEnd() {
         return " =============== end ===============";
     }
 
+    public static StringBuilder positionEnd(StringBuilder sb) {
+        return sb.append(positionEnd());
+    }
+
     public static String accountSummary( int reqId, String account, String tag, String value, String currency) {
-		return " ---- Account Summary begin ----\n"
-        + "reqId = " + reqId + "\n"
-        + "account = " + account + "\n"
-        + "tag = " + tag + "\n"
-        + "value = " + value + "\n"
-        + "currency = " + currency + "\n"
-        + " ---- Account Summary end ----\n";
+		return accountSummary(new StringBuilder(192), reqId, account, tag, value, currency).toString();
+    }
+
+    public static StringBuilder accountSummary(StringBuilder sb, int reqId, String account, String tag, String value, String currency) {
+		return sb.append(" ---- Account Summary begin ----\n")
+        .append("reqId = ").append(reqId).append('\n')
+        .append("account = ").append(account).append('\n')
+        .append("tag = ").append(tag).append('\n')
+        .append("value = ").append(value).append('\n')
+        .append("currency = ").append(currency).append('\n')
+        .append(" ---- Account Summary end ----\n");
     }
 
     public static String accountSummaryEnd( int reqId) {
-    	return "id=" + reqId + " =============== end ===============";
+    	return accountSummaryEnd(new StringBuilder(48), reqId).toString();
+    }
+
+    public static StringBuilder accountSummaryEnd(StringBuilder sb, int reqId) {
+    	return sb.append("id=").append(reqId).append(" =============== end ===============");
     }
 
     public static String positionMulti( int reqId, String account, String modelCode, Contract contract, double pos, double avgCost) {
-		return " ---- Position begin ----\n"
-        + "id = " + reqId + "\n"
-        + "account = " + account + "\n"
-        + "modelCode = " + modelCode + "\n"
-        + contractMsg(contract)
-        + "position = " + Util.DoubleMaxString(pos) + "\n"
-        + "avgCost = " + Util.DoubleMaxString(avgCost) + "\n"
-        + " ---- Position end ----\n";
+		return positionMulti(new StringBuilder(384), reqId, account, modelCode, contract, pos, avgCost).toString();
+    }
+
+    public static StringBuilder positionMulti(StringBuilder sb, int reqId, String account, String modelCode, Contract contract, double pos, double avgCost) {
+		sb.append(" ---- Position begin ----\n")
+        .append("id = ").append(reqId).append('\n')
+        .append("account = ").append(account).append('\n')
+        .append("modelCode = ").append(modelCode).append('\n');
+		appendContractMsg(sb, contract);
+		sb.append("position = ");
+		Util.appendDoubleMaxString(sb, pos).append('\n')
+        .append("avgCost = ");
+		return Util.appendDoubleMaxString(sb, avgCost).append('\n')
+        .append(" ---- Position end ----\n");
     }    
 
     public static String positionMultiEnd( int reqId) {
-        return "id = " + reqId + " =============== end ===============";
+        return positionMultiEnd(new StringBuilder(48), reqId).toString();
+    }
+
+    public static StringBuilder positionMultiEnd(StringBuilder sb, int reqId) {
+        return sb.append("id = ").append(reqId).append(" =============== end ===============");
     }
 
     public static String accountUpdateMulti( int reqId, String account, String modelCode, String key, String value, String currency) {
-		return " id = " + reqId + " account = " + account + " modelCode = " + modelCode + 
-                " key = " + key + " value = " + value + " currency = " + currency;
+		return accountUpdateMulti(new StringBuilder(128), reqId, account, modelCode, key, value, currency).toString();
+    }
+
+    public static StringBuilder accountUpdateMulti(StringBuilder sb, int reqId, String account, String modelCode, String key, String value, String currency) {
+		return sb.append(" id = ").append(reqId).append(" account = ").append(account).append(" modelCode = ").append(modelCode)
+                .append(" key = ").append(key).append(" value = ").append(value).append(" currency = ").append(currency);
     }
 
     public static String accountUpdateMultiEnd( int reqId) {
-    	return "id = " + reqId + " =============== end ===============";
+    	return accountUpdateMultiEnd(new StringBuilder(48), reqId).toString();
     }    
 
+    public static StringBuilder accountUpdateMultiEnd(StringBuilder sb, int reqId) {
+    	return sb.append("id = ").append(reqId).append(" =============== end ===============");
+    }
+
 	public static String securityDefinitionOptionalParameter(int reqId, String exchange, int underlyingConId, String tradingClass,
 			String multiplier, Set<String> expirations, Set<Double> strikes) {
-		final StringBuilder sb = new StringBuilder(128);
+		return securityDefinitionOptionalParameter(new StringBuilder(128), reqId, exchange, underlyingConId, tradingClass,
+				multiplier, expirations, strikes).toString();
+	}
+
+	public static StringBuilder securityDefinitionOptionalParameter(StringBuilder sb, int reqId, String exchange, int underlyingConId, String tradingClass,
+			String multiplier, Set<String> expirations, Set<Double> strikes) {
 		sb.append(" id = ").append(reqId)
 				.append(" exchange = ").append(exchange)
 				.append(" underlyingConId = ").append(underlyingConId)
@@ -425,15 +644,22 @@ public class EWrapperMsgGenerator {
 		for (Double strike : strikes) {
 			sb.append(strike).append(", ");
 		}
-		return sb.toString();
+		return sb;
 	}
 
 	public static String securityDefinitionOptionalParameterEnd( int reqId) {
-		return "id = " + reqId + " =============== end ===============";
+		return securityDefinitionOptionalParameterEnd(new StringBuilder(48), reqId).toString();
+	}
+
+	public static StringBuilder securityDefinitionOptionalParameterEnd(StringBuilder sb, int reqId) {
+		return sb.append("id = ").append(reqId).append(" =============== end ===============");
 	}
 
 	public static String softDollarTiers(int reqId, SoftDollarTier[] tiers) {
-		StringBuilder sb = new StringBuilder();
+		return softDollarTiers(new StringBuilder(), reqId, tiers).toString();
+	}
+
+	public static StringBuilder softDollarTiers(StringBuilder sb, int reqId, SoftDollarTier[] tiers) {
 		sb.append("==== Soft Dollar Tiers Begin (total=").append(tiers.length).append(") reqId: ").append(reqId).append(" ====\n");
 		for (int i = 0; i < tiers.length; i++) {
 			sb.append("Soft Dollar Tier [").append(i).append("] - name: ").append(tiers[i].name())
@@ -441,11 +667,14 @@ public class EWrapperMsgGenerator {
 		}
 		sb.append("==== Soft Dollar Tiers End (total=").append(tiers.length).append(") ====\n");
 
-		return sb.toString();
+		return sb;
 	}
 
 	public static String familyCodes(FamilyCode[] familyCodes) {
-        StringBuilder sb = new StringBuilder(256);
+        return familyCodes(new StringBuilder(256), familyCodes).toString();
+    }
+
+	public static StringBuilder familyCodes(StringBuilder sb, FamilyCode[] familyCodes) {
         sb.append("==== Family Codes Begin (total=").append(familyCodes.length).append(") ====\n");
         for (int i = 0; i < familyCodes.length; i++) {
             sb.append("Family Code [").append(i)
@@ -455,11 +684,14 @@ public class EWrapperMsgGenerator {
         }
         sb.append("==== Family Codes End (total=").append(familyCodes.length).append(") ====\n");
 
-        return sb.toString();
+        return sb;
     }
 
     public static String symbolSamples(int reqId, ContractDescription[] contractDescriptions) {
-        StringBuilder sb = new StringBuilder(256);
+        return symbolSamples(new StringBuilder(256), reqId, contractDescriptions).toString();
+    }
+
+    public static StringBuilder symbolSamples(StringBuilder sb, int reqId, ContractDescription[] contractDescriptions) {
         sb.append("==== Symbol Samples Begin (total=").append(contractDescriptions.length).append(") reqId: ").append(reqId).append(" ====\n");
         for (int i = 0; i < contractDescriptions.length; i++) {
             sb.append("---- Contract Description Begin (").append(i).append(") ----\n");
@@ -477,31 +709,43 @@ public class EWrapperMsgGenerator {
         }
         sb.append("==== Symbol Samples End (total=").append(contractDescriptions.length).append(") reqId: ").append(reqId).append(" ====\n");
 
-        return sb.toString();
+        return sb;
     }
 
 	public static String mktDepthExchanges(DepthMktDataDescription[] depthMktDataDescriptions) {
-		StringBuilder sb = new StringBuilder();
+		return mktDepthExchanges(new StringBuilder(), depthMktDataDescriptions).toString();
+	}
+
+	public static StringBuilder mktDepthExchanges(StringBuilder sb, DepthMktDataDescription[] depthMktDataDescriptions) {
 		sb.append("==== Market Depth Exchanges Begin (total=").append(depthMktDataDescriptions.length).append(") ====\n");
 		for (int i = 0; i < depthMktDataDescriptions.length; i++) {
 			sb.append("Depth Market Data Description [").append(i).append("] - exchange: ").append(depthMktDataDescriptions[i].exchange())
 					.append(", secType: ").append(depthMktDataDescriptions[i].secType())
 					.append(", listingExch: ").append(depthMktDataDescriptions[i].listingExch())
 					.append(", serviceDataType: ").append(depthMktDataDescriptions[i].serviceDataType())
-					.append(", aggGroup: ").append(depthMktDataDescriptions[i].aggGroup() != Integer.MAX_VALUE ? 
-							depthMktDataDescriptions[i].aggGroup() : "").append("\n");
+					.append(", aggGroup: ");
+			Util.appendIntMaxString(sb, depthMktDataDescriptions[i].aggGroup()).append("\n");
 		}
 		sb.append("==== Market Depth Exchanges End (total=").append(depthMktDataDescriptions.length).append(") ====\n");
-		return sb.toString();
+		return sb;
 	}
 
 	public static String tickNews(int tickerId, long timeStamp, String providerCode, String articleId, String headline, String extraData) {
-		return "TickNews. tickerId: " + tickerId + ", timeStamp: " + Util.UnixMillisecondsToString(timeStamp, "yyyy-MM-dd HH:mm:ss zzz") + 
-				", providerCode: " + providerCode + ", articleId: " + articleId + ", headline: " + headline + ", extraData: " + extraData;
+		return tickNews(new StringBuilder(192), tickerId, timeStamp, providerCode, articleId, headline, extraData).toString();
+	}
+
+	public static StringBuilder tickNews(StringBuilder sb, int tickerId, long timeStamp, String providerCode, String articleId, String headline, String extraData) {
+		sb.append("TickNews. tickerId: ").append(tickerId).append(", timeStamp: ");
+		return Util.appendUnixMillisecondsString(sb, timeStamp, "yyyy-MM-dd HH:mm:ss zzz")
+				.append(", providerCode: ").append(providerCode).append(", articleId: ").append(articleId).append(", headline: ").append(headline)
+				.append(", extraData: ").append(extraData);
 	}
 
 	public static String newsProviders(NewsProvider[] newsProviders) {
-		StringBuilder sb = new StringBuilder();
+		return newsProviders(new StringBuilder(), newsProviders).toString();
+	}
+
+	public static StringBuilder newsProviders(StringBuilder sb, NewsProvider[] newsProviders) {
 		sb.append("==== News Providers Begin (total=").append(newsProviders.length).append(") ====\n");
 		for (int i = 0; i < newsProviders.length; i++) {
 			sb.append("News Provider [").append(i).append("] - providerCode: ").append(newsProviders[i].providerCode()).append(", providerName: ")
@@ -509,23 +753,35 @@ public class EWrapperMsgGenerator {
 		}
 		sb.append("==== News Providers End (total=").append(newsProviders.length).append(") ====\n");
 
-		return sb.toString();
+		return sb;
 	}
 
     public static String error( Exception ex) { return "Error - " + ex;}
     public static String error( String str) { return str;}
+    public static StringBuilder error(StringBuilder sb, Exception ex) { return sb.append("Error - ").append(ex);}
+    public static StringBuilder error(StringBuilder sb, String str) { return sb.append(str);}
 
 	public static String error(int id, int errorCode, String errorMsg) {
-		return id + " | " + errorCode + " | " + errorMsg;
+		return error(new StringBuilder(96), id, errorCode, errorMsg).toString();
+	}
+
+	public static StringBuilder error(StringBuilder sb, int id, int errorCode, String errorMsg) {
+		return sb.append(id).append(" | ").append(errorCode).append(" | ").append(errorMsg);
 	}
 
 	public static String connectionClosed() {
 		return "Connection Closed";
 	}
 
+	public static StringBuilder connectionClosed(StringBuilder sb) {
+		return sb.append(connectionClosed());
+	}
+
 	public static String softDollarTiers(SoftDollarTier[] tiers) {
-		StringBuilder sb = new StringBuilder();
-		
+		return softDollarTiers(new StringBuilder(), tiers).toString();
+	}
+
+	public static StringBuilder softDollarTiers(StringBuilder sb, SoftDollarTier[] tiers) {
 		sb.append("==== Soft Dollar Tiers Begin (total=").append(tiers.length).append(") ====\n");
 		
 		for (SoftDollarTier tier : tiers) {
@@ -534,16 +790,23 @@ public class EWrapperMsgGenerator {
 		
 		sb.append("==== Soft Dollar Tiers End (total=").append(tiers.length).append(") ====\n");
 		
-		return sb.toString();
+		return sb;
 	}
 
 	public static String tickReqParams(int tickerId, double minTick, String bboExchange, int snapshotPermissions) {
-		return "id=" + tickerId + " minTick = " + minTick + " bboExchange = " + bboExchange + " snapshotPermissions = " + snapshotPermissions;
+		return tickReqParams(new StringBuilder(96), tickerId, minTick, bboExchange, snapshotPermissions).toString();
+	}
+
+	public static StringBuilder tickReqParams(StringBuilder sb, int tickerId, double minTick, String bboExchange, int snapshotPermissions) {
+		return sb.append("id=").append(tickerId).append(" minTick = ").append(minTick).append(" bboExchange = ").append(bboExchange)
+			.append(" snapshotPermissions = ").append(snapshotPermissions);
 	}
 
 	public static String smartComponents(int reqId, Map<Integer, Entry<String, Character>> theMap) {
-		StringBuilder sb = new StringBuilder();
-		
+		return smartComponents(new StringBuilder(), reqId, theMap).toString();
+	}
+
+	public static StringBuilder smartComponents(StringBuilder sb, int reqId, Map<Integer, Entry<String, Character>> theMap) {
 		sb.append("==== Smart Components Begin (total=").append(theMap.entrySet().size()).append(") reqId = ").append(reqId).append("====\n");
 		
 		for (Entry<Integer, Entry<String, Character>> item : theMap.entrySet()) {
@@ -552,11 +815,14 @@ public class EWrapperMsgGenerator {
 		
 		sb.append("==== Smart Components End (total=").append(theMap.entrySet().size()).append(") reqId = ").append(reqId).append("====\n");
 		
-		return sb.toString();
+		return sb;
 	}
 
 	public static String newsArticle(int requestId, int articleType, String articleText) {
-		StringBuilder sb = new StringBuilder();
+		return newsArticle(new StringBuilder(), requestId, articleType, articleText).toString();
+	}
+
+	public static StringBuilder newsArticle(StringBuilder sb, int requestId, int articleType, String articleText) {
 		sb.append("==== News Article Begin requestId: ").append(requestId).append(" ====\n");
 		if (articleType == 0) {
 			sb.append("---- Article type is text or html ----\n");
@@ -566,41 +832,67 @@ public class EWrapperMsgGenerator {
 			sb.append("Binary/pdf article text cannot be displayed\n");
 		}
 		sb.append("==== News Article End requestId: ").append(requestId).append(" ====\n");
-		return sb.toString();
+		return sb;
 	}
 	
 	public static String historicalNews(int requestId, String time, String providerCode, String articleId, String headline) {
-		return "Historical News. RequestId: " + requestId + ", time: " + time + ", providerCode: " + providerCode + 
-				", articleId: " + articleId + ", headline: " + headline;
+		return historicalNews(new StringBuilder(160), requestId, time, providerCode, articleId, headline).toString();
+	}
+
+	public static StringBuilder historicalNews(StringBuilder sb, int requestId, String time, String providerCode, String articleId, String headline) {
+		return sb.append("Historical News. RequestId: ").append(requestId).append(", time: ").append(time).append(", providerCode: ").append(providerCode)
+				.append(", articleId: ").append(articleId).append(", headline: ").append(headline);
 	}
 
 	public static String historicalNewsEnd( int requestId, boolean hasMore) {
-		return "Historical News End. RequestId: " + requestId + ", hasMore: " + hasMore;
+		return historicalNewsEnd(new StringBuilder(64), requestId, hasMore).toString();
+	}
+
+	public static StringBuilder historicalNewsEnd(StringBuilder sb, int requestId, boolean hasMore) {
+		return sb.append("Historical News End. RequestId: ").append(requestId).append(", hasMore: ").append(hasMore);
 	}
 
 	public static String headTimestamp(int reqId, String headTimestamp) {		
-		return "Head timestamp. Req Id: " + reqId + ", headTimestamp: " + headTimestamp;
+		return headTimestamp(new StringBuilder(64), reqId, headTimestamp).toString();
+	}
+
+	public static StringBuilder headTimestamp(StringBuilder sb, int reqId, String headTimestamp) {
+		return sb.append("Head timestamp. Req Id: ").append(reqId).append(", headTimestamp: ").append(headTimestamp);
 	}
 
 	public static String histogramData(int reqId, List<HistogramEntry> items) {
-		StringBuilder sb = new StringBuilder();		
+		return histogramData(new StringBuilder(), reqId, items).toString();
+	}
+
+	public static StringBuilder histogramData(StringBuilder sb, int reqId, List<HistogramEntry> items) {
 		sb.append("Histogram data. Req Id: ").append(reqId).append(", Data (").append(items.size()).append("):\n");		
 		items.forEach(i -> sb.append("\tPrice: ").append(i.price()).append(", Size: ").append(i.size()).append("\n"));
-		return sb.toString();
+		return sb;
 	}
 	
 	public static String rerouteMktDataReq(int reqId, int conId, String exchange) {
-		return "Re-route market data request. Req Id: " + reqId + ", Con Id: " + conId + ", Exchange: " + exchange;
+		return rerouteMktDataReq(new StringBuilder(96), reqId, conId, exchange).toString();
+	}
+
+	public static StringBuilder rerouteMktDataReq(StringBuilder sb, int reqId, int conId, String exchange) {
+		return sb.append("Re-route market data request. Req Id: ").append(reqId).append(", Con Id: ").append(conId).append(", Exchange: ").append(exchange);
 	}
 
 	public static String rerouteMktDepthReq(int reqId, int conId, String exchange) {
-		return "Re-route market depth request. Req Id: " + reqId + ", Con Id: " + conId + ", Exchange: " + exchange;
+		return rerouteMktDepthReq(new StringBuilder(96), reqId, conId, exchange).toString();
+	}
+
+	public static StringBuilder rerouteMktDepthReq(StringBuilder sb, int reqId, int conId, String exchange) {
+		return sb.append("Re-route market depth request. Req Id: ").append(reqId).append(", Con Id: ").append(conId).append(", Exchange: ").append(exchange);
 	}
 	
 	public static String marketRule(int marketRuleId, PriceIncrement[] priceIncrements) {
+		return marketRule(new StringBuilder(256), marketRuleId, priceIncrements).toString();
+	}
+
+	public static StringBuilder marketRule(StringBuilder sb, int marketRuleId, PriceIncrement[] priceIncrements) {
 		DecimalFormat df = new DecimalFormat("#.#");
 		df.setMaximumFractionDigits(340);
-		StringBuilder sb = new StringBuilder(256);
 		sb.append("==== Market Rule Begin (marketRuleId=").append(marketRuleId).append(") ====\n");
 		for (PriceIncrement priceIncrement : priceIncrements) {
 			sb.append("Low Edge: ").append(df.format(priceIncrement.lowEdge()));
@@ -608,74 +900,132 @@ public class EWrapperMsgGenerator {
 			sb.append("\n");
 		}
 		sb.append("==== Market Rule End (marketRuleId=").append(marketRuleId).append(") ====\n");
-		return sb.toString();
+		return sb;
 	}
 	
 
     public static String pnl(int reqId, double dailyPnL, double unrealizedPnL, double realizedPnL) {
-		return "Daily PnL. Req Id: " + reqId + ", daily PnL: " + dailyPnL + ", unrealizedPnL: " + unrealizedPnL + ", realizedPnL: " + realizedPnL;
+		return pnl(new StringBuilder(128), reqId, dailyPnL, unrealizedPnL, realizedPnL).toString();
+    }
+
+    public static StringBuilder pnl(StringBuilder sb, int reqId, double dailyPnL, double unrealizedPnL, double realizedPnL) {
+		return sb.append("Daily PnL. Req Id: ").append(reqId).append(", daily PnL: ").append(dailyPnL).append(", unrealizedPnL: ").append(unrealizedPnL)
+			.append(", realizedPnL: ").append(realizedPnL);
     }
     
     public static String pnlSingle(int reqId, int pos, double dailyPnL, double unrealizedPnL, double realizedPnL, double value) {
-		return "Daily PnL Single. Req Id: " + reqId + ", pos: " + pos + ", daily PnL: " + dailyPnL + ", unrealizedPnL: " + unrealizedPnL + ", realizedPnL: " + realizedPnL + ", value: " + value;
+		return pnlSingle(new StringBuilder(160), reqId, pos, dailyPnL, unrealizedPnL, realizedPnL, value).toString();
+    }
+
+    public static StringBuilder pnlSingle(StringBuilder sb, int reqId, int pos, double dailyPnL, double unrealizedPnL, double realizedPnL, double value) {
+		return sb.append("Daily PnL Single. Req Id: ").append(reqId).append(", pos: ").append(pos).append(", daily PnL: ").append(dailyPnL)
+			.append(", unrealizedPnL: ").append(unrealizedPnL).append(", realizedPnL: ").append(realizedPnL).append(", value: ").append(value);
     }
 
     public static String historicalTick(int reqId, long time, double price, long size) {
-        return "Historical Tick. Req Id: " + reqId + ", time: " + Util.UnixSecondsToString(time, "yyyyMMdd-HH:mm:ss zzz") + ", price: " + price + ", size: " 
-                + size;
+        return historicalTick(new StringBuilder(96), reqId, time, price, size).toString();
+    }
+
+    public static StringBuilder historicalTick(StringBuilder sb, int reqId, long time, double price, long size) {
+        sb.append("Historical Tick. Req Id: ").append(reqId).append(", time: ");
+        return Util.appendUnixSecondsString(sb, time, TICK_TIME_FORMAT).append(", price: ").append(price).append(", size: ")
+                .append(size);
     }
 
     public static String historicalTickBidAsk(int reqId, long time, TickAttribBidAsk tickAttribBidAsk, double priceBid, double priceAsk,
             long sizeBid, long sizeAsk) {
-        return "Historical Tick Bid/Ask. Req Id: " + reqId + ", time: " + Util.UnixSecondsToString(time, "yyyyMMdd-HH:mm:ss zzz") + ", bid price: " + priceBid 
-                + ", ask price: " + priceAsk + ", bid size: " + sizeBid + ", ask size: " + sizeAsk 
-                + ", tick attribs: " + (tickAttribBidAsk.bidPastLow() ? "bidPastLow " : "") + (tickAttribBidAsk.askPastHigh() ? "askPastHigh " : "");
+        return historicalTickBidAsk(new StringBuilder(192), reqId, time, tickAttribBidAsk, priceBid, priceAsk, sizeBid, sizeAsk).toString();
+    }
+
+    public static StringBuilder historicalTickBidAsk(StringBuilder sb, int reqId, long time, TickAttribBidAsk tickAttribBidAsk, double priceBid, double priceAsk,
+            long sizeBid, long sizeAsk) {
+        sb.append("Historical Tick Bid/Ask. Req Id: ").append(reqId).append(", time: ");
+        return Util.appendUnixSecondsString(sb, time, TICK_TIME_FORMAT).append(", bid price: ").append(priceBid)
+                .append(", ask price: ").append(priceAsk).append(", bid size: ").append(sizeBid).append(", ask size: ").append(sizeAsk)
+                .append(", tick attribs: ").append(tickAttribBidAsk.bidPastLow() ? "bidPastLow " : "").append(tickAttribBidAsk.askPastHigh() ? "askPastHigh " : "");
     }
 
     public static String historicalTickLast(int reqId, long time, TickAttribLast tickAttribLast, double price, long size, String exchange,
             String specialConditions) {        
-        return "Historical Tick Last. Req Id: " + reqId + ", time: " + Util.UnixSecondsToString(time, "yyyyMMdd-HH:mm:ss zzz") + ", price: " + price + ", size: " 
-                + size + ", exchange: " + exchange + ", special conditions:" + specialConditions 
-                + ", tick attribs: " + (tickAttribLast.pastLimit() ? "pastLimit " : "") + (tickAttribLast.unreported() ? "unreported " : "");
+        return historicalTickLast(new StringBuilder(192), reqId, time, tickAttribLast, price, size, exchange, specialConditions).toString();
+    }
+
+    public static StringBuilder historicalTickLast(StringBuilder sb, int reqId, long time, TickAttribLast tickAttribLast, double price, long size, String exchange,
+            String specialConditions) {
+        sb.append("Historical Tick Last. Req Id: ").append(reqId).append(", time: ");
+        return Util.appendUnixSecondsString(sb, time, TICK_TIME_FORMAT).append(", price: ").append(price).append(", size: ")
+                .append(size).append(", exchange: ").append(exchange).append(", special conditions:").append(specialConditions)
+                .append(", tick attribs: ").append(tickAttribLast.pastLimit() ? "pastLimit " : "").append(tickAttribLast.unreported() ? "unreported " : "");
     }
     
     public static String tickByTickAllLast(int reqId, int tickType, long time, double price, long size, TickAttribLast tickAttribLast, 
             String exchange, String specialConditions){
-        return (tickType == 1 ? "Last." : "AllLast.") +
-                " Req Id: " + reqId + " Time: " + Util.UnixSecondsToString(time, "yyyyMMdd-HH:mm:ss zzz") + " Price: " + price + " Size: " + size +
-                " Exch: " + exchange + " Spec Cond: " + specialConditions + " Tick Attibs: " + (tickAttribLast.pastLimit() ? "pastLimit " : "") +
-                (tickType == 1 ? "" : (tickAttribLast.unreported() ? "unreported " : ""));
+        return tickByTickAllLast(new StringBuilder(160), reqId, tickType, time, price, size, tickAttribLast, exchange, specialConditions).toString();
+    }
+
+    public static StringBuilder tickByTickAllLast(StringBuilder sb, int reqId, int tickType, long time, double price, long size, TickAttribLast tickAttribLast,
+            String exchange, String specialConditions){
+        sb.append(tickType == 1 ? "Last." : "AllLast.").append(" Req Id: ").append(reqId).append(" Time: ");
+        return Util.appendUnixSecondsString(sb, time, TICK_TIME_FORMAT).append(" Price: ").append(price).append(" Size: ").append(size)
+                .append(" Exch: ").append(exchange).append(" Spec Cond: ").append(specialConditions).append(" Tick Attibs: ").append(tickAttribLast.pastLimit() ? "pastLimit " : "")
+                .append(tickType == 1 ? "" : (tickAttribLast.unreported() ? "unreported " : ""));
     }
     
     public static String tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize,
             TickAttribBidAsk tickAttribBidAsk){
-        return "BidAsk. Req Id: " + reqId + " Time: " + Util.UnixSecondsToString(time, "yyyyMMdd-HH:mm:ss zzz") + " BidPrice: " + bidPrice + 
-                " AskPrice: " + askPrice + " BidSize: " + bidSize + " AskSize: " + askSize + " Tick Attibs: " + 
-                (tickAttribBidAsk.bidPastLow() ? "bidPastLow " : "") + (tickAttribBidAsk.askPastHigh() ? "askPastHigh " : "");
+        return tickByTickBidAsk(new StringBuilder(160), reqId, time, bidPrice, askPrice, bidSize, askSize, tickAttribBidAsk).toString();
+    }
+
+    public static StringBuilder tickByTickBidAsk(StringBuilder sb, int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize,
+            TickAttribBidAsk tickAttribBidAsk){
+        sb.append("BidAsk. Req Id: ").append(reqId).append(" Time: ");
+        return Util.appendUnixSecondsString(sb, time, TICK_TIME_FORMAT).append(" BidPrice: ").append(bidPrice)
+                .append(" AskPrice: ").append(askPrice).append(" BidSize: ").append(bidSize).append(" AskSize: ").append(askSize).append(" Tick Attibs: ")
+                .append(tickAttribBidAsk.bidPastLow() ? "bidPastLow " : "").append(tickAttribBidAsk.askPastHigh() ? "askPastHigh " : "");
     }
 
     public static String tickByTickMidPoint(int reqId, long time, double midPoint){
-        return "MidPoint. Req Id: " + reqId + " Time: " + Util.UnixSecondsToString(time, "yyyyMMdd-HH:mm:ss zzz") + " MidPoint: " + midPoint;
+        return tickByTickMidPoint(new StringBuilder(96), reqId, time, midPoint).toString();
+    }
+
+    public static StringBuilder tickByTickMidPoint(StringBuilder sb, int reqId, long time, double midPoint){
+        sb.append("MidPoint. Req Id: ").append(reqId).append(" Time: ");
+        return Util.appendUnixSecondsString(sb, time, TICK_TIME_FORMAT).append(" MidPoint: ").append(midPoint);
     }
     
     public static String orderBound(long orderId, int apiClientId, int apiOrderId){
-        return "order bound: orderId=" + apiOrderId + " clientId=" + apiClientId + " permId=" + orderId;
+        return orderBound(new StringBuilder(64), orderId, apiClientId, apiOrderId).toString();
+    }
+
+    public static StringBuilder orderBound(StringBuilder sb, long orderId, int apiClientId, int apiOrderId){
+        return sb.append("order bound: orderId=").append(apiOrderId).append(" clientId=").append(apiClientId).append(" permId=").append(orderId);
     }
     
     public static String completedOrder( Contract contract, Order order, OrderState orderState) {
-        final StringBuilder sb = new StringBuilder(1024);
+        return completedOrder(new StringBuilder(1024), contract, order, orderState).toString();
+    }
+
+    public static StringBuilder completedOrder(StringBuilder sb, Contract contract, Order order, OrderState orderState) {
         sb.append("completed order:");
         appendOrderFields(sb, Integer.MAX_VALUE, contract, order, orderState, false);
-        return sb.toString();
+        return sb;
     }
     
     public static String completedOrdersEnd() {
         return "=============== end ===============";
     }
+
+    public static StringBuilder completedOrdersEnd(StringBuilder sb) {
+        return sb.append(completedOrdersEnd());
+    }
  
     public static String replaceFAEnd(int reqId, String text) {
-    	return "id = " + reqId + " ===== " + text + " =====";
+    	return replaceFAEnd(new StringBuilder(64), reqId, text).toString();
     }    
+
+    public static StringBuilder replaceFAEnd(StringBuilder sb, int reqId, String text) {
+    	return sb.append("id = ").append(reqId).append(" ===== ").append(text).append(" =====");
+    }
     
     private static void appendOrderFields(StringBuilder sb, int orderId, Contract contract, Order order, OrderState orderState,
             boolean isOpenOrder) {
@@ -0,0 +1,93 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.client;
+
+/** Ids of the messages sent by TWS, as used by EMessageMask and EMessageHandler. */
+public final class IncomingMessage {
+    public static final int END_CONN                                 = -1;
+    public static final int TICK_PRICE                               = 1;
+    public static final int TICK_SIZE                                = 2;
+    public static final int ORDER_STATUS                             = 3;
+    public static final int ERR_MSG                                  = 4;
+    public static final int OPEN_ORDER                               = 5;
+    public static final int ACCT_VALUE                               = 6;
+    public static final int PORTFOLIO_VALUE                          = 7;
+    public static final int ACCT_UPDATE_TIME                         = 8;
+    public static final int NEXT_VALID_ID                            = 9;
+    public static final int CONTRACT_DATA                            = 10;
+    public static final int EXECUTION_DATA                           = 11;
+    public static final int MARKET_DEPTH                             = 12;
+    public static final int MARKET_DEPTH_L2                          = 13;
+    public static final int NEWS_BULLETINS                           = 14;
+    public static final int MANAGED_ACCTS                            = 15;
+    public static final int RECEIVE_FA                               = 16;
+    public static final int HISTORICAL_DATA                          = 17;
+    public static final int BOND_CONTRACT_DATA                       = 18;
+    public static final int SCANNER_PARAMETERS                       = 19;
+    public static final int SCANNER_DATA                             = 20;
+    public static final int TICK_OPTION_COMPUTATION                  = 21;
+    public static final int TICK_GENERIC                             = 45;
+    public static final int TICK_STRING                              = 46;
+    public static final int TICK_EFP                                 = 47;
+    public static final int CURRENT_TIME                             = 49;
+    public static final int REAL_TIME_BARS                           = 50;
+    public static final int FUNDAMENTAL_DATA                         = 51;
+    public static final int CONTRACT_DATA_END                        = 52;
+    public static final int OPEN_ORDER_END                           = 53;
+    public static final int ACCT_DOWNLOAD_END                        = 54;
+    public static final int EXECUTION_DATA_END                       = 55;
+    public static final int DELTA_NEUTRAL_VALIDATION                 = 56;
+    public static final int TICK_SNAPSHOT_END                        = 57;
+    public static final int MARKET_DATA_TYPE                         = 58;
+    public static final int COMMISSION_REPORT                        = 59;
+    public static final int POSITION                                 = 61;
+    public static final int POSITION_END                             = 62;
+    public static final int ACCOUNT_SUMMARY                          = 63;
+    public static final int ACCOUNT_SUMMARY_END                      = 64;
+    public static final int VERIFY_MESSAGE_API                       = 65;
+    public static final int VERIFY_COMPLETED                         = 66;
+    public static final int DISPLAY_GROUP_LIST                       = 67;
+    public static final int DISPLAY_GROUP_UPDATED                    = 68;
+    public static final int VERIFY_AND_AUTH_MESSAGE_API              = 69;
+    public static final int VERIFY_AND_AUTH_COMPLETED                = 70;
+    public static final int POSITION_MULTI                           = 71;
+    public static final int POSITION_MULTI_END                       = 72;
+    public static final int ACCOUNT_UPDATE_MULTI                     = 73;
+    public static final int ACCOUNT_UPDATE_MULTI_END                 = 74;
+    public static final int SECURITY_DEFINITION_OPTION_PARAMETER     = 75;
+    public static final int SECURITY_DEFINITION_OPTION_PARAMETER_END = 76;
+    public static final int SOFT_DOLLAR_TIERS                        = 77;
+    public static final int FAMILY_CODES                             = 78;
+    public static final int SYMBOL_SAMPLES                           = 79;
+    public static final int MKT_DEPTH_EXCHANGES                      = 80;
+    public static final int TICK_REQ_PARAMS                          = 81;
+    public static final int SMART_COMPONENTS                         = 82;
+    public static final int NEWS_ARTICLE                             = 83;
+    public static final int TICK_NEWS                                = 84;
+    public static final int NEWS_PROVIDERS                           = 85;
+    public static final int HISTORICAL_NEWS                          = 86;
+    public static final int HISTORICAL_NEWS_END                      = 87;
+    public static final int HEAD_TIMESTAMP                           = 88;
+    public static final int HISTOGRAM_DATA                           = 89;
+    public static final int HISTORICAL_DATA_UPDATE                   = 90;
+    public static final int REROUTE_MKT_DATA_REQ                     = 91;
+    public static final int REROUTE_MKT_DEPTH_REQ                    = 92;
+    public static final int MARKET_RULE                              = 93;
+    public static final int PNL                                      = 94;
+    public static final int PNL_SINGLE                               = 95;
+    public static final int HISTORICAL_TICKS                         = 96;
+    public static final int HISTORICAL_TICKS_BID_ASK                 = 97;
+    public static final int HISTORICAL_TICKS_LAST                    = 98;
+    public static final int TICK_BY_TICK                             = 99;
+    public static final int ORDER_BOUND                              = 100;
+    public static final int COMPLETED_ORDER                          = 101;
+    public static final int COMPLETED_ORDERS_END                     = 102;
+    public static final int REPLACE_FA_END                           = 103;
+
+    /** Upper bound (exclusive) of the ids the dispatch tables are sized for. */
+    public static final int MSG_ID_LIMIT = 256;
+
+    private IncomingMessage() {
+    }
+}
@@ -9,6 +9,7 @@ import com.ib.controller.ApiController.IContractDetailsHandler;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -92,6 +93,56 @@ public class Util {
     public static String UnixSecondsToString(long seconds, String dateFormat){
         return UnixMillisecondsToString(seconds * 1000, dateFormat);
     }
+
+    // The append variants below write the same text as their String counterparts straight into sb,
+    // for log lines built in a reused buffer.
+
+    public static StringBuilder appendIntMaxString(StringBuilder sb, int value) {
+        return value == Integer.MAX_VALUE ? sb : sb.append(value);
+    }
+
+    public static StringBuilder appendDoubleMaxString(StringBuilder sb, double value) {
+        return value == Double.MAX_VALUE ? sb : sb.append(value);
+    }
+
+    public static StringBuilder appendMaxDoubleToString(StringBuilder sb, double value) {
+        return value != Double.MAX_VALUE ? sb.append(value) : sb.append("N/A");
+    }
+
+    /** Formats with a per thread formatter that is created in the default time zone of the moment and
+     *  remembers its last result, so that ticks stamped with the same second share one String. */
+    public static StringBuilder appendUnixMillisecondsString(StringBuilder sb, long milliseconds, String dateFormat) {
+        return sb.append(DATE_FORMATS.get().format(milliseconds, dateFormat));
+    }
+
+    public static StringBuilder appendUnixSecondsString(StringBuilder sb, long seconds, String dateFormat) {
+        return appendUnixMillisecondsString(sb, seconds * 1000, dateFormat);
+    }
+
+    private static final ThreadLocal<CachedDateFormat> DATE_FORMATS = ThreadLocal.withInitial(CachedDateFormat::new);
+
+    /** The formatter of the last pattern used on a thread and its last result. */
+    private static final class CachedDateFormat {
+        private final Date m_date = new Date();
+        private String m_pattern;
+        private SimpleDateFormat m_format;
+        private long m_milliseconds;
+        private String m_formatted;
+
+        String format(long milliseconds, String pattern) {
+            if (!pattern.equals(m_pattern)) {
+                m_format = new SimpleDateFormat(pattern);
+                m_pattern = pattern;
+                m_formatted = null;
+            }
+            if (m_formatted == null || milliseconds != m_milliseconds) {
+                m_date.setTime(milliseconds);
+                m_formatted = m_format.format(m_date);
+                m_milliseconds = milliseconds;
+            }
+            return m_formatted;
+        }
+    }
     
 	public static List<ContractDetails> lookupContract(ApiController controller, Contract contract) {
 		if (controller == null) {
@@ -22,6 +22,7 @@ public class ApiConnection extends EClientSocket {
 	private final ILogger m_inLogger;
 	private final ILogger m_outLogger;
 	private static final EJavaSignal m_signal = new EJavaSignal();
+	private volatile ApiTrafficLog m_trafficLog;
 
 	public ApiConnection(EWrapper wrapper, ILogger inLogger, ILogger outLogger) {
 		super( wrapper, m_signal);
@@ -29,14 +30,23 @@ public class ApiConnection extends EClientSocket {
 		m_outLogger = outLogger;
 	}
 
+	/** Logs the traffic through log, in addition to the loggers; null to stop. The caller closes the log. */
+	public void setTrafficLog(ApiTrafficLog log) {
+		m_trafficLog = log;
+	}
+
 	@Override
 	protected void sendMsg(EMessage msg) throws IOException {
 		// TODO Auto-generated method stub
 		super.sendMsg(msg);
 		
-		byte[] buf = msg.getRawData();
+		ApiTrafficLog trafficLog = m_trafficLog;
+		if (trafficLog != null) {
+			trafficLog.out(msg);
+		}
 
 		if (m_outLogger != null) {
+			byte[] buf = msg.getRawData();
 			m_outLogger.log(new String(buf, 0, buf.length, StandardCharsets.UTF_8));
 		}
 	}
@@ -56,6 +66,11 @@ public class ApiConnection extends EClientSocket {
 	public int read(byte[] buf, int off, int len) throws IOException {
 		int n = super.read(buf, off, len);
 
+		ApiTrafficLog trafficLog = m_trafficLog;
+		if (trafficLog != null) {
+			trafficLog.in(buf, off, n);
+		}
+
 		if (m_inLogger != null) {
 			m_inLogger.log(new String(buf, 0, n, StandardCharsets.UTF_8));
 		}
@@ -63,6 +78,18 @@ public class ApiConnection extends EClientSocket {
 		return n;
 	}
 
+	@Override
+	protected EMessage readFrame() throws IOException {
+		EMessage frame = super.readFrame();
+
+		ApiTrafficLog trafficLog = m_trafficLog;
+		if (trafficLog != null && frame != null) {
+			trafficLog.in(frame);
+		}
+
+		return frame;
+	}
+
 	public synchronized void placeOrder(Contract contract, Order order) {
 		// not connected?
 		if( !isConnected() ) {
@@ -10,8 +10,13 @@ import com.ib.controller.ApiConnection.ILogger;
 import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+public class ApiController implements ELazyOrderWrapper {
+	private static final int BAR_BATCH_SIZE = 1024;	// bars per IHistoricalDataBatchHandler callback at most
 
-public class ApiController implements EWrapper {
 	private ApiConnection m_client;
 	private final ILogger m_outLogger;
 	private final ILogger m_inLogger;
@@ -25,44 +30,56 @@ public class ApiController implements EWrapper {
 	private IScannerHandler m_scannerHandler;
 	private ITimeHandler m_timeHandler;
 	private IBulletinHandler m_bulletinHandler;
-	private final Map<Integer,IInternalHandler> m_contractDetailsMap = new HashMap<>();
-	private final Map<Integer,IOptHandler> m_optionCompMap = new HashMap<>();
-	private final Map<Integer,IEfpHandler> m_efpMap = new HashMap<>();
-	private final Map<Integer,ITopMktDataHandler> m_topMktDataMap = new HashMap<>();
-	private final Map<Integer,IDeepMktDataHandler> m_deepMktDataMap = new HashMap<>();
-	private final Map<Integer, IScannerHandler> m_scannerMap = new HashMap<>();
-	private final Map<Integer, IRealTimeBarHandler> m_realTimeBarMap = new HashMap<>();
-	private final Map<Integer, IHistoricalDataHandler> m_historicalDataMap = new HashMap<>();
-	private final Map<Integer, IHeadTimestampHandler> m_headTimestampMap = new HashMap<>();
-	private final Map<Integer, IHistogramDataHandler> m_histogramDataMap = new HashMap<>();
-	private final Map<Integer, IFundamentalsHandler> m_fundMap = new HashMap<>();
-	private final Map<Integer, IOrderHandler> m_orderHandlers = new HashMap<>();
-	private final Map<Integer,IAccountSummaryHandler> m_acctSummaryHandlers = new HashMap<>();
-	private final Map<Integer,IMarketValueSummaryHandler> m_mktValSummaryHandlers = new HashMap<>();
+	private final ConcurrentIntMap<IInternalHandler> m_contractDetailsMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IOptHandler> m_optionCompMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IEfpHandler> m_efpMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<ITopMktDataHandler> m_topMktDataMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IDeepMktDataHandler> m_deepMktDataMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IScannerHandler> m_scannerMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IRealTimeBarHandler> m_realTimeBarMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IHistoricalDataHandler> m_historicalDataMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<BarBatch> m_barBatchMap = new ConcurrentIntMap<>();
+	private final BarTimeParser m_barTimes = new BarTimeParser();
+	private final ConcurrentIntMap<IHeadTimestampHandler> m_headTimestampMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IHistogramDataHandler> m_histogramDataMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IFundamentalsHandler> m_fundMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IOrderHandler> m_orderHandlers = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IAccountSummaryHandler> m_acctSummaryHandlers = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IMarketValueSummaryHandler> m_mktValSummaryHandlers = new ConcurrentIntMap<>();
 	private final Set<IPositionHandler> m_positionHandlers = new ConcurrentHashSet<>();
 	private final Set<IAccountHandler> m_accountHandlers = new ConcurrentHashSet<>();
 	private final Set<ILiveOrderHandler> m_liveOrderHandlers = new ConcurrentHashSet<>();
-	private final Map<Integer, IPositionMultiHandler> m_positionMultiMap = new HashMap<>();
-	private final Map<Integer, IAccountUpdateMultiHandler> m_accountUpdateMultiMap = new HashMap<>();
-	private final Map<Integer, ISecDefOptParamsReqHandler> m_secDefOptParamsReqMap = new HashMap<>();
-	private final Map<Integer, ISoftDollarTiersReqHandler> m_softDollarTiersReqMap = new HashMap<>();
+	private final ConcurrentIntMap<IPositionMultiHandler> m_positionMultiMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IAccountUpdateMultiHandler> m_accountUpdateMultiMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<ISecDefOptParamsReqHandler> m_secDefOptParamsReqMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<ISoftDollarTiersReqHandler> m_softDollarTiersReqMap = new ConcurrentIntMap<>();
 	private final Set<IFamilyCodesHandler> m_familyCodesHandlers = new ConcurrentHashSet<>();
-	private final Map<Integer, ISymbolSamplesHandler> m_symbolSamplesHandlerMap = new HashMap<>();
+	private final ConcurrentIntMap<ISymbolSamplesHandler> m_symbolSamplesHandlerMap = new ConcurrentIntMap<>();
 	private final Set<IMktDepthExchangesHandler> m_mktDepthExchangesHandlers = new ConcurrentHashSet<>();
-	private final Map<Integer, ITickNewsHandler> m_tickNewsHandlerMap = new HashMap<>();
-	private final Map<Integer, ISmartComponentsHandler> m_smartComponentsHandler = new HashMap<>();
+	private final ConcurrentIntMap<ITickNewsHandler> m_tickNewsHandlerMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<ISmartComponentsHandler> m_smartComponentsHandler = new ConcurrentIntMap<>();
 	private final Set<INewsProvidersHandler> m_newsProvidersHandlers = new ConcurrentHashSet<>();
-	private final Map<Integer, INewsArticleHandler> m_newsArticleHandlerMap = new HashMap<>();
-	private final Map<Integer, IHistoricalNewsHandler> m_historicalNewsHandlerMap = new HashMap<>();
+	private final ConcurrentIntMap<INewsArticleHandler> m_newsArticleHandlerMap = new ConcurrentIntMap<>();
+	private final ConcurrentIntMap<IHistoricalNewsHandler> m_historicalNewsHandlerMap = new ConcurrentIntMap<>();
 	private final Set<IMarketRuleHandler> m_marketRuleHandlers = new ConcurrentHashSet<>();
-    private final Map<Integer, IPnLHandler> m_pnlMap = new HashMap<>();
-    private final Map<Integer, IPnLSingleHandler> m_pnlSingleMap = new HashMap<>();
-    private final Map<Integer, IHistoricalTickHandler> m_historicalTicksMap = new HashMap<>();
-    private final Map<Integer, ITickByTickDataHandler> m_tickByTickDataMap = new HashMap<>();
+    private final ConcurrentIntMap<IPnLHandler> m_pnlMap = new ConcurrentIntMap<>();
+    private final ConcurrentIntMap<IPnLSingleHandler> m_pnlSingleMap = new ConcurrentIntMap<>();
+    private final ConcurrentIntMap<IHistoricalTickHandler> m_historicalTicksMap = new ConcurrentIntMap<>();
+    private final ConcurrentIntMap<ITickByTickDataHandler> m_tickByTickDataMap = new ConcurrentIntMap<>();
+	private final Map<String, SharedSubscription<?>> m_sharedSubscriptions = new HashMap<>();	// guards itself and m_sharedByHandler
+	private final Map<Object, List<SharedSubscription<?>>> m_sharedByHandler = new IdentityHashMap<>();
+	private boolean m_shareSubscriptions = true;
 	private boolean m_connected = false;
+	private Supplier<EMessageQueue> m_msgQueueFactory = ELinkedMessageQueue::new;
+	private boolean m_useVirtualThreads = false;
+	private Supplier<EReaderSignal> m_signalFactory = () -> m_useVirtualThreads ? new ELockSignal() : new EJavaSignal();
+	private EReader m_reader;
 
 	public ApiConnection client() { return m_client; }
 
+	/** Reader of the current connection; exposes queueDepth() and queueHighWaterMark(). */
+	public EReader reader() { return m_reader; }
+
 	// ---------------------------------------- Constructor and Connection handling ----------------------------------------
 	public interface IConnectionHandler {
 		void connected();
@@ -84,13 +101,37 @@ public class ApiController implements EWrapper {
 		m_outLogger = outLogger;
 	}
 	
+	/** Selects the queue and wait strategy between the reader and processing threads for the next connect(),
+	 *  e.g. {@code () -> new ERingBufferMessageQueue(4096)} with {@code () -> new ESpinningSignal(WaitStrategy.YIELD)}. */
+	public void setMsgHandOff(Supplier<EMessageQueue> queueFactory, Supplier<EReaderSignal> signalFactory) {
+		m_msgQueueFactory = queueFactory;
+		m_signalFactory = signalFactory;
+	}
+
+	/** Runs the reader, the message processing loop and the request writer of the next connect() on
+	 *  virtual threads where the JDK has them (see EThreads), so many connections in one JVM do not
+	 *  each hold three platform threads. Unless setMsgHandOff chose one, the signal is an ELockSignal. */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		m_useVirtualThreads = useVirtualThreads;
+		m_client.setUseVirtualThreads(useVirtualThreads);
+	}
+
+	/** Lets streaming top market data, tick-by-tick and real-time bar requests for the same contract
+	 *  and data share one IB subscription, which is cancelled when the last of their handlers is.
+	 *  Requests are shared when the contract has a conid and the requests match in exchange and
+	 *  data requested; snapshots and tick-by-tick requests for past ticks are never shared. On by default. */
+	public void setShareSubscriptions(boolean shareSubscriptions) {
+		m_shareSubscriptions = shareSubscriptions;
+	}
+
 	private void startMsgProcessingThread() {
-		final EReaderSignal signal = new EJavaSignal();		
-		final EReader reader = new EReader(client(), signal);
+		final EReaderSignal signal = m_signalFactory.get();
+		final EReader reader = new EReader(client(), signal, m_msgQueueFactory.get());
 		
-		reader.start();
+		m_reader = reader;
+		reader.start(m_useVirtualThreads);
 		
-		new Thread(() -> {
+		EThreads.startThread("ApiController processMsgs", m_useVirtualThreads, () -> {
             while (client().isConnected()) {
                 signal.waitForSignal();
                 try {
@@ -99,7 +140,7 @@ public class ApiController implements EWrapper {
                     error(e);
                 }
             }
-        }).start();
+        });
 	}
 
 	public void connect( String host, int port, int clientId, String connectionOpts ) {
@@ -117,6 +158,7 @@ public class ApiController implements EWrapper {
 		m_client.eDisconnect();
 		m_connectionHandler.disconnected();
 		m_connected = false;
+		clearSharedSubscriptions();
 		sendEOM();
 	}
 
@@ -168,6 +210,7 @@ public class ApiController implements EWrapper {
 	@Override public void connectionClosed() {
 		m_connectionHandler.disconnected();
 		m_connected = false;
+		clearSharedSubscriptions();
 	}
 
 
@@ -261,8 +304,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 		
-		Integer reqId = getAndRemoveKey( m_acctSummaryHandlers, handler);
-		if (reqId != null) {
+		int reqId = m_acctSummaryHandlers.removeValue( handler);
+		if (reqId != ConcurrentIntMap.NO_KEY) {
 			m_client.cancelAccountSummary( reqId);
 			sendEOM();
 		}
@@ -282,8 +325,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_mktValSummaryHandlers, handler);
-		if (reqId != null) {
+		int reqId = m_mktValSummaryHandlers.removeValue( handler);
+		if (reqId != ConcurrentIntMap.NO_KEY) {
 			m_client.cancelAccountSummary( reqId);
 			sendEOM();
 		}
@@ -478,6 +521,17 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
+		String key = snapshot || regulatorySnapshot ? null : sharedKey( contract, "mkt:" + genericTickList);
+		if (key != null) {
+			SharedSubscription.TopMktData shared = attachShared( key, handler, SharedSubscription.TopMktData::new);
+			if (shared != null) {
+				m_topMktDataMap.put( shared.reqId(), shared);
+				m_client.reqMktData( shared.reqId(), contract, genericTickList, false, false, Collections.emptyList() );
+				sendEOM();
+			}
+			return;
+		}
+
     	int reqId = m_reqId++;
     	m_topMktDataMap.put( reqId, handler);
     	m_client.reqMktData( reqId, contract, genericTickList, snapshot, regulatorySnapshot, Collections.emptyList() );
@@ -510,8 +564,12 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_topMktDataMap, handler);
-    	if (reqId != null) {
+		if (detachShared( handler, SharedSubscription.TopMktData.class, m_topMktDataMap, m_client::cancelMktData)) {
+			return;
+		}
+
+		int reqId = m_topMktDataMap.removeValue( handler);
+    	if (reqId != ConcurrentIntMap.NO_KEY) {
     		m_client.cancelMktData( reqId);
     	}
     	else {
@@ -522,12 +580,12 @@ public class ApiController implements EWrapper {
 
     public void cancelOptionMktData( IOptHandler handler) {
     	cancelTopMktData( handler);
-    	getAndRemoveKey( m_optionCompMap, handler);
+    	m_optionCompMap.removeValue( handler);
     }
 
     public void cancelEfpMktData( IEfpHandler handler) {
     	cancelTopMktData( handler);
-    	getAndRemoveKey( m_efpMap, handler);
+    	m_efpMap.removeValue( handler);
     }
 
 	public void reqMktDataType( int mktDataType) {
@@ -632,8 +690,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-    	Integer reqId = getAndRemoveKey( m_deepMktDataMap, handler);
-    	if (reqId != null) {
+    	int reqId = m_deepMktDataMap.removeValue( handler);
+    	if (reqId != ConcurrentIntMap.NO_KEY) {
     		m_client.cancelMktDepth( reqId, isSmartDepth);
     		sendEOM();
     	}
@@ -680,8 +738,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_optionCompMap, handler);
-		if (reqId != null) {
+		int reqId = m_optionCompMap.removeValue( handler);
+		if (reqId != ConcurrentIntMap.NO_KEY) {
 			m_client.cancelCalculateOptionPrice( reqId);
 			sendEOM();
 		}
@@ -870,7 +928,7 @@ public class ApiController implements EWrapper {
 	}
 
 	public void removeOrderHandler( IOrderHandler handler) {
-		getAndRemoveKey(m_orderHandlers, handler);
+		m_orderHandlers.removeValue( handler);
 	}
 
 
@@ -884,6 +942,14 @@ public class ApiController implements EWrapper {
 		void handle(int orderId, int errorCode, String errorMsg);  // add permId?
 	}
 
+	/** An ILiveOrderHandler that gets open orders as ELazyOrder views, so a snapshot of many orders
+	 *  only decodes the fields the handler reads; openOrder(Contract, Order, OrderState) is not called.
+	 *  Unlike other live order handlers, it also gets what-if results for orders placed without an IOrderHandler. */
+	public interface ILazyLiveOrderHandler extends ILiveOrderHandler {
+		void openOrder(ELazyOrder order);
+		@Override default void openOrder(Contract contract, Order order, OrderState orderState) { }
+	}
+
 	public void reqLiveOrders( ILiveOrderHandler handler) {
 		if (!checkConnection())
 			return;
@@ -929,6 +995,27 @@ public class ApiController implements EWrapper {
 		recEOM();
 	}
 
+	@Override public void openOrder(ELazyOrder lazyOrder) {
+		IOrderHandler handler = m_orderHandlers.get( lazyOrder.orderId());
+		if (handler != null) {
+			handler.orderState(lazyOrder.orderState());
+		}
+
+		// lazy handlers skip the what-if check, which decodes the order, unless the order has a handler;
+		// the others decode it anyway and get no what-if results, as with openOrder(int, ...)
+		for (ILiveOrderHandler liveHandler : m_liveOrderHandlers) {
+			if (liveHandler instanceof ILazyLiveOrderHandler) {
+				if (handler == null || !lazyOrder.order().whatIf()) {
+					((ILazyLiveOrderHandler) liveHandler).openOrder( lazyOrder);
+				}
+			}
+			else if (!lazyOrder.order().whatIf()) {
+				liveHandler.openOrder( lazyOrder.contract(), lazyOrder.order(), lazyOrder.orderState());
+			}
+		}
+		recEOM();
+	}
+
 	@Override public void openOrderEnd() {
 		for (ILiveOrderHandler handler : m_liveOrderHandlers) {
 			handler.openOrderEnd();
@@ -981,8 +1068,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_scannerMap, handler);
-		if (reqId != null) {
+		int reqId = m_scannerMap.removeValue( handler);
+		if (reqId != ConcurrentIntMap.NO_KEY) {
 			m_client.cancelScannerSubscription( reqId);
 			sendEOM();
 		}
@@ -1016,6 +1103,13 @@ public class ApiController implements EWrapper {
 		void historicalDataEnd();
 	}
 
+	/** Takes bars in columns instead of one Bar object each. The batch is delivered when it is full,
+	 *  before historicalDataEnd(), and on every update of a keepUpToDate request. */
+	public interface IHistoricalDataBatchHandler extends IHistoricalDataHandler {
+		void historicalData(BarBatch bars);
+		@Override default void historicalData(Bar bar) {}
+	}
+
 	/** @param endDateTime format is YYYYMMDD HH:MM:SS [TMZ]
 	 *  @param duration is number of durationUnits */
     public void reqHistoricalData(Contract contract, String endDateTime, int duration, DurationUnit durationUnit, BarSize barSize, WhatToShow whatToShow, boolean rthOnly, boolean keepUpToDate, IHistoricalDataHandler handler) {
@@ -1033,37 +1127,61 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_historicalDataMap, handler);
-    	if (reqId != null) {
+		int reqId = m_historicalDataMap.removeValue( handler);
+    	if (reqId != ConcurrentIntMap.NO_KEY) {
+    		m_barBatchMap.remove( reqId);
     		m_client.cancelHistoricalData( reqId);
     		sendEOM();
     	}
     }
 
 	@Override public void historicalData(int reqId, com.ib.client.Bar bar) {
+		historicalData( reqId, bar, false);
+	}
+
+	private void historicalData(int reqId, com.ib.client.Bar bar, boolean update) {
 		IHistoricalDataHandler handler = m_historicalDataMap.get( reqId);
 		if (handler != null) {
 			if (bar.time().startsWith( "finished")) {
-				handler.historicalDataEnd();
+				endHistoricalData( reqId, handler);
 			}
 			else {
-				long longDate;
-				if (bar.time().length() == 8) {
-					int year = Integer.parseInt( bar.time().substring( 0, 4) );
-					int month = Integer.parseInt( bar.time().substring( 4, 6) );
-					int day = Integer.parseInt( bar.time().substring( 6) );
-					longDate = new GregorianCalendar( year, month - 1, day).getTimeInMillis() / 1000;
+				long longDate = m_barTimes.parse( bar.time());
+				if (handler instanceof IHistoricalDataBatchHandler) {
+					BarBatch batch = m_barBatchMap.get( reqId);
+					if (batch == null) {
+						batch = new BarBatch( BAR_BATCH_SIZE);
+						m_barBatchMap.put( reqId, batch);
+					}
+					batch.add( longDate, bar.high(), bar.low(), bar.open(), bar.close(), bar.wap(), bar.volume(), bar.count());
+					if (update || batch.isFull()) {
+						flushBars( (IHistoricalDataBatchHandler)handler, batch);
+					}
 				}
 				else {
-					longDate = Long.parseLong( bar.time());
+					Bar bar2 = new Bar( longDate, bar.high(), bar.low(), bar.open(), bar.close(), bar.wap(), bar.volume(), bar.count());
+					handler.historicalData(bar2);
 				}
-				Bar bar2 = new Bar( longDate, bar.high(), bar.low(), bar.open(), bar.close(), bar.wap(), bar.volume(), bar.count());
-				handler.historicalData(bar2);
 			}
 		}
 		recEOM();
 	}
 
+	private void endHistoricalData(int reqId, IHistoricalDataHandler handler) {
+		BarBatch batch = m_barBatchMap.remove( reqId);
+		if (batch != null) {
+			flushBars( (IHistoricalDataBatchHandler)handler, batch);
+		}
+		handler.historicalDataEnd();
+	}
+
+	private static void flushBars(IHistoricalDataBatchHandler handler, BarBatch batch) {
+		if (!batch.isEmpty()) {
+			handler.historicalData( batch);
+			batch.clear();
+		}
+	}
+
 
 	//----------------------------------------- Real-time bars --------------------------------------
 	public interface IRealTimeBarHandler {
@@ -1074,6 +1192,17 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
+		String key = sharedKey( contract, "bar:" + whatToShow + ":" + rthOnly);
+		if (key != null) {
+			SharedSubscription.RealTimeBars shared = attachShared( key, handler, SharedSubscription.RealTimeBars::new);
+			if (shared != null) {
+				m_realTimeBarMap.put( shared.reqId(), shared);
+				m_client.reqRealTimeBars( shared.reqId(), contract, 0, whatToShow.toString(), rthOnly, new ArrayList<>());
+				sendEOM();
+			}
+			return;
+		}
+
     	int reqId = m_reqId++;
     	m_realTimeBarMap.put( reqId, handler);
     	List<TagValue> realTimeBarsOptions = new ArrayList<>();
@@ -1085,8 +1214,12 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-    	Integer reqId = getAndRemoveKey( m_realTimeBarMap, handler);
-    	if (reqId != null) {
+		if (detachShared( handler, SharedSubscription.RealTimeBars.class, m_realTimeBarMap, m_client::cancelRealTimeBars)) {
+			return;
+		}
+
+    	int reqId = m_realTimeBarMap.removeValue( handler);
+    	if (reqId != ConcurrentIntMap.NO_KEY) {
     		m_client.cancelRealTimeBars( reqId);
     		sendEOM();
     	}
@@ -1198,8 +1331,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_positionMultiMap, handler);
-		if (reqId != null) {
+		int reqId = m_positionMultiMap.removeValue( handler);
+		if (reqId != ConcurrentIntMap.NO_KEY) {
 			m_client.cancelPositionsMulti( reqId);
 			sendEOM();
 		}
@@ -1241,8 +1374,8 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey( m_accountUpdateMultiMap, handler);
-		if (reqId != null) {
+		int reqId = m_accountUpdateMultiMap.removeValue( handler);
+		if (reqId != ConcurrentIntMap.NO_KEY) {
 			m_client.cancelAccountUpdatesMulti( reqId);
 			sendEOM();
 		}
@@ -1294,15 +1427,73 @@ public class ApiController implements EWrapper {
 		m_connectionHandler.show( string);
 	}
 
-    private static <K,V> K getAndRemoveKey( Map<K,V> map, V value) {
-    	for (Entry<K,V> entry : map.entrySet() ) {
-    		if (entry.getValue() == value) {
-    			map.remove( entry.getKey() );
-    			return entry.getKey();
-    		}
-    	}
-		return null;
-    }
+	/** Key of the shared subscription for data on contract, or null if it is not to be shared. */
+	private String sharedKey(Contract contract, String data) {
+		return m_shareSubscriptions && contract.conid() != 0 ? contract.conid() + ":" + contract.exchange() + ":" + data : null;
+	}
+
+	/** Attaches handler to the subscription shared under key; returns the subscription if it was created
+	 *  for handler, with the next request id, and is still to be requested. */
+	private <H, S extends SharedSubscription<H>> S attachShared(String key, H handler, BiFunction<String, Integer, S> factory) {
+		S shared;
+		S created = null;
+		synchronized (m_sharedSubscriptions) {
+			@SuppressWarnings("unchecked")
+			S existing = (S)m_sharedSubscriptions.get( key);
+			shared = existing;
+			if (shared == null) {
+				shared = created = factory.apply( key, m_reqId++);
+				m_sharedSubscriptions.put( key, shared);
+			}
+			shared.retain();
+			m_sharedByHandler.computeIfAbsent( handler, h -> new ArrayList<>()).add( shared);
+		}
+		// outside the lock: a subscription replays to a new handler while holding its own lock, which
+		// its callbacks hold too, and those may cancel
+		shared.attach( handler);
+		return created;
+	}
+
+	/** Detaches handler from the last shared subscription of type it attached to; when no handler is
+	 *  left the subscription is removed from registry and cancelled.
+	 *  @return false if handler is not attached to a shared subscription of type */
+	private boolean detachShared(Object handler, Class<?> type, ConcurrentIntMap<?> registry, IntConsumer cancel) {
+		SharedSubscription<?> shared = null;
+		boolean last;
+		synchronized (m_sharedSubscriptions) {
+			List<SharedSubscription<?>> subscriptions = m_sharedByHandler.getOrDefault( handler, Collections.emptyList());
+			for (int i = subscriptions.size() - 1; i >= 0 && shared == null; i--) {
+				if (type.isInstance( subscriptions.get( i))) {
+					shared = subscriptions.remove( i);
+				}
+			}
+			if (shared == null) {
+				return false;
+			}
+			if (subscriptions.isEmpty()) {
+				m_sharedByHandler.remove( handler);
+			}
+			last = shared.release();
+			if (last) {
+				m_sharedSubscriptions.remove( shared.key());
+			}
+		}
+		shared.detach( handler);
+		if (last) {
+			registry.remove( shared.reqId());
+			cancel.accept( shared.reqId());
+			sendEOM();
+		}
+		return true;
+	}
+
+	/** The IB subscriptions end with the connection; requests after a reconnect start new ones. */
+	private void clearSharedSubscriptions() {
+		synchronized (m_sharedSubscriptions) {
+			m_sharedSubscriptions.clear();
+			m_sharedByHandler.clear();
+		}
+	}
 
 	/** Obsolete, never called. */
 	@Override public void error(String str) {
@@ -1425,7 +1616,7 @@ public class ApiController implements EWrapper {
 		IHistoricalDataHandler handler = m_historicalDataMap.get(reqId);
 		
 		if (handler != null) {
-			handler.historicalDataEnd();
+			endHistoricalData(reqId, handler);
 		}
 	}
 
@@ -1637,9 +1828,9 @@ public class ApiController implements EWrapper {
 		if (!checkConnection())
 			return;
 
-		Integer reqId = getAndRemoveKey(m_histogramDataMap, handler);
+		int reqId = m_histogramDataMap.removeValue( handler);
 		
-    	if (reqId != null) {
+    	if (reqId != ConcurrentIntMap.NO_KEY) {
     		m_client.cancelHistogramData(reqId);
     		sendEOM();
     	}
@@ -1658,7 +1849,7 @@ public class ApiController implements EWrapper {
 
     @Override
     public void historicalDataUpdate(int reqId, com.ib.client.Bar bar) {
-        historicalData(reqId, bar);
+        historicalData(reqId, bar, true);
     }
 
 	@Override public void rerouteMktDataReq(int reqId, int conId, String exchange) {
@@ -1712,9 +1903,9 @@ public class ApiController implements EWrapper {
 	    if (!checkConnection())
 	        return;
 
-	    Integer reqId = getAndRemoveKey(m_pnlMap, handler);
+	    int reqId = m_pnlMap.removeValue( handler);
 
-	    if (reqId != null) {
+	    if (reqId != ConcurrentIntMap.NO_KEY) {
 	        m_client.cancelPnL(reqId);
 	        sendEOM();
 	    }
@@ -1752,9 +1943,9 @@ public class ApiController implements EWrapper {
         if (!checkConnection())
             return;
 
-        Integer reqId = getAndRemoveKey(m_pnlSingleMap, handler);
+        int reqId = m_pnlSingleMap.removeValue( handler);
 
-        if (reqId != null) {
+        if (reqId != ConcurrentIntMap.NO_KEY) {
             m_client.cancelPnLSingle(reqId);
             sendEOM();
         }
@@ -1857,6 +2048,17 @@ public class ApiController implements EWrapper {
         if (!checkConnection())
             return;
 
+        String key = numberOfTicks == 0 ? sharedKey( contract, "tbt:" + tickType + ":" + ignoreSize) : null;
+        if (key != null) {
+            SharedSubscription.TickByTick shared = attachShared( key, handler, SharedSubscription.TickByTick::new);
+            if (shared != null) {
+                m_tickByTickDataMap.put( shared.reqId(), shared);
+                m_client.reqTickByTickData( shared.reqId(), contract, tickType, 0, ignoreSize);
+                sendEOM();
+            }
+            return;
+        }
+
         int reqId = m_reqId++;
         m_tickByTickDataMap.put( reqId, handler);
         m_client.reqTickByTickData( reqId, contract, tickType, numberOfTicks, ignoreSize);
@@ -1867,8 +2069,12 @@ public class ApiController implements EWrapper {
         if (!checkConnection())
             return;
 
-        Integer reqId = getAndRemoveKey( m_tickByTickDataMap, handler);
-        if (reqId != null) {
+        if (detachShared( handler, SharedSubscription.TickByTick.class, m_tickByTickDataMap, m_client::cancelTickByTickData)) {
+            return;
+        }
+
+        int reqId = m_tickByTickDataMap.removeValue( handler);
+        if (reqId != ConcurrentIntMap.NO_KEY) {
             m_client.cancelTickByTickData( reqId);
             sendEOM();
         }
@@ -1920,6 +2126,12 @@ public class ApiController implements EWrapper {
         void completedOrdersEnd();
     }
 
+    /** An ICompletedOrdersHandler that gets completed orders as ELazyOrder views; completedOrder(Contract, Order, OrderState) is not called. */
+    public interface ILazyCompletedOrdersHandler extends ICompletedOrdersHandler {
+        void completedOrder(ELazyOrder order);
+        @Override default void completedOrder(Contract contract, Order order, OrderState orderState) { }
+    }
+
     public void reqCompletedOrders(ICompletedOrdersHandler handler) {
         if (!checkConnection())
             return;
@@ -1937,6 +2149,17 @@ public class ApiController implements EWrapper {
         recEOM();
     }
 
+    @Override
+    public void completedOrder(ELazyOrder order) {
+        if (m_completedOrdersHandler instanceof ILazyCompletedOrdersHandler) {
+            ((ILazyCompletedOrdersHandler) m_completedOrdersHandler).completedOrder(order);
+        }
+        else if (m_completedOrdersHandler != null) {
+            m_completedOrdersHandler.completedOrder(order.contract(), order.order(), order.orderState());
+        }
+        recEOM();
+    }
+
     @Override
     public void completedOrdersEnd() {
         if (m_completedOrdersHandler != null) {
@@ -0,0 +1,322 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.controller;
+
+import com.ib.client.*;
+import com.ib.client.Types.*;
+import com.ib.controller.ApiController.IConnectionHandler;
+import com.ib.controller.ApiController.IHistoricalDataBatchHandler;
+import com.ib.controller.ApiController.IHistoricalDataHandler;
+import com.ib.controller.ApiController.IRealTimeBarHandler;
+import com.ib.controller.ApiController.ITickByTickDataHandler;
+import com.ib.controller.ApiController.ITopMktDataHandler;
+
+import java.util.*;
+
+/** Spreads market data over several TWS connections, one ApiController per client id, to get past
+ *  the market data lines and message rate of a single connection. Each subscription goes to the
+ *  connected controller with the fewest active subscriptions and stays there until it is
+ *  cancelled; a historical request counts until its historicalDataEnd. Handler callbacks from all
+ *  connections are delivered one at a time under a pool-wide lock, so handlers see a single event
+ *  stream as with one connection, though there is no ordering between subscriptions.
+ *
+ *  Orders, account and other requests are not pooled; send them through controller(0). */
+public class ApiControllerPool {
+	private final IConnectionHandler m_connectionHandler;
+	private final ApiController[] m_controllers;
+	private final int[] m_load;
+	private final Map<Object, Lease> m_leases = new HashMap<>(); // by the caller's handler
+	private final Object m_events = new Object();
+	private int m_connectedCount;
+	private boolean m_accountListSent;
+
+	/** The connection a subscription was assigned to. */
+	private static class Lease {
+		final int m_connection;
+		final Object m_handler; // the handler registered with the controller
+
+		Lease(int connection, Object handler) {
+			m_connection = connection;
+			m_handler = handler;
+		}
+	}
+
+	public ApiControllerPool(IConnectionHandler handler, int connections) {
+		if (connections <= 0) {
+			throw new IllegalArgumentException("connections must be positive: " + connections);
+		}
+		m_connectionHandler = handler;
+		m_controllers = new ApiController[connections];
+		m_load = new int[connections];
+
+		for (int i = 0; i < connections; i++) {
+			m_controllers[i] = new ApiController(new ConnectionHandler());
+		}
+	}
+
+	public int size() {
+		return m_controllers.length;
+	}
+
+	/** The controller of the i-th connection, e.g. to configure it before connect() or for requests that are not pooled. */
+	public ApiController controller(int i) {
+		return m_controllers[i];
+	}
+
+	/** Active subscriptions on the i-th connection. */
+	public synchronized int load(int i) {
+		return m_load[i];
+	}
+
+	/** Connects the i-th controller with client id firstClientId + i; connected() is reported once all are connected. */
+	public void connect(String host, int port, int firstClientId, String connectionOpts) {
+		for (int i = 0; i < m_controllers.length; i++) {
+			m_controllers[i].connect(host, port, firstClientId + i, connectionOpts);
+		}
+	}
+
+	public void disconnect() {
+		for (ApiController controller : m_controllers) {
+			controller.disconnect();
+		}
+	}
+
+	// ---------------------------------------- Top market data ----------------------------------------
+	public void reqTopMktData(Contract contract, String genericTickList, boolean snapshot, boolean regulatorySnapshot, ITopMktDataHandler handler) {
+		ITopMktDataHandler leased = new ITopMktDataHandler() {
+			@Override public void tickPrice(TickType tickType, double price, TickAttrib attribs) {
+				synchronized (m_events) { handler.tickPrice(tickType, price, attribs); }
+			}
+			@Override public void tickSize(TickType tickType, long size) {
+				synchronized (m_events) { handler.tickSize(tickType, size); }
+			}
+			@Override public void tickString(TickType tickType, String value) {
+				synchronized (m_events) { handler.tickString(tickType, value); }
+			}
+			@Override public void tickSnapshotEnd() {
+				if (snapshot) {
+					release(handler);
+				}
+				synchronized (m_events) { handler.tickSnapshotEnd(); }
+			}
+			@Override public void marketDataType(int marketDataType) {
+				synchronized (m_events) { handler.marketDataType(marketDataType); }
+			}
+			@Override public void tickReqParams(int tickerId, double minTick, String bboExchange, int snapshotPermissions) {
+				synchronized (m_events) { handler.tickReqParams(tickerId, minTick, bboExchange, snapshotPermissions); }
+			}
+		};
+
+		int i = lease(handler, leased);
+		if (i >= 0) {
+			m_controllers[i].reqTopMktData(contract, genericTickList, snapshot, regulatorySnapshot, leased);
+		}
+	}
+
+	public void cancelTopMktData(ITopMktDataHandler handler) {
+		Lease lease = release(handler);
+		if (lease != null) {
+			m_controllers[lease.m_connection].cancelTopMktData((ITopMktDataHandler) lease.m_handler);
+		}
+	}
+
+	// ---------------------------------------- Tick-by-tick data ----------------------------------------
+	public void reqTickByTickData(Contract contract, String tickType, int numberOfTicks, boolean ignoreSize, ITickByTickDataHandler handler) {
+		ITickByTickDataHandler leased = new ITickByTickDataHandler() {
+			@Override public void tickByTickAllLast(int reqId, int tickType, long time, double price, long size, TickAttribLast tickAttribLast, String exchange, String specialConditions) {
+				synchronized (m_events) { handler.tickByTickAllLast(reqId, tickType, time, price, size, tickAttribLast, exchange, specialConditions); }
+			}
+			@Override public void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize, TickAttribBidAsk tickAttribBidAsk) {
+				synchronized (m_events) { handler.tickByTickBidAsk(reqId, time, bidPrice, askPrice, bidSize, askSize, tickAttribBidAsk); }
+			}
+			@Override public void tickByTickMidPoint(int reqId, long time, double midPoint) {
+				synchronized (m_events) { handler.tickByTickMidPoint(reqId, time, midPoint); }
+			}
+			@Override public void tickByTickHistoricalTickAllLast(int reqId, List<HistoricalTickLast> ticks) {
+				synchronized (m_events) { handler.tickByTickHistoricalTickAllLast(reqId, ticks); }
+			}
+			@Override public void tickByTickHistoricalTickBidAsk(int reqId, List<HistoricalTickBidAsk> ticks) {
+				synchronized (m_events) { handler.tickByTickHistoricalTickBidAsk(reqId, ticks); }
+			}
+			@Override public void tickByTickHistoricalTick(int reqId, List<HistoricalTick> ticks) {
+				synchronized (m_events) { handler.tickByTickHistoricalTick(reqId, ticks); }
+			}
+		};
+
+		int i = lease(handler, leased);
+		if (i >= 0) {
+			m_controllers[i].reqTickByTickData(contract, tickType, numberOfTicks, ignoreSize, leased);
+		}
+	}
+
+	public void cancelTickByTickData(ITickByTickDataHandler handler) {
+		Lease lease = release(handler);
+		if (lease != null) {
+			m_controllers[lease.m_connection].cancelTickByTickData((ITickByTickDataHandler) lease.m_handler);
+		}
+	}
+
+	// ---------------------------------------- Real-time bars ----------------------------------------
+	public void reqRealTimeBars(Contract contract, WhatToShow whatToShow, boolean rthOnly, IRealTimeBarHandler handler) {
+		IRealTimeBarHandler leased = bar -> {
+			synchronized (m_events) { handler.realtimeBar(bar); }
+		};
+
+		int i = lease(handler, leased);
+		if (i >= 0) {
+			m_controllers[i].reqRealTimeBars(contract, whatToShow, rthOnly, leased);
+		}
+	}
+
+	public void cancelRealtimeBars(IRealTimeBarHandler handler) {
+		Lease lease = release(handler);
+		if (lease != null) {
+			m_controllers[lease.m_connection].cancelRealtimeBars((IRealTimeBarHandler) lease.m_handler);
+		}
+	}
+
+	// ---------------------------------------- Historical data ----------------------------------------
+	/** Counts against its connection until historicalDataEnd, or until cancelled when keepUpToDate is set. */
+	public void reqHistoricalData(Contract contract, String endDateTime, int duration, DurationUnit durationUnit, BarSize barSize, WhatToShow whatToShow, boolean rthOnly, boolean keepUpToDate, IHistoricalDataHandler handler) {
+		IHistoricalDataHandler leased;
+		if (handler instanceof IHistoricalDataBatchHandler) {
+			IHistoricalDataBatchHandler batchHandler = (IHistoricalDataBatchHandler) handler;
+			leased = new IHistoricalDataBatchHandler() {
+				@Override public void historicalData(BarBatch bars) {
+					synchronized (m_events) { batchHandler.historicalData(bars); }
+				}
+				@Override public void historicalDataEnd() {
+					endHistoricalData(handler, keepUpToDate);
+				}
+			};
+		}
+		else {
+			leased = new IHistoricalDataHandler() {
+				@Override public void historicalData(Bar bar) {
+					synchronized (m_events) { handler.historicalData(bar); }
+				}
+				@Override public void historicalDataEnd() {
+					endHistoricalData(handler, keepUpToDate);
+				}
+			};
+		}
+
+		int i = lease(handler, leased);
+		if (i >= 0) {
+			m_controllers[i].reqHistoricalData(contract, endDateTime, duration, durationUnit, barSize, whatToShow, rthOnly, keepUpToDate, leased);
+		}
+	}
+
+	private void endHistoricalData(IHistoricalDataHandler handler, boolean keepUpToDate) {
+		if (!keepUpToDate) {
+			release(handler);
+		}
+		synchronized (m_events) { handler.historicalDataEnd(); }
+	}
+
+	public void cancelHistoricalData(IHistoricalDataHandler handler) {
+		Lease lease = release(handler);
+		if (lease != null) {
+			m_controllers[lease.m_connection].cancelHistoricalData((IHistoricalDataHandler) lease.m_handler);
+		}
+	}
+
+	// ---------------------------------------- Assignment ----------------------------------------
+	/** Assigns handler to the least loaded connected controller; returns its index, or -1 if none is
+	 *  connected or the handler already has a subscription. */
+	private int lease(Object handler, Object leasedHandler) {
+		String error;
+
+		// show() takes m_events, under which handlers run and may subscribe, so it is called after leaving the lock
+		synchronized (this) {
+			error = null;
+			int best = -1;
+
+			if (m_leases.containsKey(handler)) {
+				error = "Error: handler already has a pooled subscription";
+			}
+			else {
+				for (int i = 0; i < m_controllers.length; i++) {
+					if (m_controllers[i].client().isConnected() && (best < 0 || m_load[i] < m_load[best])) {
+						best = i;
+					}
+				}
+				if (best < 0) {
+					error = "Error: no pooled connection is connected";
+				}
+				else {
+					m_leases.put(handler, new Lease(best, leasedHandler));
+					m_load[best]++;
+					return best;
+				}
+			}
+		}
+
+		show(error);
+		return -1;
+	}
+
+	private synchronized Lease release(Object handler) {
+		Lease lease = m_leases.remove(handler);
+		if (lease != null) {
+			m_load[lease.m_connection]--;
+		}
+		return lease;
+	}
+
+	private void show(String string) {
+		synchronized (m_events) {
+			m_connectionHandler.show(string);
+		}
+	}
+
+	/** Merges the connection events of the controllers into the pool's handler. */
+	private class ConnectionHandler implements IConnectionHandler {
+		private boolean m_connected;
+
+		@Override public void connected() {
+			synchronized (m_events) {
+				if (!m_connected) {
+					m_connected = true;
+					if (++m_connectedCount == m_controllers.length) {
+						m_connectionHandler.connected();
+					}
+				}
+			}
+		}
+
+		/** Reported for the first connection lost; the remaining connections keep serving, without new assignments to this one. */
+		@Override public void disconnected() {
+			synchronized (m_events) {
+				if (m_connected) {
+					m_connected = false;
+					if (m_connectedCount-- == m_controllers.length) {
+						m_connectionHandler.disconnected();
+					}
+				}
+			}
+		}
+
+		@Override public void accountList(List<String> list) {
+			synchronized (m_events) {
+				if (!m_accountListSent) {
+					m_accountListSent = true;
+					m_connectionHandler.accountList(list);
+				}
+			}
+		}
+
+		@Override public void error(Exception e) {
+			synchronized (m_events) { m_connectionHandler.error(e); }
+		}
+
+		@Override public void message(int id, int errorCode, String errorMsg) {
+			synchronized (m_events) { m_connectionHandler.message(id, errorCode, errorMsg); }
+		}
+
+		@Override public void show(String string) {
+			synchronized (m_events) { m_connectionHandler.show(string); }
+		}
+	}
+}
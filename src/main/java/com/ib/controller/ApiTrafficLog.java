@@ -0,0 +1,290 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.ib.client.EMessage;
+import com.ib.client.EThreads;
+
+/** Wire log for ApiConnection that keeps formatting and file I/O off the socket threads. The I/O
+ *  threads only copy each message's bytes into a ring buffer allocated up front; a background thread
+ *  writes them one message per line, fields separated by ApiConnection.LOG_EOL, to a file that is
+ *  rotated at a size limit, e.g.
+ *  <pre>12:00:00.123 -&gt; 1_2_1001_..._</pre>
+ *  A message the stream transport delivers in several reads is logged one read per line.
+ *  When the ring buffer is full the message is dropped instead of waiting: loss is bounded by
+ *  what does not fit, counted, and reported in the file as soon as there is room again. */
+public class ApiTrafficLog implements Closeable {
+    private static final byte IN = 0;
+    private static final byte OUT = 1;
+    private static final int HEADER = 1 + 4 + 8;    // direction, length, time in ms
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final byte[] IN_ARROW = " <- ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OUT_ARROW = " -> ".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] m_ring;
+    private final int m_mask;
+    private final Path m_file;
+    private final long m_maxFileBytes;
+    private final int m_maxFiles;
+    private final Thread m_thread;
+    private volatile long m_head;    // next byte to log, written by the log thread only
+    private volatile long m_tail;    // next byte to fill, written under the lock
+    private volatile boolean m_closed;
+    private volatile IOException m_error;
+    private long m_droppedMessages;  // under the lock
+    private long m_droppedBytes;     // under the lock
+    private long m_reportedDrops;    // log thread only
+    private OutputStream m_out;
+    private long m_fileBytes;
+    private long m_second = Long.MIN_VALUE;  // second in m_timeText
+    private final byte[] m_timeText = new byte[12]; // HH:mm:ss.SSS
+    private byte[] m_line = new byte[1024];
+
+    /** A 4 MB buffer and five files of 64 MB. */
+    public ApiTrafficLog(String file) {
+        this(file, 1 << 22, 64L << 20, 5);
+    }
+
+    /** @param bufferBytes rounded up to a power of two
+     *  @param maxFileBytes size at which file is renamed file.1, file.1 file.2 and so on
+     *  @param maxFiles number of files kept, including the current one */
+    public ApiTrafficLog(String file, int bufferBytes, long maxFileBytes, int maxFiles) {
+        if (bufferBytes < HEADER || bufferBytes > 1 << 30) {
+            throw new IllegalArgumentException("invalid buffer size " + bufferBytes);
+        }
+        if (maxFileBytes <= 0 || maxFiles < 1) {
+            throw new IllegalArgumentException("invalid rotation " + maxFileBytes + " bytes, " + maxFiles + " files");
+        }
+        m_ring = new byte[Integer.highestOneBit(bufferBytes - 1) << 1];
+        m_mask = m_ring.length - 1;
+        m_file = Paths.get(file);
+        m_maxFileBytes = maxFileBytes;
+        m_maxFiles = maxFiles;
+        m_thread = EThreads.newThread("ApiTrafficLog", false, this::run);
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    public void in(EMessage msg) {
+        byte[] buf = msg.getRawData();
+        add(IN, buf, 0, buf.length);
+    }
+
+    public void in(byte[] buf, int off, int len) {
+        add(IN, buf, off, len);
+    }
+
+    public void out(EMessage msg) {
+        byte[] buf = msg.getRawData();
+        add(OUT, buf, 0, buf.length);
+    }
+
+    /** Messages dropped because the buffer was full, or after close or an I/O error. */
+    public synchronized long droppedMessages() {
+        return m_droppedMessages;
+    }
+
+    /** The error that stopped the log thread, if any; messages are dropped from then on. */
+    public IOException error() {
+        return m_error;
+    }
+
+    /** Writes what is buffered and closes the file. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            m_closed = true;    // under add()'s lock, so no message is published after the last read of m_tail
+        }
+        LockSupport.unpark(m_thread);
+        try {
+            m_thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (m_error != null) {
+            throw m_error;
+        }
+    }
+
+    private synchronized void add(byte direction, byte[] buf, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+
+        long tail = m_tail;
+        if (m_closed || m_error != null || tail + HEADER + len - m_head > m_ring.length) {
+            m_droppedMessages++;
+            m_droppedBytes += len;
+            return;
+        }
+
+        int pos = (int)tail & m_mask;
+        m_ring[pos] = direction;
+        pos = putLong(pos + 1, len, 4);
+        pos = putLong(pos, System.currentTimeMillis(), 8);
+
+        int first = Math.min(len, m_ring.length - pos);
+        System.arraycopy(buf, off, m_ring, pos, first);
+        System.arraycopy(buf, off + first, m_ring, 0, len - first);
+
+        m_tail = tail + HEADER + len;
+    }
+
+    /** Writes the low count bytes of value big endian at pos; returns the position after them. */
+    private int putLong(int pos, long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            m_ring[pos & m_mask] = (byte)(value >>> (8 * i));
+            pos++;
+        }
+        return pos & m_mask;
+    }
+
+    private long getLong(long pos, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = value << 8 | (m_ring[(int)(pos + i) & m_mask] & 0xff);
+        }
+        return value;
+    }
+
+    private void run() {
+        try {
+            open();
+            while (true) {
+                boolean closed = m_closed;  // read before m_tail, so nothing added before close is missed
+                long tail = m_tail;
+
+                reportDrops();
+                if (m_head == tail) {
+                    m_out.flush();
+                    if (closed) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK);
+                    continue;
+                }
+
+                while (m_head != tail) {
+                    long head = m_head;
+                    int len = (int)getLong(head + 1, 4);
+
+                    write(m_ring[(int)head & m_mask], getLong(head + 5, 8), head + HEADER, len);
+                    m_head = head + HEADER + len;
+                }
+            }
+        }
+        catch (IOException e) {
+            m_error = e;
+        }
+        finally {
+            try {
+                if (m_out != null) {
+                    m_out.close();
+                }
+            }
+            catch (IOException e) {
+                if (m_error == null) {
+                    m_error = e;
+                }
+            }
+        }
+    }
+
+    private void write(byte direction, long time, long start, int len) throws IOException {
+        // frames carry a length prefix; drop it when it matches
+        if (len >= 4 && getLong(start, 4) == len - 4) {
+            start += 4;
+            len -= 4;
+        }
+
+        rotate(len + 17);
+        writeTime(time);
+        m_out.write(direction == IN ? IN_ARROW : OUT_ARROW);
+        if (m_line.length < len + 1) {
+            m_line = new byte[Integer.highestOneBit(len) << 1];
+        }
+        for (int i = 0; i < len; i++) {
+            byte b = m_ring[(int)(start + i) & m_mask];
+            m_line[i] = b == 0 ? (byte)ApiConnection.LOG_EOL : b;
+        }
+        m_line[len] = '\n';
+        m_out.write(m_line, 0, len + 1);
+        m_fileBytes += len + 17;
+    }
+
+    private void writeTime(long time) throws IOException {
+        long second = Math.floorDiv(time, 1000);
+        if (second != m_second) {
+            System.arraycopy(TIME.format(Instant.ofEpochSecond(second)).getBytes(StandardCharsets.US_ASCII), 0, m_timeText, 0, 8);
+            m_second = second;
+        }
+        int millis = Math.floorMod(time, 1000);
+        m_timeText[8] = '.';
+        m_timeText[9] = (byte)('0' + millis / 100);
+        m_timeText[10] = (byte)('0' + millis / 10 % 10);
+        m_timeText[11] = (byte)('0' + millis % 10);
+        m_out.write(m_timeText);
+    }
+
+    private void reportDrops() throws IOException {
+        long messages;
+        long bytes;
+        synchronized (this) {
+            messages = m_droppedMessages;
+            bytes = m_droppedBytes;
+        }
+        if (messages != m_reportedDrops) {
+            byte[] line = ("-- dropped " + (messages - m_reportedDrops) + " messages, " + bytes + " bytes in all\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            rotate(line.length);
+            m_out.write(line);
+            m_fileBytes += line.length;
+            m_reportedDrops = messages;
+        }
+    }
+
+    /** Starts a new file if the next lineBytes would not fit in the current one. */
+    private void rotate(long lineBytes) throws IOException {
+        if (m_fileBytes == 0 || m_fileBytes + lineBytes <= m_maxFileBytes) {
+            return;
+        }
+
+        m_out.close();
+        Files.deleteIfExists(numbered(m_maxFiles - 1));
+        for (int i = m_maxFiles - 2; i >= 0; i--) {
+            Path from = numbered(i);
+            if (Files.exists(from)) {
+                Files.move(from, numbered(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        open();
+    }
+
+    private Path numbered(int i) {
+        return i == 0 ? m_file : m_file.resolveSibling(m_file.getFileName() + "." + i);
+    }
+
+    private void open() throws IOException {
+        m_out = new BufferedOutputStream(Files.newOutputStream(m_file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+        m_fileBytes = Files.size(m_file);
+    }
+}
@@ -0,0 +1,72 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.controller;
+
+/** Historical bars in columns, as given to ApiController.IHistoricalDataBatchHandler. A batch holds
+ *  up to capacity() bars and is refilled after each callback, so copy out what must be kept. */
+public final class BarBatch {
+	private final long[] m_time;
+	private final double[] m_high;
+	private final double[] m_low;
+	private final double[] m_open;
+	private final double[] m_close;
+	private final double[] m_wap;
+	private final long[] m_volume;
+	private final int[] m_count;
+	private int m_size;
+
+	public BarBatch( int capacity) {
+		m_time = new long[capacity];
+		m_high = new double[capacity];
+		m_low = new double[capacity];
+		m_open = new double[capacity];
+		m_close = new double[capacity];
+		m_wap = new double[capacity];
+		m_volume = new long[capacity];
+		m_count = new int[capacity];
+	}
+
+	public int size()				{ return m_size; }
+	public int capacity()			{ return m_time.length; }
+	public boolean isEmpty()		{ return m_size == 0; }
+	public boolean isFull()			{ return m_size == m_time.length; }
+
+	/** Seconds since the epoch. */
+	public long time( int i)		{ return m_time[check( i)]; }
+	public double high( int i) 		{ return m_high[check( i)]; }
+	public double low( int i) 		{ return m_low[check( i)]; }
+	public double open( int i) 		{ return m_open[check( i)]; }
+	public double close( int i) 	{ return m_close[check( i)]; }
+	public double wap( int i) 		{ return m_wap[check( i)]; }
+	public long volume( int i) 		{ return m_volume[check( i)]; }
+	public int count( int i) 		{ return m_count[check( i)]; }
+
+	public Bar bar( int i) {
+		check( i);
+		return new Bar( m_time[i], m_high[i], m_low[i], m_open[i], m_close[i], m_wap[i], m_volume[i], m_count[i]);
+	}
+
+	void add( long time, double high, double low, double open, double close, double wap, long volume, int count) {
+		int i = m_size++;
+		m_time[i] = time;
+		m_high[i] = high;
+		m_low[i] = low;
+		m_open[i] = open;
+		m_close[i] = close;
+		m_wap[i] = wap;
+		m_volume[i] = volume;
+		m_count[i] = count;
+	}
+
+	void clear() {
+		m_size = 0;
+	}
+
+	private int check( int i) {
+		if (i < 0 || i >= m_size) {
+			throw new IndexOutOfBoundsException( "bar " + i + ", size " + m_size);
+		}
+		return i;
+	}
+}
@@ -0,0 +1,176 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.controller;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/** Parses the time of a historical bar into seconds since the epoch, reading the characters in place.
+ *  The forms TWS sends are
+ *  <ul>
+ *  <li>yyyyMMdd, for daily and longer bars: midnight at the start of the day</li>
+ *  <li>yyyyMMdd HH:mm:ss, with formatDate 1, optionally followed by a time zone id</li>
+ *  <li>yyyyMMdd-HH:mm:ss, in UTC</li>
+ *  <li>seconds since the epoch, with formatDate 2</li>
+ *  </ul>
+ *  Times without a zone are in the parser's zone. The start of each day is looked up once and kept
+ *  in a small cache, so a backfill costs one java.time lookup per day rather than per bar.
+ *  Not thread safe; ApiController uses one per connection on its processing thread. */
+public class BarTimeParser {
+    private static final int CACHE_SIZE = 64;   // power of two
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ZoneId m_defaultZone;
+    private ZoneId m_zone;                       // zone of the cached days
+    private String m_zoneId = "";                // last zone id read from a time, and its zone
+    private ZoneId m_parsedZone;
+    private final int[] m_days = new int[CACHE_SIZE];          // yyyyMMdd, 0 for a free slot
+    private final long[] m_starts = new long[CACHE_SIZE];      // first second of the day
+    private final boolean[] m_uniform = new boolean[CACHE_SIZE]; // no offset change during the day
+
+    public BarTimeParser() {
+        this(ZoneId.systemDefault());
+    }
+
+    public BarTimeParser(ZoneId zone) {
+        m_defaultZone = zone;
+        m_zone = zone;
+    }
+
+    /** @throws NumberFormatException if time is in none of the forms */
+    public long parse(String time) {
+        int length = time.length();
+
+        if (length == 8) {
+            return startOfDay(date(time), m_defaultZone);
+        }
+        if (length >= 17 && (time.charAt(8) == ' ' || time.charAt(8) == '-') && time.charAt(11) == ':' && time.charAt(14) == ':') {
+            int date = date(time);
+            int hour = digits(time, 9, 11);
+            int minute = digits(time, 12, 14);
+            int second = digits(time, 15, 17);
+
+            if (hour > 23 || minute > 59 || second > 59) {
+                throw invalid(time);
+            }
+            if (time.charAt(8) == '-') {
+                if (length != 17) {
+                    throw invalid(time);
+                }
+                return startOfDay(date, ZoneOffset.UTC) + hour * 3600 + minute * 60 + second;
+            }
+            return dateTime(time, date, hour, minute, second, length == 17 ? m_defaultZone : zone(time));
+        }
+        return epochSeconds(time);
+    }
+
+    private long dateTime(String time, int date, int hour, int minute, int second, ZoneId zone) {
+        long start = startOfDay(date, zone);
+        int slot = slot(date);
+
+        if (m_uniform[slot]) {
+            return start + hour * 3600 + minute * 60 + second;
+        }
+        // the offset changes during this day
+        try {
+            return LocalDateTime.of(date / 10000, date / 100 % 100, date % 100, hour, minute, second).atZone(zone).toEpochSecond();
+        }
+        catch (DateTimeException e) {
+            throw invalid(time);
+        }
+    }
+
+    /** First second of the day in zone; leaves the day in its cache slot. */
+    private long startOfDay(int date, ZoneId zone) {
+        if (zone != m_zone) {
+            Arrays.fill(m_days, 0);
+            m_zone = zone;
+        }
+
+        int slot = slot(date);
+        if (m_days[slot] != date) {
+            LocalDate day;
+            try {
+                day = LocalDate.of(date / 10000, date / 100 % 100, date % 100);
+            }
+            catch (DateTimeException e) {
+                throw new NumberFormatException("invalid bar date: " + date);
+            }
+            ZonedDateTime start = day.atStartOfDay(zone);
+            ZonedDateTime next = day.plusDays(1).atStartOfDay(zone);
+
+            m_starts[slot] = start.toEpochSecond();
+            m_uniform[slot] = start.getOffset().equals(next.getOffset()) && start.getHour() == 0
+                    && next.toEpochSecond() - start.toEpochSecond() == SECONDS_PER_DAY;
+            m_days[slot] = date;
+        }
+        return m_starts[slot];
+    }
+
+    private ZoneId zone(String time) {
+        if (time.charAt(17) != ' ') {
+            throw invalid(time);
+        }
+        if (!time.regionMatches(18, m_zoneId, 0, Math.max(time.length() - 18, m_zoneId.length()))) {
+            try {
+                m_parsedZone = ZoneId.of(time.substring(18));
+            }
+            catch (DateTimeException e) {
+                throw invalid(time);
+            }
+            m_zoneId = time.substring(18);
+        }
+        return m_parsedZone;
+    }
+
+    private static int slot(int date) {
+        return (date ^ date >>> 7) & (CACHE_SIZE - 1);
+    }
+
+    private static int date(String time) {
+        int date = digits(time, 0, 8);
+        if (date < 10000101) {
+            throw invalid(time);
+        }
+        return date;
+    }
+
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw invalid(s);
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static long epochSeconds(String time) {
+        int length = time.length();
+        if (length == 0 || length > 18) {
+            return Long.parseLong(time);    // signs, and throws the usual exception for anything else
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int d = time.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return Long.parseLong(time);
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static NumberFormatException invalid(String time) {
+        return new NumberFormatException("invalid bar time: " + time);
+    }
+}
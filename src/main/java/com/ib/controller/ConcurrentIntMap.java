@@ -0,0 +1,198 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.controller;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Request id to handler registry. get() is lock free and does not box the id, so the reader thread
+ *  can look up a handler per message while other threads add and cancel requests; updates are
+ *  synchronized. Handlers are also indexed by identity, so removeValue(), used to cancel by handler,
+ *  does not scan the table.
+ *
+ *  The table is open addressed with linear probing. A removed entry leaves a marker that keeps its key
+ *  and may only be reused by the same key, so a reader that found a handler in a slot always reads
+ *  that handler's key; markers are dropped when the table is rebuilt. */
+class ConcurrentIntMap<V> {
+    /** Returned by removeValue() when the handler is not registered; not a valid key. */
+    static final int NO_KEY = Integer.MIN_VALUE;
+
+    private static final Object REMOVED = new Object();
+    private static final int MIN_CAPACITY = 16;
+
+    private static final class Table {
+        final int[] m_keys;
+        final AtomicReferenceArray<Object> m_values; // null for a free slot, REMOVED for a removed entry
+        final int m_mask;
+
+        Table(int capacity) {
+            m_keys = new int[capacity];
+            m_values = new AtomicReferenceArray<>(capacity);
+            m_mask = capacity - 1;
+        }
+    }
+
+    private volatile Table m_table = new Table(MIN_CAPACITY);
+    private int m_size; // live entries
+    private int m_used; // live entries and removed markers, at most half the capacity
+    private final IdentityHashMap<Object, int[]> m_keysByValue = new IdentityHashMap<>(); // [count, key...]
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Table t = m_table;
+        for (int i = slot(key, t.m_mask); ; i = (i + 1) & t.m_mask) {
+            Object value = t.m_values.get(i);
+            if (value == null) {
+                return null;
+            }
+            if (value != REMOVED && t.m_keys[i] == key) {
+                return (V)value;
+            }
+        }
+    }
+
+    /** @return the handler previously registered for key, or null */
+    synchronized V put(int key, V value) {
+        if (key == NO_KEY) {
+            throw new IllegalArgumentException("invalid key " + key);
+        }
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        Table t = m_table;
+        int i = find(t, key);
+        if (i >= 0) {
+            Object previous = t.m_values.get(i);
+            t.m_values.set(i, value);
+
+            if (previous == REMOVED) {
+                m_size++;
+                index(key, value);
+                return null;
+            }
+            unindex(key, previous);
+            index(key, value);
+            @SuppressWarnings("unchecked")
+            V v = (V)previous;
+            return v;
+        }
+
+        if (m_used + 1 > (t.m_mask + 1) / 2) {
+            t = rebuild(m_size + 1);
+        }
+        i = ~find(t, key);
+        t.m_keys[i] = key;
+        t.m_values.set(i, value); // publishes the key to readers
+        m_size++;
+        m_used++;
+        index(key, value);
+        return null;
+    }
+
+    /** @return the handler that was registered for key, or null */
+    @SuppressWarnings("unchecked")
+    synchronized V remove(int key) {
+        Table t = m_table;
+        int i = find(t, key);
+        if (i < 0) {
+            return null;
+        }
+
+        Object value = t.m_values.get(i);
+        if (value == REMOVED) {
+            return null;
+        }
+        t.m_values.set(i, REMOVED);
+        m_size--;
+        unindex(key, value);
+        return (V)value;
+    }
+
+    /** Removes the most recent registration of value, compared by identity.
+     *  @return its key, or NO_KEY if value is not registered */
+    synchronized int removeValue(V value) {
+        int[] keys = m_keysByValue.get(value);
+        if (keys == null) {
+            return NO_KEY;
+        }
+
+        int key = keys[keys[0]];
+        remove(key);
+        return key;
+    }
+
+    synchronized int size() {
+        return m_size;
+    }
+
+    /** Slot of key, live or removed, or the one's complement of the free slot that ends its probe. */
+    private static int find(Table t, int key) {
+        for (int i = slot(key, t.m_mask); ; i = (i + 1) & t.m_mask) {
+            Object value = t.m_values.get(i);
+            if (value == null) {
+                return ~i;
+            }
+            if (t.m_keys[i] == key) {
+                return i;
+            }
+        }
+    }
+
+    /** Copies the live entries to a new table sized for size entries at a quarter load and publishes it. */
+    private Table rebuild(int size) {
+        Table old = m_table;
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+
+        Table t = new Table(capacity);
+        for (int i = 0; i <= old.m_mask; i++) {
+            Object value = old.m_values.get(i);
+            if (value != null && value != REMOVED) {
+                int j = ~find(t, old.m_keys[i]);
+                t.m_keys[j] = old.m_keys[i];
+                t.m_values.set(j, value);
+            }
+        }
+        m_used = m_size;
+        m_table = t;
+        return t;
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void index(int key, Object value) {
+        int[] keys = m_keysByValue.get(value);
+        if (keys == null) {
+            keys = new int[2];
+            m_keysByValue.put(value, keys);
+        }
+        else if (keys[0] + 1 == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            m_keysByValue.put(value, keys);
+        }
+        keys[++keys[0]] = key;
+    }
+
+    private void unindex(int key, Object value) {
+        int[] keys = m_keysByValue.get(value);
+        int count = keys[0];
+
+        for (int i = count; i > 0; i--) {
+            if (keys[i] == key) {
+                System.arraycopy(keys, i + 1, keys, i, count - i); // keeps the rest in registration order
+                break;
+            }
+        }
+        if (--keys[0] == 0) {
+            m_keysByValue.remove(value);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/* Copyright (C) 2019 Interactive Brokers LLC. All rights reserved. This code is subject to the terms
+ * and conditions of the IB API Non-Commercial License or the IB API Commercial License, as applicable. */
+
+package com.ib.controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.ib.client.ETickAttribs;
+import com.ib.client.HistoricalTick;
+import com.ib.client.HistoricalTickBidAsk;
+import com.ib.client.HistoricalTickLast;
+import com.ib.client.TickAttrib;
+import com.ib.client.TickAttribBidAsk;
+import com.ib.client.TickAttribLast;
+import com.ib.client.TickType;
+import com.ib.controller.ApiController.IRealTimeBarHandler;
+import com.ib.controller.ApiController.ITickByTickDataHandler;
+import com.ib.controller.ApiController.ITopMktDataHandler;
+
+/** One IB subscription whose data goes to every attached handler, see ApiController.setShareSubscriptions.
+ *  The subscription is registered under its request id in place of the handlers and forwards each
+ *  callback to them in the order they attached. The reference count, which decides when the IB
+ *  subscription is made and cancelled, is guarded by ApiController; the handlers, by this object. */
+abstract class SharedSubscription<H> {
+	private final String m_key;
+	private final int m_reqId;
+	protected volatile Object[] m_handlers = new Object[0];	// copied on change, so callbacks may detach
+	private int m_refs;
+
+	SharedSubscription( String key, int reqId) {
+		m_key = key;
+		m_reqId = reqId;
+	}
+
+	String key()		{ return m_key; }
+	int reqId()			{ return m_reqId; }
+
+	void retain() {
+		m_refs++;
+	}
+
+	/** @return true if this was the last reference */
+	boolean release() {
+		return --m_refs == 0;
+	}
+
+	synchronized void attach( H handler) {
+		Object[] handlers = Arrays.copyOf( m_handlers, m_handlers.length + 1);
+		handlers[handlers.length - 1] = handler;
+		m_handlers = handlers;
+		attached( handler);
+	}
+
+	/** @return false if handler was not attached */
+	synchronized boolean detach( Object handler) {
+		Object[] handlers = m_handlers;
+		for (int i = handlers.length - 1; i >= 0; i--) {
+			if (handlers[i] == handler) {
+				Object[] rest = new Object[handlers.length - 1];
+				System.arraycopy( handlers, 0, rest, 0, i);
+				System.arraycopy( handlers, i + 1, rest, i, rest.length - i);
+				m_handlers = rest;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Brings a handler that attached to a running subscription up to date; called with the lock held. */
+	protected void attached( H handler) {
+	}
+
+	@SuppressWarnings("unchecked")
+	protected H handler( Object handler) {
+		return (H)handler;
+	}
+
+	/** Top market data. The last value of each tick type is kept and replayed to handlers that attach
+	 *  later, which would otherwise not see fields until they change; callbacks are synchronized with
+	 *  the replay so a handler never sees a replayed value after a newer one. */
+	static final class TopMktData extends SharedSubscription<ITopMktDataHandler> implements ITopMktDataHandler {
+		private static final int TICK_TYPES = TickType.values().length;
+
+		private final double[] m_prices = new double[TICK_TYPES];
+		private final int[] m_priceAttribs = new int[TICK_TYPES];	// ETickAttribs bits, -1 if no price yet
+		private final long[] m_sizes = new long[TICK_TYPES];
+		private final boolean[] m_hasSize = new boolean[TICK_TYPES];
+		private final String[] m_strings = new String[TICK_TYPES];
+		private int m_marketDataType = -1;
+		private boolean m_hasReqParams;
+		private double m_minTick;
+		private String m_bboExchange;
+		private int m_snapshotPermissions;
+
+		TopMktData( String key, int reqId) {
+			super( key, reqId);
+			Arrays.fill( m_priceAttribs, -1);
+		}
+
+		@Override protected void attached( ITopMktDataHandler handler) {
+			if (m_marketDataType >= 0) {
+				handler.marketDataType( m_marketDataType);
+			}
+			if (m_hasReqParams) {
+				handler.tickReqParams( reqId(), m_minTick, m_bboExchange, m_snapshotPermissions);
+			}
+			for (TickType tickType : TickType.values()) {
+				int i = tickType.ordinal();
+				if (m_priceAttribs[i] >= 0) {
+					handler.tickPrice( tickType, m_prices[i], ETickAttribs.tickAttrib( m_priceAttribs[i], new TickAttrib()));
+				}
+				if (m_hasSize[i]) {
+					handler.tickSize( tickType, m_sizes[i]);
+				}
+				if (m_strings[i] != null) {
+					handler.tickString( tickType, m_strings[i]);
+				}
+			}
+		}
+
+		@Override public synchronized void tickPrice( TickType tickType, double price, TickAttrib attribs) {
+			int i = tickType.ordinal();
+			m_prices[i] = price;
+			m_priceAttribs[i] = (attribs.canAutoExecute() ? ETickAttribs.CAN_AUTO_EXECUTE : 0)
+					| (attribs.pastLimit() ? ETickAttribs.PAST_LIMIT : 0)
+					| (attribs.preOpen() ? ETickAttribs.PRE_OPEN : 0);
+			for (Object h : m_handlers) {
+				handler( h).tickPrice( tickType, price, attribs);
+			}
+		}
+
+		@Override public synchronized void tickSize( TickType tickType, long size) {
+			int i = tickType.ordinal();
+			m_sizes[i] = size;
+			m_hasSize[i] = true;
+			for (Object h : m_handlers) {
+				handler( h).tickSize( tickType, size);
+			}
+		}
+
+		@Override public synchronized void tickString( TickType tickType, String value) {
+			m_strings[tickType.ordinal()] = value;
+			for (Object h : m_handlers) {
+				handler( h).tickString( tickType, value);
+			}
+		}
+
+		@Override public synchronized void tickSnapshotEnd() {
+			for (Object h : m_handlers) {
+				handler( h).tickSnapshotEnd();
+			}
+		}
+
+		@Override public synchronized void marketDataType( int marketDataType) {
+			m_marketDataType = marketDataType;
+			for (Object h : m_handlers) {
+				handler( h).marketDataType( marketDataType);
+			}
+		}
+
+		@Override public synchronized void tickReqParams( int tickerId, double minTick, String bboExchange, int snapshotPermissions) {
+			m_hasReqParams = true;
+			m_minTick = minTick;
+			m_bboExchange = bboExchange;
+			m_snapshotPermissions = snapshotPermissions;
+			for (Object h : m_handlers) {
+				handler( h).tickReqParams( tickerId, minTick, bboExchange, snapshotPermissions);
+			}
+		}
+	}
+
+	/** Tick-by-tick data; ticks are events, so a handler that attaches later gets only the ticks that follow. */
+	static final class TickByTick extends SharedSubscription<ITickByTickDataHandler> implements ITickByTickDataHandler {
+		TickByTick( String key, int reqId) {
+			super( key, reqId);
+		}
+
+		@Override public void tickByTickAllLast( int reqId, int tickType, long time, double price, long size, TickAttribLast tickAttribLast, String exchange, String specialConditions) {
+			for (Object h : m_handlers) {
+				handler( h).tickByTickAllLast( reqId, tickType, time, price, size, tickAttribLast, exchange, specialConditions);
+			}
+		}
+
+		@Override public void tickByTickBidAsk( int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize, TickAttribBidAsk tickAttribBidAsk) {
+			for (Object h : m_handlers) {
+				handler( h).tickByTickBidAsk( reqId, time, bidPrice, askPrice, bidSize, askSize, tickAttribBidAsk);
+			}
+		}
+
+		@Override public void tickByTickMidPoint( int reqId, long time, double midPoint) {
+			for (Object h : m_handlers) {
+				handler( h).tickByTickMidPoint( reqId, time, midPoint);
+			}
+		}
+
+		@Override public void tickByTickHistoricalTickAllLast( int reqId, List<HistoricalTickLast> ticks) {
+			for (Object h : m_handlers) {
+				handler( h).tickByTickHistoricalTickAllLast( reqId, ticks);
+			}
+		}
+
+		@Override public void tickByTickHistoricalTickBidAsk( int reqId, List<HistoricalTickBidAsk> ticks) {
+			for (Object h : m_handlers) {
+				handler( h).tickByTickHistoricalTickBidAsk( reqId, ticks);
+			}
+		}
+
+		@Override public void tickByTickHistoricalTick( int reqId, List<HistoricalTick> ticks) {
+			for (Object h : m_handlers) {
+				handler( h).tickByTickHistoricalTick( reqId, ticks);
+			}
+		}
+	}
+
+	/** Five second real-time bars; a handler that attaches later starts with the next bar. */
+	static final class RealTimeBars extends SharedSubscription<IRealTimeBarHandler> implements IRealTimeBarHandler {
+		RealTimeBars( String key, int reqId) {
+			super( key, reqId);
+		}
+
+		@Override public void realtimeBar( Bar bar) {
+			for (Object h : m_handlers) {
+				handler( h).realtimeBar( bar);
+			}
+		}
+	}
+}